@@ -0,0 +1,70 @@
+package org.thehive.hiveserverclient;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Single factory for the executors running blocking http calls and listener callbacks
+@Slf4j
+public enum ExecutionMode {
+
+    // Bounded pool of platform threads, each blocked call holds one thread
+    PLATFORM {
+        @Override
+        public ExecutorService newExecutorService(int maxThreads) {
+            if (maxThreads < 1)
+                throw new IllegalArgumentException("Max threads must be positive, maxThreads: " + maxThreads);
+            return Executors.newFixedThreadPool(maxThreads, platformThreadFactory());
+        }
+    },
+    // One virtual thread per task, the thread count doesn't have to be sized for peak load so max threads is ignored
+    VIRTUAL {
+        @Override
+        public ExecutorService newExecutorService(int maxThreads) {
+            if (VIRTUAL_EXECUTOR_FACTORY != null) {
+                try {
+                    return (ExecutorService) VIRTUAL_EXECUTOR_FACTORY.invokeExact();
+                } catch (Throwable t) {
+                    throw new IllegalStateException("Virtual thread executor cannot be created", t);
+                }
+            }
+            log.warn("Virtual threads aren't supported by the runtime, falling back to thread per task executor, javaVersion: {}",
+                    Runtime.version());
+            return Executors.newCachedThreadPool(platformThreadFactory());
+        }
+    };
+
+    private static final MethodHandle VIRTUAL_EXECUTOR_FACTORY = findVirtualExecutorFactory();
+
+    // Max threads bounds platform pools only, concurrency of virtual threads is bounded by whatever resource they wait on
+    public abstract ExecutorService newExecutorService(int maxThreads);
+
+    public static boolean isVirtualThreadSupported() {
+        return VIRTUAL_EXECUTOR_FACTORY != null;
+    }
+
+    private static MethodHandle findVirtualExecutorFactory() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory platformThreadFactory() {
+        var threadCount = new AtomicInteger();
+        return runnable -> {
+            var thread = new Thread(runnable, "hive-client-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+}
@@ -10,15 +10,26 @@ public abstract class AppHttpClient {
 
     protected final String url;
     protected final ObjectMapper objectMapper;
-    protected final CloseableHttpClient httpClient;
-    protected final ExecutorService executorService;
+    protected final RequestPipeline pipeline;
 
-    protected AppHttpClient(@NonNull String url, @NonNull ObjectMapper objectMapper,
-                            @NonNull CloseableHttpClient httpClient, @NonNull ExecutorService executorService) {
+    protected AppHttpClient(@NonNull String url, @NonNull ObjectMapper objectMapper, @NonNull RequestPipeline pipeline) {
         this.url = url;
         this.objectMapper = objectMapper;
-        this.httpClient = httpClient;
-        this.executorService = executorService;
+        this.pipeline = pipeline;
+    }
+
+    protected AppHttpClient(@NonNull String url, @NonNull ObjectMapper objectMapper, @NonNull HttpTransport transport) {
+        this(url, objectMapper, RequestPipeline.builder()
+                .transport(transport)
+                .errorMapper(new JsonErrorMapper(objectMapper))
+                .coalescer(new RequestCoalescer())
+                .responseCache(new ConditionalResponseCache())
+                .build());
+    }
+
+    protected AppHttpClient(@NonNull String url, @NonNull ObjectMapper objectMapper,
+                            @NonNull CloseableHttpClient httpClient, @NonNull ExecutorService executorService) {
+        this(url, objectMapper, new BlockingHttpTransport(httpClient, executorService));
     }
 
 }
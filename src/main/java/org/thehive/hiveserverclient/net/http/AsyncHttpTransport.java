@@ -0,0 +1,54 @@
+package org.thehive.hiveserverclient.net.http;
+
+import lombok.NonNull;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+
+import java.util.concurrent.CancellationException;
+
+// Executes requests on the I/O reactor of the async client, listeners are notified on the I/O dispatch threads
+public class AsyncHttpTransport implements HttpTransport {
+
+    private final CloseableHttpAsyncClient httpAsyncClient;
+
+    public AsyncHttpTransport(@NonNull CloseableHttpAsyncClient httpAsyncClient) {
+        this.httpAsyncClient = httpAsyncClient;
+        if (!httpAsyncClient.isRunning())
+            httpAsyncClient.start();
+    }
+
+    public static AsyncHttpTransport create(int maxConnections) {
+        if (maxConnections < 1)
+            throw new IllegalArgumentException("Max connections must be positive, maxConnections: " + maxConnections);
+        var httpAsyncClient = HttpAsyncClients.custom()
+                .useSystemProperties()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .build();
+        return new AsyncHttpTransport(httpAsyncClient);
+    }
+
+    @Override
+    public void execute(@NonNull HttpUriRequest request, @NonNull ResponseListener listener) {
+        httpAsyncClient.execute(request, new FutureCallback<>() {
+            @Override
+            public void completed(HttpResponse response) {
+                listener.onResponse(response);
+            }
+
+            @Override
+            public void failed(Exception e) {
+                listener.onFail(e);
+            }
+
+            @Override
+            public void cancelled() {
+                listener.onFail(new CancellationException("Request has been cancelled"));
+            }
+        });
+    }
+
+}
@@ -0,0 +1,69 @@
+package org.thehive.hiveserverclient.net.http;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.thehive.hiveserverclient.ExecutionMode;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+
+// Executes each request on a thread of the executor, which stays blocked until the response is consumed
+@Slf4j
+public class BlockingHttpTransport implements HttpTransport {
+
+    private final CloseableHttpClient httpClient;
+    private final ExecutorService executorService;
+
+    public BlockingHttpTransport(@NonNull CloseableHttpClient httpClient, @NonNull ExecutorService executorService) {
+        this.httpClient = httpClient;
+        this.executorService = executorService;
+    }
+
+    // Platform mode gets one thread per connection, virtual mode leaves the connection pool as the only bound
+    public static BlockingHttpTransport create(ExecutionMode executionMode, int maxConnections) {
+        return create(executionMode, maxConnections, maxConnections);
+    }
+
+    // Max threads is ignored in virtual mode, so the connection pool can be sized for the concurrency it is meant to allow
+    public static BlockingHttpTransport create(@NonNull ExecutionMode executionMode, int maxThreads, int maxConnections) {
+        return create(executionMode, maxThreads, maxConnections, false);
+    }
+
+    // With ContentCompression installed on the pipeline the client leaves Accept-Encoding and decoding to it,
+    // otherwise responses would reach its wire bytes counter already decoded
+    public static BlockingHttpTransport create(@NonNull ExecutionMode executionMode, int maxThreads, int maxConnections,
+                                               boolean contentCompression) {
+        if (maxConnections < 1)
+            throw new IllegalArgumentException("Max connections must be positive, maxConnections: " + maxConnections);
+        var builder = HttpClients.custom()
+                .useSystemProperties()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections);
+        if (contentCompression)
+            builder.disableContentCompression();
+        return new BlockingHttpTransport(builder.build(), executionMode.newExecutorService(maxThreads));
+    }
+
+    @Override
+    public void execute(@NonNull HttpUriRequest request, @NonNull ResponseListener listener) {
+        executorService.execute(() -> {
+            CloseableHttpResponse response;
+            try {
+                response = httpClient.execute(request);
+            } catch (Exception e) {
+                listener.onFail(e);
+                return;
+            }
+            try (response) {
+                listener.onResponse(response);
+            } catch (IOException e) {
+                log.warn("Error while closing http response", e);
+            }
+        });
+    }
+
+}
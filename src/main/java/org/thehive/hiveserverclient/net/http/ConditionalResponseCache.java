@@ -0,0 +1,118 @@
+package org.thehive.hiveserverclient.net.http;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.springframework.lang.Nullable;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Keeps the last decoded body with its validators per request, a 304 response is answered from here without decoding.
+// Array bodies are copied on the way in and out so that callers can't change each other's arrays, their elements are shared.
+@Slf4j
+public class ConditionalResponseCache {
+
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    private final Cache<String, Entry> cache;
+    private final LongAdder notModifiedCount;
+    private final LongAdder modifiedCount;
+
+    public ConditionalResponseCache(long maxBytes) {
+        if (maxBytes < 1)
+            throw new IllegalArgumentException("Max bytes must be positive, maxBytes: " + maxBytes);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, Entry entry) -> entry.weight)
+                .build();
+        this.notModifiedCount = new LongAdder();
+        this.modifiedCount = new LongAdder();
+    }
+
+    public ConditionalResponseCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    @Nullable
+    public Entry prepare(@NonNull HttpUriRequest request) {
+        var entry = cache.getIfPresent(RequestUtils.keyOf(request));
+        if (entry != null) {
+            if (entry.etag != null)
+                request.setHeader(HttpHeaders.IF_NONE_MATCH, entry.etag);
+            if (entry.lastModified != null)
+                request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, entry.lastModified);
+        }
+        return entry;
+    }
+
+    public void notModified(@NonNull Entry entry) {
+        notModifiedCount.increment();
+        log.debug("Response has not been modified, path: {}", entry.path);
+    }
+
+    public void store(@NonNull HttpUriRequest request, @NonNull HttpResponse response, @NonNull Object value, long bodyLength) {
+        modifiedCount.increment();
+        var etag = response.getFirstHeader(HttpHeaders.ETAG);
+        var lastModified = response.getFirstHeader(HttpHeaders.LAST_MODIFIED);
+        var key = RequestUtils.keyOf(request);
+        if (etag == null && lastModified == null) {
+            cache.invalidate(key);
+            return;
+        }
+        var weight = (int) Math.min(Integer.MAX_VALUE, Math.max(0, bodyLength) + key.length() * 2L);
+        cache.put(key, new Entry(request.getURI().getPath(), etag != null ? etag.getValue() : null,
+                lastModified != null ? lastModified.getValue() : null, copyOf(value), weight));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long getNotModifiedCount() {
+        return notModifiedCount.sum();
+    }
+
+    public long getModifiedCount() {
+        return modifiedCount.sum();
+    }
+
+    public long getWeightedSize() {
+        cache.cleanUp();
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    private static Object copyOf(Object value) {
+        return value instanceof Object[] ? ((Object[]) value).clone() : value;
+    }
+
+    public static class Entry {
+
+        // Logged in place of the key, which carries the credential digest
+        private final String path;
+        private final String etag;
+        private final String lastModified;
+        private final Object value;
+        private final int weight;
+
+        private Entry(String path, String etag, String lastModified, Object value, int weight) {
+            this.path = path;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.value = value;
+            this.weight = weight;
+        }
+
+        // Each call gets its own copy
+        public Object getValue() {
+            return copyOf(value);
+        }
+
+    }
+
+}
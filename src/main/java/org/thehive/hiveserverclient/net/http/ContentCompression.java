@@ -0,0 +1,140 @@
+package org.thehive.hiveserverclient.net.http;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.entity.DeflateDecompressingEntity;
+import org.apache.http.client.entity.GzipDecompressingEntity;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+// Negotiates gzip/deflate responses, decompresses them while streaming and gzips request bodies above the threshold.
+// Only bodies marked compressible by their client are gzipped, endpoints which don't accept gzip bodies get them as they are.
+// A caller-supplied HttpClient has to be built with disableContentCompression(), the default client negotiates and decodes
+// gzip itself and the wire bytes would be counted after decoding.
+@Slf4j
+@Builder
+public class ContentCompression implements RequestInterceptor, ResponseInterceptor {
+
+    public static final String ACCEPT_ENCODING = "gzip, deflate";
+    public static final int DISABLED = -1;
+    public static final int DEFAULT_REQUEST_COMPRESSION_THRESHOLD = 1024;
+
+    @Builder.Default
+    private final boolean acceptEncoding = true;
+    @Builder.Default
+    private final int requestCompressionThreshold = DEFAULT_REQUEST_COMPRESSION_THRESHOLD;
+    private final LongAdder responseWireBytes = new LongAdder();
+    private final LongAdder responseDecodedBytes = new LongAdder();
+    private final LongAdder requestWireBytes = new LongAdder();
+    private final LongAdder requestRawBytes = new LongAdder();
+
+    public static ContentCompression create() {
+        return ContentCompression.builder().build();
+    }
+
+    public static HttpEntity compressible(@NonNull HttpEntity entity) {
+        return new CompressibleEntity(entity);
+    }
+
+    @Override
+    public void intercept(HttpUriRequest request) throws IOException {
+        if (acceptEncoding && !request.containsHeader(HttpHeaders.ACCEPT_ENCODING))
+            request.setHeader(HttpHeaders.ACCEPT_ENCODING, ACCEPT_ENCODING);
+        if (!(request instanceof HttpEntityEnclosingRequest))
+            return;
+        var enclosingRequest = (HttpEntityEnclosingRequest) request;
+        var entity = enclosingRequest.getEntity();
+        if (entity == null || entity.getContentLength() < 0)
+            return;
+        requestRawBytes.add(entity.getContentLength());
+        if (requestCompressionThreshold == DISABLED || !(entity instanceof CompressibleEntity)
+                || entity.getContentLength() < requestCompressionThreshold
+                || entity.getContentEncoding() != null || !entity.isRepeatable()) {
+            requestWireBytes.add(entity.getContentLength());
+            return;
+        }
+        var compressedEntity = gzip(entity);
+        requestWireBytes.add(compressedEntity.getContentLength());
+        enclosingRequest.setEntity(compressedEntity);
+        log.debug("Request body has been compressed, path: {}, length: {}, compressedLength: {}",
+                request.getURI().getPath(), entity.getContentLength(), compressedEntity.getContentLength());
+    }
+
+    @Override
+    public void intercept(HttpUriRequest request, HttpResponse response) {
+        var entity = response.getEntity();
+        if (entity == null)
+            return;
+        var contentEncoding = entity.getContentEncoding();
+        var encoding = contentEncoding != null ? contentEncoding.getValue().trim().toLowerCase(Locale.ROOT) : "identity";
+        HttpEntity wireEntity = new CountingHttpEntity(entity, responseWireBytes);
+        HttpEntity decodedEntity;
+        switch (encoding) {
+            case "gzip":
+            case "x-gzip":
+                decodedEntity = new GzipDecompressingEntity(wireEntity);
+                break;
+            case "deflate":
+                decodedEntity = new DeflateDecompressingEntity(wireEntity);
+                break;
+            case "identity":
+                response.setEntity(new CountingHttpEntity(entity, responseWireBytes, responseDecodedBytes));
+                return;
+            default:
+                log.warn("Unsupported content encoding, path: {}, encoding: {}", request.getURI().getPath(), encoding);
+                return;
+        }
+        response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+        response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+        response.removeHeaders(HttpHeaders.CONTENT_MD5);
+        response.setEntity(new CountingHttpEntity(decodedEntity, responseDecodedBytes));
+    }
+
+    public long getResponseWireBytes() {
+        return responseWireBytes.sum();
+    }
+
+    public long getResponseDecodedBytes() {
+        return responseDecodedBytes.sum();
+    }
+
+    public long getRequestWireBytes() {
+        return requestWireBytes.sum();
+    }
+
+    public long getRequestRawBytes() {
+        return requestRawBytes.sum();
+    }
+
+    private static HttpEntity gzip(HttpEntity entity) throws IOException {
+        var bos = new ByteArrayOutputStream((int) Math.max(32, entity.getContentLength() / 4));
+        try (var gzip = new GZIPOutputStream(bos)) {
+            entity.writeTo(gzip);
+        }
+        var compressedEntity = new ByteArrayEntity(bos.toByteArray());
+        compressedEntity.setContentType(entity.getContentType());
+        compressedEntity.setContentEncoding("gzip");
+        return compressedEntity;
+    }
+
+    private static class CompressibleEntity extends HttpEntityWrapper {
+
+        private CompressibleEntity(HttpEntity wrappedEntity) {
+            super(wrappedEntity);
+        }
+
+    }
+
+}
@@ -0,0 +1,64 @@
+package org.thehive.hiveserverclient.net.http;
+
+import lombok.NonNull;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts the bytes read from or written by the wrapped entity, optionally adding them to shared totals
+public class CountingHttpEntity extends HttpEntityWrapper {
+
+    private final AtomicLong count;
+    private final LongAdder[] totals;
+
+    public CountingHttpEntity(@NonNull HttpEntity wrappedEntity, @NonNull LongAdder... totals) {
+        super(wrappedEntity);
+        this.count = new AtomicLong();
+        this.totals = totals;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        return new FilterInputStream(super.getContent()) {
+            @Override
+            public int read() throws IOException {
+                var b = super.read();
+                if (b != -1)
+                    add(1);
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                var n = super.read(b, off, len);
+                if (n > 0)
+                    add(n);
+                return n;
+            }
+        };
+    }
+
+    private void add(long n) {
+        count.addAndGet(n);
+        for (var total : totals)
+            total.add(n);
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        try (var content = getContent()) {
+            content.transferTo(outStream);
+        }
+    }
+
+}
@@ -0,0 +1,13 @@
+package org.thehive.hiveserverclient.net.http;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.thehive.hiveserverclient.model.Error;
+
+import java.io.IOException;
+
+public interface ErrorMapper {
+
+    Error map(HttpUriRequest request, HttpResponse response) throws IOException;
+
+}
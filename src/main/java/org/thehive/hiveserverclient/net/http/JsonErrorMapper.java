@@ -0,0 +1,30 @@
+package org.thehive.hiveserverclient.net.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.NonNull;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.thehive.hiveserverclient.model.Error;
+
+import java.io.IOException;
+
+public class JsonErrorMapper implements ErrorMapper {
+
+    private final ResponseDecoder<Error> errorDecoder;
+
+    public JsonErrorMapper(@NonNull ObjectMapper objectMapper) {
+        this.errorDecoder = JsonResponseDecoder.of(objectMapper, Error.class);
+    }
+
+    @Override
+    public Error map(@NonNull HttpUriRequest request, @NonNull HttpResponse response) throws IOException {
+        var entity = response.getEntity();
+        if (entity != null && entity.getContentLength() != 0L)
+            return errorDecoder.decode(response);
+        // Server didn't describe the error, so it is composed from the status line
+        var statusLine = response.getStatusLine();
+        return new Error(System.currentTimeMillis(), statusLine.getStatusCode(), statusLine.getReasonPhrase(),
+                null, statusLine.getReasonPhrase(), request.getURI().getPath(), request.getMethod());
+    }
+
+}
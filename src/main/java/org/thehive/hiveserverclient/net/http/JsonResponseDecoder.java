@@ -0,0 +1,57 @@
+package org.thehive.hiveserverclient.net.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+@Slf4j
+public class JsonResponseDecoder<T> implements ResponseDecoder<T> {
+
+    private final ObjectReader reader;
+    private final T emptyValue;
+
+    public JsonResponseDecoder(@NonNull ObjectReader reader, @Nullable T emptyValue) {
+        this.reader = reader;
+        this.emptyValue = emptyValue;
+    }
+
+    public JsonResponseDecoder(@NonNull ObjectReader reader) {
+        this(reader, null);
+    }
+
+    public static <T> JsonResponseDecoder<T> of(@NonNull ObjectMapper objectMapper, @NonNull Class<T> type) {
+        return new JsonResponseDecoder<>(objectMapper.readerFor(type));
+    }
+
+    public static <T> JsonResponseDecoder<T> of(@NonNull ObjectMapper objectMapper, @NonNull Class<T> type, @NonNull T emptyValue) {
+        return new JsonResponseDecoder<>(objectMapper.readerFor(type), emptyValue);
+    }
+
+    // Body is buffered only to be logged, otherwise it is decoded straight from the entity stream
+    @Override
+    public T decode(@NonNull HttpResponse response) throws IOException {
+        var entity = response.getEntity();
+        if (emptyValue != null && (entity == null || entity.getContentLength() == 0L)) {
+            log.debug("Response body: [EMPTY]");
+            return emptyValue;
+        }
+        if (entity == null)
+            throw new IOException("Response doesn't have a body");
+        if (log.isDebugEnabled()) {
+            var body = EntityUtils.toByteArray(entity);
+            log.debug("Response body: {}", new String(body, StandardCharsets.UTF_8));
+            return reader.readValue(body);
+        }
+        try (var content = entity.getContent()) {
+            return reader.readValue(content);
+        }
+    }
+
+}
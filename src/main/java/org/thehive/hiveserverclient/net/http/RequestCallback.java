@@ -6,6 +6,11 @@ public interface RequestCallback<R> {
 
     void onResponse(R responseBody);
 
+    // Server answered 304, the body is the one received last time for the same request
+    default void onNotModified(R responseBody) {
+        onResponse(responseBody);
+    }
+
     void onError(Error error);
 
     void onFail(Throwable t);
@@ -0,0 +1,125 @@
+package org.thehive.hiveserverclient.net.http;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.thehive.hiveserverclient.model.Error;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Concurrent identical GET requests share one network call
+@Slf4j
+public class RequestCoalescer {
+
+    private final ConcurrentMap<String, Flight> flights;
+    private final LongAdder requestCount;
+    private final LongAdder deduplicatedCount;
+
+    public RequestCoalescer() {
+        this.flights = new ConcurrentHashMap<>();
+        this.requestCount = new LongAdder();
+        this.deduplicatedCount = new LongAdder();
+    }
+
+    public boolean isCoalescable(@NonNull HttpUriRequest request) {
+        return HttpGet.METHOD_NAME.equals(request.getMethod());
+    }
+
+    // Returns the callback that completes the shared call when the caller leads it, null when it joined one in flight
+    @SuppressWarnings("unchecked")
+    public <T> RequestCallback<T> join(@NonNull HttpUriRequest request, @NonNull RequestCallback<? super T> callback) {
+        requestCount.increment();
+        var key = RequestUtils.keyOf(request);
+        while (true) {
+            var created = new Flight(key);
+            var flight = flights.putIfAbsent(key, created);
+            if (flight == null) {
+                created.add(callback);
+                return (RequestCallback<T>) created;
+            }
+            if (flight.add(callback)) {
+                deduplicatedCount.increment();
+                log.debug("Request has joined the one in flight, method: {}, path: {}", request.getMethod(), request.getURI().getPath());
+                return null;
+            }
+            flights.remove(key, flight);
+        }
+    }
+
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    public long getDeduplicatedCount() {
+        return deduplicatedCount.sum();
+    }
+
+    public int getInFlightCount() {
+        return flights.size();
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private class Flight implements RequestCallback {
+
+        private final String key;
+        private final List<RequestCallback> callbacks;
+        private boolean completed;
+
+        private Flight(String key) {
+            this.key = key;
+            this.callbacks = new ArrayList<>(1);
+            this.completed = false;
+        }
+
+        private synchronized boolean add(RequestCallback<?> callback) {
+            if (completed)
+                return false;
+            callbacks.add(callback);
+            return true;
+        }
+
+        private void complete(Consumer<RequestCallback> invocation) {
+            List<RequestCallback> completedCallbacks;
+            synchronized (this) {
+                completed = true;
+                completedCallbacks = callbacks;
+            }
+            flights.remove(key, this);
+            for (var callback : completedCallbacks) {
+                try {
+                    invocation.accept(callback);
+                } catch (Exception e) {
+                    log.warn("Error while executing request callback", e);
+                }
+            }
+        }
+
+        @Override
+        public void onResponse(Object responseBody) {
+            complete(callback -> callback.onResponse(responseBody));
+        }
+
+        @Override
+        public void onNotModified(Object responseBody) {
+            complete(callback -> callback.onNotModified(responseBody));
+        }
+
+        @Override
+        public void onError(Error error) {
+            complete(callback -> callback.onError(error));
+        }
+
+        @Override
+        public void onFail(Throwable t) {
+            complete(callback -> callback.onFail(t));
+        }
+
+    }
+
+}
@@ -0,0 +1,9 @@
+package org.thehive.hiveserverclient.net.http;
+
+import org.apache.http.client.methods.HttpUriRequest;
+
+public interface RequestInterceptor {
+
+    void intercept(HttpUriRequest request) throws Exception;
+
+}
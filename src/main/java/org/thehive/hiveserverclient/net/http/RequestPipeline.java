@@ -0,0 +1,157 @@
+package org.thehive.hiveserverclient.net.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Singular;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpUriRequest;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+// Coalescing -> interceptors -> transport -> response interceptors -> decode or error mapping -> callback dispatch
+@Slf4j
+@Builder
+public class RequestPipeline {
+
+    @NonNull
+    private final HttpTransport transport;
+    @Singular
+    private final List<RequestInterceptor> requestInterceptors;
+    @Singular
+    private final List<ResponseInterceptor> responseInterceptors;
+    @NonNull
+    @Builder.Default
+    private final ErrorMapper errorMapper = new JsonErrorMapper(new ObjectMapper());
+    @NonNull
+    @Builder.Default
+    private final Executor callbackExecutor = Runnable::run;
+    private final RequestCoalescer coalescer;
+    private final ConditionalResponseCache responseCache;
+
+    public static RequestPipeline of(@NonNull HttpTransport transport) {
+        return RequestPipeline.builder().transport(transport).build();
+    }
+
+    public <T> void execute(@NonNull HttpUriRequest request, @NonNull ResponseDecoder<? extends T> decoder,
+                            @NonNull RequestCallback<? super T> callback) {
+        execute(request, decoder, callback, false);
+    }
+
+    // Revalidates the previously received body with the server instead of downloading it again when it is unchanged
+    public <T> void executeConditional(@NonNull HttpUriRequest request, @NonNull ResponseDecoder<? extends T> decoder,
+                                       @NonNull RequestCallback<? super T> callback) {
+        execute(request, decoder, callback, responseCache != null);
+    }
+
+    private <T> void execute(HttpUriRequest request, ResponseDecoder<? extends T> decoder,
+                             RequestCallback<? super T> callback, boolean conditional) {
+        if (coalescer != null && coalescer.isCoalescable(request)) {
+            RequestCallback<T> flightCallback = coalescer.join(request, callback);
+            if (flightCallback != null)
+                send(request, decoder, flightCallback, conditional);
+        } else
+            send(request, decoder, callback, conditional);
+    }
+
+    private <T> void send(HttpUriRequest request, ResponseDecoder<? extends T> decoder,
+                          RequestCallback<? super T> callback, boolean conditional) {
+        ConditionalResponseCache.Entry cachedEntry;
+        try {
+            for (var interceptor : requestInterceptors)
+                interceptor.intercept(request);
+            cachedEntry = conditional ? responseCache.prepare(request) : null;
+        } catch (Exception e) {
+            dispatchFail(callback, e);
+            return;
+        }
+        log.debug("Request is being sent, path: {}, method: {}", request.getURI().getPath(), request.getMethod());
+        var listener = new ResponseListener() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public void onResponse(HttpResponse response) {
+                try {
+                    for (var interceptor : responseInterceptors)
+                        interceptor.intercept(request, response);
+                    var statusCode = response.getStatusLine().getStatusCode();
+                    log.debug("Response has been received, path: {}, method: {}, statusCode: {}", request.getURI().getPath(), request.getMethod(), statusCode);
+                    if (statusCode == HttpStatus.SC_NOT_MODIFIED && cachedEntry != null) {
+                        responseCache.notModified(cachedEntry);
+                        var body = (T) cachedEntry.getValue();
+                        dispatch(() -> {
+                            log.debug("Executing callback onNotModified, path: {}", request.getURI().getPath());
+                            callback.onNotModified(body);
+                        });
+                    } else if (statusCode / 100 == 2) {
+                        T body;
+                        if (conditional && response.getEntity() != null) {
+                            var countingEntity = new CountingHttpEntity(response.getEntity());
+                            response.setEntity(countingEntity);
+                            body = decoder.decode(response);
+                            responseCache.store(request, response, body, countingEntity.getCount());
+                        } else
+                            body = decoder.decode(response);
+                        dispatchResponse(callback, body);
+                    } else {
+                        var error = errorMapper.map(request, response);
+                        dispatch(() -> {
+                            log.debug("Executing callback onError, error: {}", error);
+                            callback.onError(error);
+                        });
+                    }
+                } catch (Exception e) {
+                    onFail(e);
+                }
+            }
+
+            @Override
+            public void onFail(Exception e) {
+                dispatchFail(callback, e);
+            }
+
+            private void dispatchResponse(RequestCallback<? super T> callback, T body) {
+                dispatch(() -> {
+                    log.debug("Executing callback onResponse, path: {}", request.getURI().getPath());
+                    callback.onResponse(body);
+                });
+            }
+        };
+        // Transport which can't take the request anymore fails the callback, so a coalesced flight is completed too
+        try {
+            transport.execute(request, listener);
+        } catch (RuntimeException e) {
+            log.warn("Request couldn't be handed to the transport, path: {}, method: {}", request.getURI().getPath(), request.getMethod(), e);
+            dispatchFail(callback, e);
+        }
+    }
+
+    private void dispatchFail(RequestCallback<?> callback, Exception e) {
+        dispatch(() -> {
+            log.debug("Executing callback onFail, exception: {}", e.getClass().getName());
+            callback.onFail(e);
+        });
+    }
+
+    private void dispatch(Runnable invocation) {
+        callbackExecutor.execute(() -> {
+            try {
+                invocation.run();
+            } catch (Exception e) {
+                log.warn("Error while executing request callback", e);
+            }
+        });
+    }
+
+    public static class RequestPipelineBuilder {
+
+        public RequestPipelineBuilder compression(@NonNull ContentCompression compression) {
+            requestInterceptor(compression);
+            return responseInterceptor(compression);
+        }
+
+    }
+
+}
@@ -2,13 +2,19 @@ package org.thehive.hiveserverclient.net.http;
 
 import lombok.NonNull;
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
-import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
 
-import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 
 public class RequestUtils {
 
@@ -26,16 +32,16 @@ public class RequestUtils {
         return req;
     }
 
-    public static HttpPost postRequestOf(@NonNull String url, @NonNull String bodyJson, @NonNull Header... headers) {
+    public static HttpPost postRequestOf(@NonNull String url, @NonNull byte[] bodyJson, @NonNull Header... headers) {
         var req = postRequestOf(url, headers);
-        var entityBody = new BasicHttpEntity();
-        entityBody.setContent(new ByteArrayInputStream(bodyJson.getBytes()));
-        entityBody.setContentLength(bodyJson.length());
-        entityBody.setContentType(ContentType.APPLICATION_JSON.getMimeType());
-        req.setEntity(entityBody);
+        req.setEntity(jsonEntityOf(bodyJson));
         return req;
     }
 
+    public static HttpPost postRequestOf(@NonNull String url, @NonNull String bodyJson, @NonNull Header... headers) {
+        return postRequestOf(url, bodyJson.getBytes(StandardCharsets.UTF_8), headers);
+    }
+
     public static HttpPut putRequestOf(@NonNull String url, @NonNull Header... headers) {
         var req = new HttpPut(url);
         for (var header : headers)
@@ -43,16 +49,36 @@ public class RequestUtils {
         return req;
     }
 
-    public static HttpPut putRequestOf(@NonNull String url, @NonNull String bodyJson, @NonNull Header... headers) {
+    public static HttpPut putRequestOf(@NonNull String url, @NonNull byte[] bodyJson, @NonNull Header... headers) {
         var req = putRequestOf(url, headers);
-        var entityBody = new BasicHttpEntity();
-        entityBody.setContent(new ByteArrayInputStream(bodyJson.getBytes()));
-        entityBody.setContentLength(bodyJson.length());
-        entityBody.setContentType(ContentType.APPLICATION_JSON.getMimeType());
-        req.setEntity(entityBody);
+        req.setEntity(jsonEntityOf(bodyJson));
         return req;
     }
 
+    public static HttpPut putRequestOf(@NonNull String url, @NonNull String bodyJson, @NonNull Header... headers) {
+        return putRequestOf(url, bodyJson.getBytes(StandardCharsets.UTF_8), headers);
+    }
+
+    // Content length is the byte count of the UTF-8 encoded body
+    public static HttpEntity jsonEntityOf(@NonNull byte[] bodyJson) {
+        return new ByteArrayEntity(bodyJson, ContentType.APPLICATION_JSON);
+    }
+
+    // Identity of a request for sharing responses, responses differ per user so a digest of the credential is part of it
+    public static String keyOf(@NonNull HttpUriRequest request) {
+        var authorization = request.getFirstHeader(HttpHeaders.AUTHORIZATION);
+        return request.getMethod() + ' ' + request.getURI() + ' ' + (authorization != null ? digestOf(authorization.getValue()) : "");
+    }
+
+    private static String digestOf(String value) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 isn't available", e);
+        }
+    }
+
     public static String concatUrlPath(@NonNull String baseUrl, Object... vars) {
         var result = baseUrl;
         for (var var : vars)
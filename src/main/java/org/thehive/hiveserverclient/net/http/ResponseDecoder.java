@@ -0,0 +1,11 @@
+package org.thehive.hiveserverclient.net.http;
+
+import org.apache.http.HttpResponse;
+
+import java.io.IOException;
+
+public interface ResponseDecoder<T> {
+
+    T decode(HttpResponse response) throws IOException;
+
+}
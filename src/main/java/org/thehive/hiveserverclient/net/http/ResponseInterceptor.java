@@ -0,0 +1,10 @@
+package org.thehive.hiveserverclient.net.http;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+
+public interface ResponseInterceptor {
+
+    void intercept(HttpUriRequest request, HttpResponse response) throws Exception;
+
+}
@@ -0,0 +1,11 @@
+package org.thehive.hiveserverclient.net.http;
+
+import org.apache.http.HttpResponse;
+
+public interface ResponseListener {
+
+    void onResponse(HttpResponse response);
+
+    void onFail(Exception e);
+
+}
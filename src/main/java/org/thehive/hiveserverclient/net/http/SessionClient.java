@@ -7,6 +7,11 @@ public interface SessionClient {
 
     void getAllSessions(RequestCallback<? super Session[]> callback, Header... headers);
 
+    // Clients without the incremental query answer with the full listing, which callers can tell by the sessions already seen
+    default void getSessionsSince(long creationTime, int id, RequestCallback<? super Session[]> callback, Header... headers) {
+        getAllSessions(callback, headers);
+    }
+
     void getLiveSession(String liveId, RequestCallback<? super Session> callback, Header... headers);
 
     void save(Session session, RequestCallback<? super Session> callback, Header... headers);
@@ -2,13 +2,9 @@ package org.thehive.hiveserverclient.net.http;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.Header;
-import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.util.EntityUtils;
-import org.thehive.hiveserverclient.model.Error;
 import org.thehive.hiveserverclient.model.Session;
 
 import java.util.concurrent.ExecutorService;
@@ -16,41 +12,36 @@ import java.util.concurrent.ExecutorService;
 @Slf4j
 public class SessionClientImpl extends AppHttpClient implements SessionClient {
 
+    private final ResponseDecoder<Session[]> sessionsDecoder = JsonResponseDecoder.of(objectMapper, Session[].class);
+    private final ResponseDecoder<Session> sessionDecoder = JsonResponseDecoder.of(objectMapper, Session.class);
+
     public SessionClientImpl(String url, ObjectMapper objectMapper, CloseableHttpClient httpClient, ExecutorService executorService) {
         super(url, objectMapper, httpClient, executorService);
     }
 
+    public SessionClientImpl(String url, ObjectMapper objectMapper, HttpTransport transport) {
+        super(url, objectMapper, transport);
+    }
+
+    public SessionClientImpl(String url, ObjectMapper objectMapper, RequestPipeline pipeline) {
+        super(url, objectMapper, pipeline);
+    }
+
     @Override
     public void getAllSessions(RequestCallback<? super Session[]> callback, Header... headers) {
         var req = RequestUtils.getRequestOf(url, headers);
         log.debug("#getAllSessions uri: {}", req.getURI());
-        executorService.execute(() -> {
-            log.debug("Request is being sent, path: {}, method: {}", req.getURI().getPath(), req.getMethod());
-            boolean executeCallbackFail = true;
-            try {
-                try (var response = httpClient.execute(req)) {
-                    var statusCode = response.getStatusLine().getStatusCode();
-                    var responseBody = EntityUtils.toString(response.getEntity());
-                    log.debug("Response has been received, path: {}, method: {}, statusCode: {}, body: {}", req.getURI().getPath(), req.getMethod(), statusCode, responseBody);
-                    executeCallbackFail = false;
-                    if (statusCode / 100 == 2) {
-                        var sessions = objectMapper.readValue(responseBody, Session[].class);
-                        log.debug("Executing callback onResponse, sessionsLength: {}", sessions.length);
-                        callback.onResponse(sessions);
-                    } else {
-                        var error = objectMapper.readValue(responseBody, Error.class);
-                        log.debug("Executing callback onError, error: {}", error);
-                        callback.onError(error);
-                    }
-                }
-            } catch (Exception e) {
-                if (executeCallbackFail) {
-                    log.debug("Executing callback onFail, exception: {}", e.getClass().getName());
-                    callback.onFail(e);
-                } else
-                    log.warn("Error while http request", e);
-            }
-        });
+        pipeline.executeConditional(req, sessionsDecoder, callback);
+    }
+
+    // Sessions created after the given one, ordered by creation time and id
+    @Override
+    public void getSessionsSince(long creationTime, int id, RequestCallback<? super Session[]> callback, Header... headers) {
+        var reqUrl = url + "?since=" + creationTime + "&afterId=" + id;
+        var req = RequestUtils.getRequestOf(reqUrl, headers);
+        log.debug("#getSessionsSince uri: {}", req.getURI());
+        // One-off urls aren't revalidated, they would only push the full listing out of the conditional cache
+        pipeline.execute(req, sessionsDecoder, callback);
     }
 
     @Override
@@ -58,51 +49,22 @@ public class SessionClientImpl extends AppHttpClient implements SessionClient {
         var reqUrl = RequestUtils.concatUrlPath(url, liveId);
         var req = RequestUtils.getRequestOf(reqUrl, headers);
         log.debug("#getLiveSession uri: {}", req.getURI());
-        executeRequest(req, callback);
+        pipeline.execute(req, sessionDecoder, callback);
     }
 
     @Override
     public void save(Session session, RequestCallback<? super Session> callback, Header... headers) {
-        String sessionStr;
+        byte[] body;
         try {
-            sessionStr = objectMapper.writeValueAsString(session);
+            body = objectMapper.writeValueAsBytes(session);
         } catch (JsonProcessingException e) {
-            e.printStackTrace();
+            log.warn("Error while serializing request body", e);
+            callback.onFail(e);
             return;
         }
-        var req = RequestUtils.postRequestOf(url, sessionStr, headers);
-        log.debug("#save uri: {}, body: {}", req.getURI(), sessionStr);
-        executeRequest(req, callback);
-    }
-
-    private void executeRequest(@NonNull HttpRequestBase req, @NonNull RequestCallback<? super Session> callback) {
-        executorService.execute(() -> {
-            log.debug("Request is being sent, path: {}, method: {}", req.getURI().getPath(), req.getMethod());
-            boolean executeCallbackFail = true;
-            try {
-                try (var response = httpClient.execute(req)) {
-                    var statusCode = response.getStatusLine().getStatusCode();
-                    var responseBody = EntityUtils.toString(response.getEntity());
-                    log.debug("Response has been received, path: {}, method: {}, statusCode: {}, body: {}", req.getURI().getPath(), req.getMethod(), statusCode, responseBody);
-                    executeCallbackFail = false;
-                    if (statusCode / 100 == 2) {
-                        var session = objectMapper.readValue(responseBody, Session.class);
-                        log.debug("Executing callback onResponse, session: {}", session);
-                        callback.onResponse(session);
-                    } else {
-                        var error = objectMapper.readValue(responseBody, Error.class);
-                        log.debug("Executing callback onError, error: {}", error);
-                        callback.onError(error);
-                    }
-                }
-            } catch (Exception e) {
-                if (executeCallbackFail) {
-                    log.debug("Executing callback onFail, exception: {}", e.getClass().getName());
-                    callback.onFail(e);
-                } else
-                    log.warn("Error while http request", e);
-            }
-        });
+        var req = RequestUtils.postRequestOf(url, body, headers);
+        log.debug("#save uri: {}, bodyLength: {}", req.getURI(), body.length);
+        pipeline.execute(req, sessionDecoder, callback);
     }
 
 }
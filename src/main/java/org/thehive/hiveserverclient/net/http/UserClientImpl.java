@@ -2,13 +2,9 @@ package org.thehive.hiveserverclient.net.http;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.Header;
-import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.util.EntityUtils;
-import org.thehive.hiveserverclient.model.Error;
 import org.thehive.hiveserverclient.model.User;
 
 import java.util.concurrent.ExecutorService;
@@ -16,15 +12,25 @@ import java.util.concurrent.ExecutorService;
 @Slf4j
 public class UserClientImpl extends AppHttpClient implements UserClient {
 
+    private final ResponseDecoder<User> userDecoder = JsonResponseDecoder.of(objectMapper, User.class);
+
     public UserClientImpl(String url, ObjectMapper objectMapper, CloseableHttpClient httpClient, ExecutorService executorService) {
         super(url, objectMapper, httpClient, executorService);
     }
 
+    public UserClientImpl(String url, ObjectMapper objectMapper, HttpTransport transport) {
+        super(url, objectMapper, transport);
+    }
+
+    public UserClientImpl(String url, ObjectMapper objectMapper, RequestPipeline pipeline) {
+        super(url, objectMapper, pipeline);
+    }
+
     @Override
     public void get(RequestCallback<? super User> callback, Header... headers) {
         var req = RequestUtils.getRequestOf(url, headers);
         log.debug("#get uri: {}", req.getURI());
-        executeRequest(req, callback);
+        pipeline.execute(req, userDecoder, callback);
     }
 
     @Override
@@ -32,66 +38,39 @@ public class UserClientImpl extends AppHttpClient implements UserClient {
         var reqUrl = RequestUtils.concatUrlPath(url, id);
         var req = RequestUtils.getRequestOf(reqUrl, headers);
         log.debug("#get uri: {}", req.getURI());
-        executeRequest(req, callback);
+        pipeline.execute(req, userDecoder, callback);
     }
 
     @Override
     public void save(User user, RequestCallback<? super User> callback, Header... headers) {
-        String userStr;
+        byte[] body;
         try {
-            userStr = objectMapper.writeValueAsString(user);
+            body = objectMapper.writeValueAsBytes(user);
         } catch (JsonProcessingException e) {
-            e.printStackTrace();
+            log.warn("Error while serializing request body", e);
+            callback.onFail(e);
             return;
         }
-        var req = RequestUtils.postRequestOf(url, userStr, headers);
-        log.debug("#save uri: {}", req.getURI());
-        executeRequest(req, callback);
+        var req = RequestUtils.postRequestOf(url, body, headers);
+        log.debug("#save uri: {}, bodyLength: {}", req.getURI(), body.length);
+        pipeline.execute(req, userDecoder, callback);
     }
 
     @Override
     public void update(int id, User user, RequestCallback<? super User> callback, Header... headers) {
-        String userStr;
+        byte[] body;
         try {
-            userStr = objectMapper.writeValueAsString(user);
+            body = objectMapper.writeValueAsBytes(user);
         } catch (JsonProcessingException e) {
-            e.printStackTrace();
+            log.warn("Error while serializing request body", e);
+            callback.onFail(e);
             return;
         }
         var reqUrl = RequestUtils.concatUrlPath(url, id);
-        var req = RequestUtils.putRequestOf(reqUrl, userStr, headers);
-        log.debug("#update uri: {}, body: {}", req.getURI(), userStr);
-        executeRequest(req, callback);
-    }
-
-    private void executeRequest(@NonNull HttpRequestBase req, @NonNull RequestCallback<? super User> callback) {
-        executorService.execute(() -> {
-            log.debug("Request is being sent, path: {}, method: {}", req.getURI().getPath(), req.getMethod());
-            var executeCallbackFail = true;
-            try {
-                try (var response = httpClient.execute(req)) {
-                    var statusCode = response.getStatusLine().getStatusCode();
-                    var responseBody = EntityUtils.toString(response.getEntity());
-                    log.debug("Response has been received, path: {}, method: {}, statusCode: {}, body: {}", req.getURI().getPath(), req.getMethod(), statusCode, responseBody);
-                    executeCallbackFail = false;
-                    if (statusCode / 100 == 2) {
-                        var user = objectMapper.readValue(responseBody, User.class);
-                        log.debug("Executing callback onResponse, user: {}", user);
-                        callback.onResponse(user);
-                    } else {
-                        var error = objectMapper.readValue(responseBody, Error.class);
-                        log.debug("Executing callback onError, error: {}", error);
-                        callback.onError(error);
-                    }
-                }
-            } catch (Exception e) {
-                if (executeCallbackFail) {
-                    log.debug("Executing callback onFail, exception: {}", e.getClass().getName());
-                    callback.onFail(e);
-                } else
-                    log.warn("Error while http request", e);
-            }
-        });
+        var req = RequestUtils.putRequestOf(reqUrl, body, headers);
+        req.setEntity(ContentCompression.compressible(req.getEntity()));
+        log.debug("#update uri: {}, bodyLength: {}", req.getURI(), body.length);
+        pipeline.execute(req, userDecoder, callback);
     }
 
 }
@@ -0,0 +1,71 @@
+package org.thehive.hiveserverclient.net.websocket;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Every code broadcast carries the whole text, so only the latest pending update of each broadcaster
+// is handed over once per frame and the older ones are skipped
+@Slf4j
+public class CodeBroadcastCoalescer<T> implements AutoCloseable {
+
+    private final ConcurrentMap<String, T> pending;
+    private final Consumer<T> sink;
+    private final ScheduledFuture<?> flushTask;
+    private final LongAdder offeredCount;
+    private final LongAdder flushedCount;
+
+    public CodeBroadcastCoalescer(@NonNull ScheduledExecutorService scheduler, int frameRate, @NonNull Consumer<T> sink) {
+        if (frameRate < 1)
+            throw new IllegalArgumentException("Frame rate must be positive, frameRate: " + frameRate);
+        this.pending = new ConcurrentHashMap<>();
+        this.sink = sink;
+        this.offeredCount = new LongAdder();
+        this.flushedCount = new LongAdder();
+        var periodNanos = TimeUnit.SECONDS.toNanos(1L) / frameRate;
+        this.flushTask = scheduler.scheduleAtFixedRate(this::flush, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void offer(String broadcaster, @NonNull T update) {
+        pending.put(broadcaster != null ? broadcaster : "", update);
+        offeredCount.increment();
+    }
+
+    public long getOfferedCount() {
+        return offeredCount.sum();
+    }
+
+    public long getFlushedCount() {
+        return flushedCount.sum();
+    }
+
+    // Pending updates are discarded
+    @Override
+    public void close() {
+        flushTask.cancel(false);
+        pending.clear();
+    }
+
+    void flush() {
+        for (var broadcaster : pending.keySet()) {
+            var update = pending.remove(broadcaster);
+            if (update == null)
+                continue;
+            flushedCount.increment();
+            try {
+                sink.accept(update);
+            } catch (Exception e) {
+                // Exception would cancel the periodic flush
+                log.warn("Error while flushing code broadcast, broadcaster: {}", broadcaster, e);
+            }
+        }
+    }
+
+}
@@ -4,6 +4,8 @@ public enum ConnectionStatus {
 
     CONNECTING,
     CONNECTED,
+    RECONNECTING,
+    DISCONNECTING,
     DISCONNECTED
 
 }
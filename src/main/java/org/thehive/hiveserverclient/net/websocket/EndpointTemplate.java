@@ -0,0 +1,67 @@
+package org.thehive.hiveserverclient.net.websocket;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+// Endpoint split around its id placeholders once, expansions are cached by id
+final class EndpointTemplate {
+
+    static final String ID_PLACEHOLDER = "{id}";
+
+    private static final Pattern ID_PLACEHOLDER_PATTERN = Pattern.compile(Pattern.quote(ID_PLACEHOLDER));
+
+    private final String template;
+    // Null when the endpoint doesn't depend on the id
+    private final String[] segments;
+    private final Cache<String, String> cache;
+    private final Function<String, String> expansion;
+
+    private EndpointTemplate(String template, String[] segments, int cacheCapacity) {
+        this.template = template;
+        this.segments = segments;
+        this.cache = segments != null ? Caffeine.newBuilder().maximumSize(cacheCapacity).build() : null;
+        this.expansion = this::expand;
+    }
+
+    // Template without a placeholder gets the id appended as its last path segment when appendId is set
+    static EndpointTemplate compile(String template, boolean appendId, int cacheCapacity) {
+        if (template.contains(ID_PLACEHOLDER))
+            return new EndpointTemplate(template, ID_PLACEHOLDER_PATTERN.split(template, -1), cacheCapacity);
+        if (appendId)
+            return new EndpointTemplate(template, new String[]{template.endsWith("/") ? template : template + "/", ""}, cacheCapacity);
+        return new EndpointTemplate(template, null, cacheCapacity);
+    }
+
+    String resolve(String id) {
+        if (segments == null)
+            return template;
+        return cache.get(id, expansion);
+    }
+
+    String getTemplate() {
+        return template;
+    }
+
+    long cachedCount() {
+        if (cache == null)
+            return 0L;
+        // Eviction runs asynchronously
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private String expand(String id) {
+        var length = id.length() * (segments.length - 1);
+        for (var segment : segments)
+            length += segment.length();
+        var sb = new StringBuilder(length);
+        sb.append(segments[0]);
+        for (var i = 1; i < segments.length; i++)
+            sb.append(id).append(segments[i]);
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,90 @@
+package org.thehive.hiveserverclient.net.websocket;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Outbound queue statistics of every subscription created by a client
+public class OutboundQueueMetrics {
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final LongAdder enqueuedCount = new LongAdder();
+    private final LongAdder drainedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+    private final LongAdder blockedCount = new LongAdder();
+    private final LongAdder blockTimeoutCount = new LongAdder();
+
+    void enqueued() {
+        enqueuedCount.increment();
+        queueDepth.incrementAndGet();
+    }
+
+    void drained() {
+        drainedCount.increment();
+        queueDepth.decrementAndGet();
+    }
+
+    void dropped() {
+        droppedCount.increment();
+        queueDepth.decrementAndGet();
+    }
+
+    // Replaced payload was already counted by the queue depth
+    void coalesced() {
+        coalescedCount.increment();
+    }
+
+    void blocked() {
+        blockedCount.increment();
+    }
+
+    void blockTimedOut() {
+        blockTimeoutCount.increment();
+    }
+
+    void discarded(int count) {
+        queueDepth.addAndGet(-count);
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public long getEnqueuedCount() {
+        return enqueuedCount.sum();
+    }
+
+    public long getDrainedCount() {
+        return drainedCount.sum();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    public long getBlockedCount() {
+        return blockedCount.sum();
+    }
+
+    public long getBlockTimeoutCount() {
+        return blockTimeoutCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "OutboundQueueMetrics{" +
+                "queueDepth=" + getQueueDepth() +
+                ", enqueuedCount=" + getEnqueuedCount() +
+                ", drainedCount=" + getDrainedCount() +
+                ", droppedCount=" + getDroppedCount() +
+                ", coalescedCount=" + getCoalescedCount() +
+                ", blockedCount=" + getBlockedCount() +
+                ", blockTimeoutCount=" + getBlockTimeoutCount() +
+                '}';
+    }
+
+}
@@ -0,0 +1,13 @@
+package org.thehive.hiveserverclient.net.websocket;
+
+// What a full outbound queue does with a new payload
+public enum OutboundQueuePolicy {
+
+    // Sender waits until the queue has room, nothing is dropped
+    BLOCK,
+    // Oldest droppable payload is discarded to make room
+    DROP_OLDEST,
+    // Queued payload of the same type is replaced, only the latest state is sent
+    COALESCE_LATEST
+
+}
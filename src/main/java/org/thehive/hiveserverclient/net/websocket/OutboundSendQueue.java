@@ -0,0 +1,201 @@
+package org.thehive.hiveserverclient.net.websocket;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadType;
+import org.thehive.hiveserverclient.payload.Payload;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Bounded queue of a subscription's outgoing payloads, drained by a single task on the executor
+@Slf4j
+class OutboundSendQueue {
+
+    // Payloads sent in one drain task before it yields the thread to other subscriptions
+    static final int DRAIN_BATCH_SIZE = 16;
+
+    private final int capacity;
+    private final Function<PayloadType, OutboundQueuePolicy> policyResolver;
+    private final long blockTimeoutNanos;
+    private final Executor executor;
+    private final Consumer<Payload> sender;
+    private final Consumer<Throwable> exceptionHandler;
+    private final OutboundQueueMetrics metrics;
+    private final ReentrantLock lock;
+    private final Condition notFull;
+    // Guarded by lock
+    private final ArrayDeque<Entry> queue;
+    private final Map<PayloadType, Entry> latestByType;
+    private boolean draining;
+    private boolean closed;
+
+    OutboundSendQueue(int capacity, @NonNull Function<PayloadType, OutboundQueuePolicy> policyResolver, @NonNull Duration blockTimeout,
+                      @NonNull Executor executor, @NonNull Consumer<Payload> sender, @NonNull Consumer<Throwable> exceptionHandler,
+                      @NonNull OutboundQueueMetrics metrics) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be positive, capacity: " + capacity);
+        if (blockTimeout.isNegative() || blockTimeout.isZero())
+            throw new IllegalArgumentException("Block timeout must be positive, blockTimeout: " + blockTimeout);
+        this.capacity = capacity;
+        this.policyResolver = policyResolver;
+        this.blockTimeoutNanos = blockTimeout.toNanos();
+        this.executor = executor;
+        this.sender = sender;
+        this.exceptionHandler = exceptionHandler;
+        this.metrics = metrics;
+        this.lock = new ReentrantLock();
+        this.notFull = lock.newCondition();
+        this.queue = new ArrayDeque<>(capacity);
+        this.latestByType = new EnumMap<>(PayloadType.class);
+    }
+
+    void offer(@NonNull Payload payload) {
+        var payloadType = PayloadType.byType(payload.getClass());
+        var policy = policyResolver.apply(payloadType);
+        var schedule = false;
+        lock.lock();
+        try {
+            if (closed)
+                throw new IllegalStateException("Outbound queue is closed");
+            if (policy == OutboundQueuePolicy.COALESCE_LATEST) {
+                var queued = latestByType.get(payloadType);
+                if (queued != null) {
+                    queued.payload = payload;
+                    metrics.coalesced();
+                    return;
+                }
+            }
+            // Wait is bounded, a sender on the executor's own threads could otherwise wait for a drain which never gets a thread
+            var remainingNanos = blockTimeoutNanos;
+            while (queue.size() >= capacity) {
+                if (policy != OutboundQueuePolicy.BLOCK && dropOldest())
+                    break;
+                if (remainingNanos <= 0) {
+                    metrics.blockTimedOut();
+                    throw new IllegalStateException("Outbound queue is still full after waiting, capacity: " + capacity
+                            + ", timeoutMs: " + TimeUnit.NANOSECONDS.toMillis(blockTimeoutNanos));
+                }
+                metrics.blocked();
+                remainingNanos = notFull.awaitNanos(remainingNanos);
+                if (closed)
+                    throw new IllegalStateException("Outbound queue is closed");
+            }
+            var entry = new Entry(payloadType, policy, payload);
+            queue.add(entry);
+            if (policy == OutboundQueuePolicy.COALESCE_LATEST)
+                latestByType.put(payloadType, entry);
+            metrics.enqueued();
+            if (!draining) {
+                draining = true;
+                schedule = true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for outbound queue", e);
+        } finally {
+            lock.unlock();
+        }
+        if (schedule)
+            schedule();
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Queued payloads are discarded, blocked senders are released
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            metrics.discarded(queue.size());
+            queue.clear();
+            latestByType.clear();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds the lock, payloads queued with the blocking policy are never dropped
+    private boolean dropOldest() {
+        var iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            if (entry.policy == OutboundQueuePolicy.BLOCK)
+                continue;
+            iterator.remove();
+            latestByType.remove(entry.payloadType, entry);
+            metrics.dropped();
+            return true;
+        }
+        return false;
+    }
+
+    private void schedule() {
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            log.warn("Outbound queue has been rejected by executor, queueSize: {}", size(), e);
+            close();
+        }
+    }
+
+    private void drain() {
+        for (var i = 0; i < DRAIN_BATCH_SIZE; i++) {
+            Payload payload;
+            lock.lock();
+            try {
+                var entry = queue.poll();
+                if (entry == null) {
+                    draining = false;
+                    return;
+                }
+                latestByType.remove(entry.payloadType, entry);
+                payload = entry.payload;
+                metrics.drained();
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                sender.accept(payload);
+            } catch (Exception e) {
+                log.warn("Error while sending queued payload, payloadType: {}", payload.getClass().getSimpleName(), e);
+                exceptionHandler.accept(e);
+            }
+        }
+        // Yields the thread between batches, so a busy subscription doesn't starve the others
+        schedule();
+    }
+
+    private static class Entry {
+
+        private final PayloadType payloadType;
+        private final OutboundQueuePolicy policy;
+        private Payload payload;
+
+        private Entry(PayloadType payloadType, OutboundQueuePolicy policy, Payload payload) {
+            this.payloadType = payloadType;
+            this.policy = policy;
+            this.payload = payload;
+        }
+
+    }
+
+}
@@ -0,0 +1,108 @@
+package org.thehive.hiveserverclient.net.websocket;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Reconnect statistics of every connection created by a client
+public class ReconnectMetrics {
+
+    private final LongAdder connectionLossCount = new LongAdder();
+    private final LongAdder attemptCount = new LongAdder();
+    private final LongAdder failedAttemptCount = new LongAdder();
+    private final LongAdder reconnectCount = new LongAdder();
+    private final LongAdder exhaustedCount = new LongAdder();
+    private final LongAdder totalReconnectLatencyNanos = new LongAdder();
+    private final LongAccumulator maxReconnectLatencyNanos = new LongAccumulator(Math::max, 0L);
+    private final LongAdder bufferedSendCount = new LongAdder();
+    private final LongAdder rejectedSendCount = new LongAdder();
+    private volatile long lastReconnectLatencyNanos;
+
+    void connectionLost() {
+        connectionLossCount.increment();
+    }
+
+    void attempted() {
+        attemptCount.increment();
+    }
+
+    void attemptFailed() {
+        failedAttemptCount.increment();
+    }
+
+    void reconnected(long latencyNanos) {
+        reconnectCount.increment();
+        totalReconnectLatencyNanos.add(latencyNanos);
+        maxReconnectLatencyNanos.accumulate(latencyNanos);
+        lastReconnectLatencyNanos = latencyNanos;
+    }
+
+    void exhausted() {
+        exhaustedCount.increment();
+    }
+
+    void sendBuffered() {
+        bufferedSendCount.increment();
+    }
+
+    void sendRejected() {
+        rejectedSendCount.increment();
+    }
+
+    public long getConnectionLossCount() {
+        return connectionLossCount.sum();
+    }
+
+    public long getAttemptCount() {
+        return attemptCount.sum();
+    }
+
+    public long getFailedAttemptCount() {
+        return failedAttemptCount.sum();
+    }
+
+    public long getReconnectCount() {
+        return reconnectCount.sum();
+    }
+
+    public long getExhaustedCount() {
+        return exhaustedCount.sum();
+    }
+
+    public long getLastReconnectLatencyMs() {
+        return TimeUnit.NANOSECONDS.toMillis(lastReconnectLatencyNanos);
+    }
+
+    public long getMaxReconnectLatencyMs() {
+        return TimeUnit.NANOSECONDS.toMillis(maxReconnectLatencyNanos.get());
+    }
+
+    public long getAverageReconnectLatencyMs() {
+        var count = reconnectCount.sum();
+        return count == 0 ? 0L : TimeUnit.NANOSECONDS.toMillis(totalReconnectLatencyNanos.sum() / count);
+    }
+
+    public long getBufferedSendCount() {
+        return bufferedSendCount.sum();
+    }
+
+    public long getRejectedSendCount() {
+        return rejectedSendCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ReconnectMetrics{" +
+                "connectionLossCount=" + getConnectionLossCount() +
+                ", attemptCount=" + getAttemptCount() +
+                ", failedAttemptCount=" + getFailedAttemptCount() +
+                ", reconnectCount=" + getReconnectCount() +
+                ", exhaustedCount=" + getExhaustedCount() +
+                ", lastReconnectLatencyMs=" + getLastReconnectLatencyMs() +
+                ", maxReconnectLatencyMs=" + getMaxReconnectLatencyMs() +
+                ", bufferedSendCount=" + getBufferedSendCount() +
+                ", rejectedSendCount=" + getRejectedSendCount() +
+                '}';
+    }
+
+}
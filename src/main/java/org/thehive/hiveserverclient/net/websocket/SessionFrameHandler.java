@@ -0,0 +1,83 @@
+package org.thehive.hiveserverclient.net.websocket;
+
+import lombok.NonNull;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.thehive.hiveserverclient.net.websocket.delta.CodeDeltaDecoder;
+import org.thehive.hiveserverclient.net.websocket.delta.CodeDeltaEncoder;
+import org.thehive.hiveserverclient.net.websocket.header.AppStompHeaders;
+import org.thehive.hiveserverclient.net.websocket.subscription.SubscriptionListener;
+import org.thehive.hiveserverclient.payload.CodeBroadcastingInformation;
+import org.thehive.hiveserverclient.payload.CodeReceivingRequest;
+import org.thehive.hiveserverclient.payload.Payload;
+import org.thehive.hiveserverclient.util.Pair;
+
+import java.lang.reflect.Type;
+import java.util.function.BiConsumer;
+
+// Payload type is read from the raw headers, they are wrapped only for a frame which reaches the listeners
+// and coalesced code broadcasts keep the raw headers until they are flushed
+class SessionFrameHandler implements StompFrameHandler {
+
+    // Delivers a frame to the connection and subscription listeners
+    private final BiConsumer<AppStompHeaders, Payload> receiver;
+    // Null when received code broadcasts aren't coalesced
+    private final CodeBroadcastCoalescer<Pair<StompHeaders, CodeBroadcastingInformation>> coalescer;
+    // Null when code broadcasts aren't delta encoded
+    private final CodeDeltaDecoder deltaDecoder;
+    private final CodeDeltaEncoder deltaEncoder;
+
+    SessionFrameHandler(@NonNull BiConsumer<AppStompHeaders, Payload> receiver,
+                        CodeBroadcastCoalescer<Pair<StompHeaders, CodeBroadcastingInformation>> coalescer,
+                        CodeDeltaDecoder deltaDecoder, CodeDeltaEncoder deltaEncoder) {
+        this.receiver = receiver;
+        this.coalescer = coalescer;
+        this.deltaDecoder = deltaDecoder;
+        this.deltaEncoder = deltaEncoder;
+    }
+
+    SessionFrameHandler(@NonNull WebSocketListener webSocketListener, @NonNull SubscriptionListener subscriptionListener,
+                        CodeBroadcastCoalescer<Pair<StompHeaders, CodeBroadcastingInformation>> coalescer) {
+        this((headers, payload) -> {
+            webSocketListener.onReceive(headers, payload);
+            subscriptionListener.onReceive(headers, payload);
+        }, coalescer, null, null);
+    }
+
+    SessionFrameHandler(WebSocketListener webSocketListener, SubscriptionListener subscriptionListener) {
+        this(webSocketListener, subscriptionListener, null);
+    }
+
+    @Override
+    public Type getPayloadType(StompHeaders headers) {
+        return AppStompHeaders.payloadTypeOf(headers).type;
+    }
+
+    @Override
+    public void handleFrame(StompHeaders headers, Object payload) {
+        if (deltaEncoder != null && payload instanceof CodeReceivingRequest) {
+            var request = (CodeReceivingRequest) payload;
+            // New receiver has no base for the broadcaster's edits
+            if (request.isStart())
+                deltaEncoder.reset(request.getBroadcaster());
+        }
+        if (payload instanceof CodeBroadcastingInformation) {
+            var information = (CodeBroadcastingInformation) payload;
+            // Deltas are applied before coalescing, each one depends on the previous
+            if (deltaDecoder != null && (information = deltaDecoder.decode(information)) == null)
+                return;
+            if (coalescer != null) {
+                coalescer.offer(information.getBroadcaster(), Pair.of(headers, information));
+                return;
+            }
+            dispatch(headers, information);
+            return;
+        }
+        dispatch(headers, (Payload) payload);
+    }
+
+    private void dispatch(StompHeaders headers, Payload payload) {
+        receiver.accept(new AppStompHeaders(headers), payload);
+    }
+
+}
@@ -0,0 +1,42 @@
+package org.thehive.hiveserverclient.net.websocket;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.NonNull;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadEncoding;
+
+import java.util.List;
+
+// Binary Jackson codec for frames with the Smile content type, other frames are left to the JSON converter
+public class SmileMessageConverter extends MappingJackson2MessageConverter {
+
+    public SmileMessageConverter() {
+        super(PayloadEncoding.SMILE.mimeType);
+        var objectMapper = new ObjectMapper(new SmileFactory());
+        // Same configuration as the JSON converter
+        objectMapper.configure(MapperFeature.DEFAULT_VIEW_INCLUSION, false);
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        setObjectMapper(objectMapper);
+        setSerializedPayloadClass(byte[].class);
+        setStrictContentTypeMatch(true);
+    }
+
+    // Converter for the stomp client of Smile connections, received frames pick this or the given converter by content type
+    public static MessageConverter withFallback(@NonNull MessageConverter converter) {
+        return new CompositeMessageConverter(List.of(new SmileMessageConverter(), converter));
+    }
+
+    // Supported mime type is matched by type and subtype only, the codec parameter tells Smile from other octet streams
+    @Override
+    protected boolean supportsMimeType(MessageHeaders headers) {
+        var contentType = getMimeType(headers);
+        return contentType != null && PayloadEncoding.byContentType(contentType) == PayloadEncoding.SMILE;
+    }
+
+}
@@ -1,22 +1,48 @@
 package org.thehive.hiveserverclient.net.websocket;
 
+import lombok.Builder;
 import lombok.NonNull;
+import lombok.Singular;
 import org.springframework.lang.Nullable;
 import org.thehive.hiveserverclient.payload.Payload;
 
 import java.util.HashMap;
 import java.util.Map;
 
+// Endpoint templates are compiled once, resolved endpoints are cached per payload type and session id
 public class UrlEndpointResolverImpl implements UrlEndpointResolver {
 
-    private final String subscriptionUrlEndpoint;
+    public static final String ID_PLACEHOLDER = EndpointTemplate.ID_PLACEHOLDER;
+    public static final int DEFAULT_CACHE_CAPACITY = 1024;
+
+    private final EndpointTemplate subscriptionTemplate;
     private final String destinationPrefix;
-    private final Map<Class<? extends Payload>, String> payloadTypeDestinationUrlEndpointMap;
+    private final int cacheCapacity;
+    // Built resolver doesn't accept destinations afterwards
+    private final boolean immutable;
+    // Replaced as a whole on addition, resolving never reads a map under mutation
+    private volatile Map<Class<? extends Payload>, EndpointTemplate> destinationTemplateMap;
 
-    public UrlEndpointResolverImpl(@NonNull String subscriptionUrlEndpoint, @Nullable String destinationPrefix) {
-        this.subscriptionUrlEndpoint = subscriptionUrlEndpoint;
+    @Builder
+    private UrlEndpointResolverImpl(@NonNull String subscriptionUrlEndpoint, @Nullable String destinationPrefix,
+                                    @Singular Map<Class<? extends Payload>, String> destinationUrlEndpoints, int cacheCapacity) {
+        this(subscriptionUrlEndpoint, destinationPrefix, cacheCapacity > 0 ? cacheCapacity : DEFAULT_CACHE_CAPACITY, true);
+        var destinationTemplateMap = new HashMap<Class<? extends Payload>, EndpointTemplate>();
+        destinationUrlEndpoints.forEach((payloadType, destinationUrlEndpoint) ->
+                destinationTemplateMap.put(payloadType, compileDestination(destinationUrlEndpoint)));
+        this.destinationTemplateMap = Map.copyOf(destinationTemplateMap);
+    }
+
+    private UrlEndpointResolverImpl(String subscriptionUrlEndpoint, String destinationPrefix, int cacheCapacity, boolean immutable) {
+        this.subscriptionTemplate = EndpointTemplate.compile(subscriptionUrlEndpoint, true, cacheCapacity);
         this.destinationPrefix = destinationPrefix;
-        this.payloadTypeDestinationUrlEndpointMap = new HashMap<>();
+        this.cacheCapacity = cacheCapacity;
+        this.immutable = immutable;
+        this.destinationTemplateMap = Map.of();
+    }
+
+    public UrlEndpointResolverImpl(@NonNull String subscriptionUrlEndpoint, @Nullable String destinationPrefix) {
+        this(subscriptionUrlEndpoint, destinationPrefix, DEFAULT_CACHE_CAPACITY, false);
     }
 
     public UrlEndpointResolverImpl(@NonNull String subscriptionUrlEndpoint) {
@@ -25,26 +51,33 @@ public class UrlEndpointResolverImpl implements UrlEndpointResolver {
 
     @Override
     public String resolveSubscriptionUrlEndpoint(@NonNull String id) {
-        if (subscriptionUrlEndpoint.endsWith("/"))
-            return subscriptionUrlEndpoint + id;
-        return subscriptionUrlEndpoint + "/" + id;
+        return subscriptionTemplate.resolve(id);
     }
 
     @Override
-    public void addDestinationUrlEndpoint(@NonNull Class<? extends Payload> payloadType, @NonNull String destinationUrlEndpoint) {
-        if (destinationPrefix != null)
-            destinationUrlEndpoint = destinationPrefix.concat(destinationUrlEndpoint);
-        payloadTypeDestinationUrlEndpointMap.put(payloadType, destinationUrlEndpoint);
+    public synchronized void addDestinationUrlEndpoint(@NonNull Class<? extends Payload> payloadType, @NonNull String destinationUrlEndpoint) {
+        if (immutable)
+            throw new UnsupportedOperationException("Destinations of a built resolver can't be changed");
+        var destinationTemplateMap = new HashMap<>(this.destinationTemplateMap);
+        destinationTemplateMap.put(payloadType, compileDestination(destinationUrlEndpoint));
+        this.destinationTemplateMap = Map.copyOf(destinationTemplateMap);
     }
 
     @Override
     public boolean containsDestinationUrlEndpoint(@NonNull Class<? extends Payload> payloadType) {
-        return payloadTypeDestinationUrlEndpointMap.containsKey(payloadType);
+        return destinationTemplateMap.containsKey(payloadType);
     }
 
     @Override
     public String resolveDestinationUrlEndpoint(@NonNull Class<? extends Payload> payloadType, @NonNull String id) {
-        return payloadTypeDestinationUrlEndpointMap.get(payloadType);
+        var destinationTemplate = destinationTemplateMap.get(payloadType);
+        return destinationTemplate != null ? destinationTemplate.resolve(id) : null;
+    }
+
+    private EndpointTemplate compileDestination(String destinationUrlEndpoint) {
+        if (destinationPrefix != null)
+            destinationUrlEndpoint = destinationPrefix.concat(destinationUrlEndpoint);
+        return EndpointTemplate.compile(destinationUrlEndpoint, false, cacheCapacity);
     }
 
 }
@@ -1,184 +1,555 @@
 package org.thehive.hiveserverclient.net.websocket;
 
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.stomp.*;
 import org.springframework.web.socket.WebSocketHttpHeaders;
 import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.thehive.hiveserverclient.ExecutionMode;
+import org.thehive.hiveserverclient.net.websocket.delta.CodeDeltaDecoder;
+import org.thehive.hiveserverclient.net.websocket.delta.CodeDeltaEncoder;
 import org.thehive.hiveserverclient.net.websocket.header.AppStompHeaders;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadEncoding;
 import org.thehive.hiveserverclient.net.websocket.subscription.SessionSubscription;
 import org.thehive.hiveserverclient.net.websocket.subscription.StompSubscription;
 import org.thehive.hiveserverclient.net.websocket.subscription.SubscriptionListener;
+import org.thehive.hiveserverclient.payload.CodeBroadcastingInformation;
+import org.thehive.hiveserverclient.payload.CodeReceivingRequest;
 import org.thehive.hiveserverclient.payload.Payload;
+import org.thehive.hiveserverclient.util.KeyedSerialExecutor;
+import org.thehive.hiveserverclient.util.Pair;
 
-import java.lang.reflect.Type;
-import java.util.concurrent.Executor;
-import java.util.concurrent.ExecutorService;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
-@RequiredArgsConstructor
+@Slf4j
 public class WebSocketClientImpl implements WebSocketClient {
 
     private final String connectionUrl;
     private final UrlEndpointResolver urlEndpointResolver;
     private final WebSocketStompClient webSocketStompClient;
     private final ExecutorService executorService;
+    private final WebSocketClientOptions options;
+    private final ScheduledExecutorService scheduler;
+    private final ReconnectMetrics reconnectMetrics;
+    private final OutboundQueueMetrics outboundQueueMetrics;
+
+    public WebSocketClientImpl(@NonNull String connectionUrl, @NonNull UrlEndpointResolver urlEndpointResolver,
+                               @NonNull WebSocketStompClient webSocketStompClient, @NonNull ExecutorService executorService,
+                               @NonNull WebSocketClientOptions options) {
+        this.connectionUrl = connectionUrl;
+        this.urlEndpointResolver = urlEndpointResolver;
+        this.webSocketStompClient = webSocketStompClient;
+        this.executorService = executorService;
+        this.options = options;
+        if (options.getScheduler() != null)
+            this.scheduler = options.getScheduler();
+        else if (options.isReconnect() || options.getCodeBroadcastFrameRate() > 0)
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "websocket-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        else
+            this.scheduler = null;
+        this.reconnectMetrics = new ReconnectMetrics();
+        this.outboundQueueMetrics = new OutboundQueueMetrics();
+        // Given stomp client may be shared, so it is left as configured instead of getting the binary converter installed
+        if (options.getPayloadEncoding() == PayloadEncoding.SMILE && !hasSmileConverter(webSocketStompClient.getMessageConverter()))
+            throw new IllegalArgumentException("Smile payload encoding needs a stomp client with the Smile converter, "
+                    + "see SmileMessageConverter.withFallback");
+    }
 
-    @Override
-    public WebSocketConnection connect(WebSocketHttpHeaders handshakeHeaders, StompHeaders connectHeaders, WebSocketListener listener) {
-        var onExecutorListener = new WebSocketOnExecutorListener(listener, executorService);
-        return this.connect(handshakeHeaders, connectHeaders, onExecutorListener);
+    public WebSocketClientImpl(String connectionUrl, UrlEndpointResolver urlEndpointResolver,
+                               WebSocketStompClient webSocketStompClient, ExecutorService executorService) {
+        this(connectionUrl, urlEndpointResolver, webSocketStompClient, executorService, WebSocketClientOptions.defaults());
     }
 
-    private WebSocketConnection connect(WebSocketHttpHeaders handshakeHeaders, StompHeaders connectHeaders, WebSocketOnExecutorListener listener) {
-        var connection = new WebSocketConnectionImpl(listener, urlEndpointResolver);
-        webSocketStompClient.connect(connectionUrl, handshakeHeaders, connectHeaders, new StompSessionHandlerAdapter() {
-            @Override
-            public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
-                connection.connect(session);
-            }
+    public WebSocketClientImpl(String connectionUrl, UrlEndpointResolver urlEndpointResolver,
+                               WebSocketStompClient webSocketStompClient, @NonNull ExecutionMode executionMode) {
+        this(connectionUrl, urlEndpointResolver, webSocketStompClient,
+                executionMode.newExecutorService(Runtime.getRuntime().availableProcessors()));
+    }
 
-            @Override
-            public void handleException(StompSession session, StompCommand command, StompHeaders headers, byte[] payload, Throwable exception) {
-                listener.onException(exception);
-            }
+    private static boolean hasSmileConverter(MessageConverter converter) {
+        if (converter instanceof CompositeMessageConverter)
+            return ((CompositeMessageConverter) converter).getConverters().stream().anyMatch(SmileMessageConverter.class::isInstance);
+        return converter instanceof SmileMessageConverter;
+    }
 
-            @Override
-            public void handleTransportError(StompSession session, Throwable exception) {
-                listener.onException(exception);
-            }
-        });
-        return connection;
+    public ReconnectMetrics getReconnectMetrics() {
+        return reconnectMetrics;
+    }
 
+    public OutboundQueueMetrics getOutboundQueueMetrics() {
+        return outboundQueueMetrics;
     }
 
+    @Override
+    public WebSocketConnection connect(WebSocketHttpHeaders handshakeHeaders, StompHeaders connectHeaders, WebSocketListener listener) {
+        var onExecutorListener = new WebSocketOnExecutorListener(listener, executorService);
+        var headers = new StompHeaders();
+        if (connectHeaders != null)
+            headers.putAll(connectHeaders);
+        if (options.getPayloadEncoding() != PayloadEncoding.JSON)
+            headers.set(AppStompHeaders.PAYLOAD_ENCODING, options.getPayloadEncoding().value + "," + PayloadEncoding.JSON.value);
+        if (options.isCodeBroadcastDelta())
+            headers.set(AppStompHeaders.CODE_BROADCAST_DELTA, Boolean.TRUE.toString());
+        var connection = new WebSocketConnectionImpl(onExecutorListener, handshakeHeaders, headers);
+        connection.attempt();
+        return connection;
+    }
 
-    private static class WebSocketOnExecutorListener implements WebSocketListener {
+
+    // Callbacks of the same subscription destination keep their order, different destinations are dispatched in parallel
+    static class WebSocketOnExecutorListener implements WebSocketListener {
 
         private final WebSocketListener listener;
-        private final Executor executor;
+        private final KeyedSerialExecutor executor;
+        private final Object connectionKey;
 
         public WebSocketOnExecutorListener(@NonNull WebSocketListener listener, @NonNull Executor executor) {
             this.listener = listener;
-            this.executor = executor;
+            this.executor = new KeyedSerialExecutor(executor);
+            this.connectionKey = new Object();
         }
 
         @Override
         public void onConnect(WebSocketConnection connection) {
-            executor.execute(() -> listener.onConnect(connection));
+            executor.execute(connectionKey, () -> listener.onConnect(connection));
         }
 
         @Override
         public void onSubscribe(StompSubscription subscription) {
-            executor.execute(() -> listener.onSubscribe(subscription));
+            executor.execute(subscription.getDestination(), () -> listener.onSubscribe(subscription));
         }
 
         @Override
         public void onUnsubscribe(StompSubscription subscription) {
-            executor.execute(() -> listener.onUnsubscribe(subscription));
+            executor.execute(subscription.getDestination(), () -> listener.onUnsubscribe(subscription));
         }
 
         @Override
         public void onReceive(AppStompHeaders headers, Payload payload) {
-            executor.execute(() -> listener.onReceive(headers, payload));
+            var destination = headers.getDestination();
+            executor.execute(destination != null ? destination : connectionKey, () -> listener.onReceive(headers, payload));
+        }
+
+        // Both listeners are called on the destination's lane, so a frame handed over from another thread
+        // keeps its place among the frames of the subscription
+        BiConsumer<AppStompHeaders, Payload> receiverOf(@NonNull SubscriptionListener subscriptionListener) {
+            return (headers, payload) -> {
+                var destination = headers.getDestination();
+                executor.execute(destination != null ? destination : connectionKey, () -> {
+                    listener.onReceive(headers, payload);
+                    subscriptionListener.onReceive(headers, payload);
+                });
+            };
         }
 
         @Override
         public void onSend(Payload payload) {
-            executor.execute(() -> listener.onSend(payload));
+            executor.execute(connectionKey, () -> listener.onSend(payload));
+        }
+
+        public void onSend(String destination, Payload payload) {
+            executor.execute(destination, () -> listener.onSend(payload));
         }
 
         @Override
         public void onException(Throwable t) {
-            executor.execute(() -> listener.onException(t));
+            executor.execute(connectionKey, () -> listener.onException(t));
         }
 
         @Override
         public void onDisconnect(WebSocketConnection connection) {
-            executor.execute(() -> listener.onDisconnect(connection));
+            executor.execute(connectionKey, () -> listener.onDisconnect(connection));
+        }
+
+        @Override
+        public void onReconnect(WebSocketConnection connection) {
+            executor.execute(connectionKey, () -> listener.onReconnect(connection));
         }
 
     }
 
 
-    private static class WebSocketConnectionImpl implements WebSocketConnection {
+    private class WebSocketConnectionImpl implements WebSocketConnection {
+
+        private final WebSocketOnExecutorListener webSocketListener;
+        private final WebSocketHttpHeaders handshakeHeaders;
+        private final StompHeaders connectHeaders;
+        private final Set<SessionSubscriptionImpl> subscriptions;
+        // Guarded by this
+        private final ArrayDeque<PendingSend> outageBuffer;
+        private volatile StompSession session;
+        // Transitions are compare and set, the winner of a transition fires its listener event
+        private final AtomicReference<ConnectionStatus> status;
+        // Negotiated again on each connect
+        private volatile PayloadEncoding payloadEncoding;
+        // Code broadcasts are sent as deltas only to a server which has accepted them
+        private volatile boolean codeBroadcastDelta;
+        // Guarded by this, events of handlers other than the active one belong to abandoned sessions
+        private SessionHandler activeHandler;
+        private ScheduledFuture<?> scheduledAttempt;
+        private boolean everConnected;
+        private int failedAttemptCount;
+        private long outageStartNanos;
+
+        public WebSocketConnectionImpl(@NonNull WebSocketOnExecutorListener webSocketListener,
+                                       WebSocketHttpHeaders handshakeHeaders, StompHeaders connectHeaders) {
+            this.webSocketListener = webSocketListener;
+            this.handshakeHeaders = handshakeHeaders;
+            this.connectHeaders = connectHeaders;
+            this.subscriptions = ConcurrentHashMap.newKeySet();
+            this.outageBuffer = new ArrayDeque<>();
+            this.status = new AtomicReference<>(ConnectionStatus.CONNECTING);
+            this.payloadEncoding = PayloadEncoding.JSON;
+        }
 
-        private final WebSocketListener webSocketListener;
-        private final UrlEndpointResolver urlEndpointResolver;
-        private final AtomicReference<StompSession> sessionReference;
-        private volatile ConnectionStatus status;
+        private void attempt() {
+            var handler = new SessionHandler();
+            ConnectionStatus current;
+            synchronized (this) {
+                current = status.get();
+                if (isClosing(current))
+                    return;
+                activeHandler = handler;
+                scheduledAttempt = null;
+            }
+            if (current == ConnectionStatus.RECONNECTING)
+                reconnectMetrics.attempted();
+            webSocketStompClient.connect(connectionUrl, handshakeHeaders, connectHeaders, handler);
+        }
 
-        public WebSocketConnectionImpl(@NonNull WebSocketListener webSocketListener, @NonNull UrlEndpointResolver urlEndpointResolver) {
-            this.webSocketListener = webSocketListener;
-            this.urlEndpointResolver = urlEndpointResolver;
-            this.sessionReference = new AtomicReference<>();
-            this.status = ConnectionStatus.CONNECTING;
+        private void connected(SessionHandler handler, StompSession session, StompHeaders connectedHeaders) {
+            boolean reconnected;
+            synchronized (this) {
+                var current = status.get();
+                if (handler != activeHandler || isClosing(current)) {
+                    session.disconnect();
+                    return;
+                }
+                this.session = session;
+                this.payloadEncoding = PayloadEncoding.negotiated(connectedHeaders.getFirst(AppStompHeaders.PAYLOAD_ENCODING));
+                this.codeBroadcastDelta = options.isCodeBroadcastDelta()
+                        && Boolean.parseBoolean(connectedHeaders.getFirst(AppStompHeaders.CODE_BROADCAST_DELTA));
+                // Lost to a concurrent disconnect, which hasn't taken the lock yet
+                if (!status.compareAndSet(current, ConnectionStatus.CONNECTED)) {
+                    session.disconnect();
+                    return;
+                }
+                // Sends check the status under the lock, so none of them overtakes the buffered ones
+                reconnected = everConnected;
+                if (reconnected) {
+                    for (var subscription : subscriptions)
+                        subscription.resubscribe(session);
+                    flushOutageBuffer(session);
+                    reconnectMetrics.reconnected(System.nanoTime() - outageStartNanos);
+                }
+                everConnected = true;
+                failedAttemptCount = 0;
+            }
+            if (reconnected) {
+                log.info("Connection has been reestablished, subscriptionCount: {}", subscriptions.size());
+                webSocketListener.onReconnect(this);
+            } else
+                webSocketListener.onConnect(this);
         }
 
-        private void connect(StompSession session) {
-            if (status != ConnectionStatus.CONNECTING)
-                throw new IllegalStateException();
-            sessionReference.set(session);
-            status = ConnectionStatus.CONNECTED;
-            webSocketListener.onConnect(this);
+        private void transportFailed(SessionHandler handler, Throwable t) {
+            ConnectionStatus current;
+            boolean closed;
+            synchronized (this) {
+                current = status.get();
+                if (handler != activeHandler || isClosing(current))
+                    return;
+                activeHandler = null;
+                if (!options.isReconnect())
+                    closed = true;
+                else {
+                    if (current == ConnectionStatus.CONNECTED) {
+                        if (!status.compareAndSet(current, ConnectionStatus.RECONNECTING))
+                            return;
+                        current = ConnectionStatus.RECONNECTING;
+                        outageStartNanos = System.nanoTime();
+                        reconnectMetrics.connectionLost();
+                        log.info("Connection has been lost, subscriptionCount: {}", subscriptions.size());
+                    } else {
+                        if (current == ConnectionStatus.RECONNECTING)
+                            reconnectMetrics.attemptFailed();
+                        failedAttemptCount++;
+                    }
+                    if (current == ConnectionStatus.CONNECTING)
+                        closed = failedAttemptCount >= options.getMaxInitialConnectAttempts();
+                    else
+                        closed = options.getMaxReconnectAttempts() > 0 && failedAttemptCount >= options.getMaxReconnectAttempts();
+                    if (closed)
+                        reconnectMetrics.exhausted();
+                    else {
+                        var delay = options.backoffMillis(failedAttemptCount + 1);
+                        log.debug("Connection attempt is scheduled, failedAttemptCount: {}, delayMs: {}, cause: {}", failedAttemptCount, delay, t.toString());
+                        scheduledAttempt = scheduler.schedule(this::attempt, delay, TimeUnit.MILLISECONDS);
+                    }
+                }
+                // Lost to a concurrent disconnect, which fires the event
+                if (closed && !status.compareAndSet(current, ConnectionStatus.DISCONNECTING))
+                    return;
+                if (closed)
+                    outageBuffer.clear();
+            }
+            if (!closed)
+                return;
+            // Only the failure which closes the connection is reported, retried ones are logged
+            webSocketListener.onException(t);
+            releaseSubscriptions();
+            status.set(ConnectionStatus.DISCONNECTED);
+            if (options.isReconnect() && current == ConnectionStatus.CONNECTING)
+                log.warn("Connection couldn't be established, failedAttemptCount: {}", failedAttemptCount);
+            else if (options.isReconnect())
+                log.warn("Reconnect attempts have been exhausted, failedAttemptCount: {}", failedAttemptCount);
+            // Without reconnect a connection which has never been up only reports the exception
+            if (current != ConnectionStatus.CONNECTING || options.isReconnect())
+                webSocketListener.onDisconnect(this);
+        }
+
+        private boolean isClosing(ConnectionStatus status) {
+            return status == ConnectionStatus.DISCONNECTING || status == ConnectionStatus.DISCONNECTED;
+        }
+
+        private void releaseSubscriptions() {
+            for (var subscription : subscriptions)
+                subscription.release();
+        }
+
+        // Caller holds the lock
+        private void flushOutageBuffer(StompSession session) {
+            PendingSend pendingSend;
+            while ((pendingSend = outageBuffer.poll()) != null) {
+                if (!pendingSend.subscription.isInSubscription())
+                    continue;
+                send(session, pendingSend.endpoint, pendingSend.payload);
+                pendingSend.subscription.sent(pendingSend.payload);
+            }
+        }
+
+        private void send(SessionSubscriptionImpl subscription, String endpoint, Payload payload) {
+            synchronized (this) {
+                if (status.get() == ConnectionStatus.RECONNECTING) {
+                    buffer(subscription, endpoint, payload);
+                    return;
+                }
+            }
+            try {
+                send(session, endpoint, payload);
+            } catch (MessageDeliveryException | IllegalStateException e) {
+                // Transport has dropped, but the failure hasn't been reported by the session yet
+                if (!options.isReconnect())
+                    throw e;
+                synchronized (this) {
+                    buffer(subscription, endpoint, payload);
+                }
+                return;
+            }
+            subscription.sent(payload);
+        }
+
+        private void send(StompSession session, String endpoint, Payload payload) {
+            var payloadEncoding = this.payloadEncoding;
+            if (payloadEncoding == PayloadEncoding.JSON) {
+                session.send(endpoint, payload);
+                return;
+            }
+            // Content type selects the converter of the frame
+            var headers = new StompHeaders();
+            headers.setDestination(endpoint);
+            headers.setContentType(payloadEncoding.mimeType);
+            session.send(headers, payload);
+        }
+
+        // Caller holds the lock
+        private void buffer(SessionSubscriptionImpl subscription, String endpoint, Payload payload) {
+            if (outageBuffer.size() >= options.getOutageBufferCapacity()) {
+                reconnectMetrics.sendRejected();
+                throw new IllegalStateException("Outage buffer is full, capacity: " + options.getOutageBufferCapacity());
+            }
+            outageBuffer.add(new PendingSend(subscription, endpoint, payload));
+            reconnectMetrics.sendBuffered();
         }
 
         @Override
         public ConnectionStatus status() {
-            return status;
+            return status.get();
         }
 
         @Override
         public SessionSubscription subscribeToSession(String id, SubscriptionListener listener) {
-            if (status != ConnectionStatus.CONNECTED)
-                throw new IllegalStateException();
             var destination = urlEndpointResolver.resolveSubscriptionUrlEndpoint(id);
-            var subscription = sessionReference.get().subscribe(destination, new StompFrameHandler() {
-                @Override
-                public Type getPayloadType(StompHeaders headers) {
-                    var appStompHeaders = new AppStompHeaders(headers);
-                    var payloadType = appStompHeaders.getPayloadType();
-                    return payloadType.type;
-                }
-
-                @Override
-                public void handleFrame(StompHeaders headers, Object payload) {
-                    var appStompHeaders = new AppStompHeaders(headers);
-                    var appPayload = (Payload) payload;
-                    webSocketListener.onReceive(appStompHeaders, appPayload);
-                    listener.onReceive(appStompHeaders, appPayload);
-                }
-            });
-            return new SessionSubscriptionImpl(id, destination, listener, subscription);
+            // Under the lock, so a reconnect either resubscribes it or it is made on the new session
+            synchronized (this) {
+                if (status.get() != ConnectionStatus.CONNECTED)
+                    throw new IllegalStateException();
+                var sessionSubscription = new SessionSubscriptionImpl(id, destination, listener, session);
+                subscriptions.add(sessionSubscription);
+                return sessionSubscription;
+            }
         }
 
         @Override
+        // Idempotent, only the call which moves the connection to DISCONNECTING fires onDisconnect
         public void disconnect() {
-            if (status != ConnectionStatus.CONNECTED)
-                throw new IllegalStateException();
-            sessionReference.get().disconnect();
-            status = ConnectionStatus.DISCONNECTED;
+            ConnectionStatus previous;
+            do {
+                previous = status.get();
+                if (isClosing(previous))
+                    return;
+            } while (!status.compareAndSet(previous, ConnectionStatus.DISCONNECTING));
+            StompSession connectedSession = null;
+            synchronized (this) {
+                if (previous == ConnectionStatus.CONNECTED)
+                    connectedSession = session;
+                if (scheduledAttempt != null)
+                    scheduledAttempt.cancel(false);
+                activeHandler = null;
+                outageBuffer.clear();
+            }
+            releaseSubscriptions();
+            if (connectedSession != null) {
+                try {
+                    connectedSession.disconnect();
+                } catch (RuntimeException e) {
+                    log.debug("Error while disconnecting session", e);
+                }
+            }
+            status.set(ConnectionStatus.DISCONNECTED);
             webSocketListener.onDisconnect(this);
         }
 
+        private class SessionHandler extends StompSessionHandlerAdapter {
+
+            @Override
+            public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+                connected(this, session, connectedHeaders);
+            }
+
+            @Override
+            public void handleException(StompSession session, StompCommand command, StompHeaders headers, byte[] payload, Throwable exception) {
+                webSocketListener.onException(exception);
+            }
+
+            @Override
+            public void handleTransportError(StompSession session, Throwable exception) {
+                transportFailed(this, exception);
+            }
+
+        }
+
         private class SessionSubscriptionImpl implements SessionSubscription {
 
             private final String id;
             private final String destination;
             private final SubscriptionListener subscriptionListener;
-            private final StompSession.Subscription subscription;
-            private volatile boolean inSubscription;
-
-            public SessionSubscriptionImpl(String id, String destination, SubscriptionListener subscriptionListener, StompSession.Subscription subscription) {
+            private volatile StompSession.Subscription subscription;
+            private final AtomicBoolean inSubscription;
+            // Null when sends are synchronous
+            private final OutboundSendQueue outboundQueue;
+            // Null when code broadcasts aren't coalesced
+            private final CodeBroadcastCoalescer<CodeBroadcastingInformation> outboundCoalescer;
+            private final CodeBroadcastCoalescer<Pair<StompHeaders, CodeBroadcastingInformation>> inboundCoalescer;
+            private final BiConsumer<AppStompHeaders, Payload> receiver;
+            // Null when code broadcasts aren't delta encoded
+            private final CodeDeltaEncoder deltaEncoder;
+            private final CodeDeltaDecoder deltaDecoder;
+
+            public SessionSubscriptionImpl(String id, String destination, SubscriptionListener subscriptionListener, StompSession session) {
                 this.id = id;
                 this.destination = destination;
                 this.subscriptionListener = subscriptionListener;
-                this.subscription = subscription;
-                this.inSubscription = true;
+                this.outboundQueue = options.getOutboundQueueCapacity() > 0
+                        ? new OutboundSendQueue(options.getOutboundQueueCapacity(), options::outboundQueuePolicyOf, options.getOutboundQueueBlockTimeout(), executorService,
+                        this::sendNow, webSocketListener::onException, outboundQueueMetrics)
+                        : null;
+                if (options.getCodeBroadcastFrameRate() > 0) {
+                    // Flushed broadcasts come from the scheduler, so every received frame of the subscription
+                    // goes through the destination's lane and the scheduler only hands the latest update over
+                    var laneReceiver = webSocketListener.receiverOf(subscriptionListener);
+                    this.receiver = laneReceiver;
+                    this.outboundCoalescer = new CodeBroadcastCoalescer<>(scheduler, options.getCodeBroadcastFrameRate(), this::enqueue);
+                    this.inboundCoalescer = new CodeBroadcastCoalescer<>(scheduler, options.getCodeBroadcastFrameRate(),
+                            update -> laneReceiver.accept(new AppStompHeaders(update.key), update.value));
+                } else {
+                    this.receiver = (headers, payload) -> {
+                        webSocketListener.onReceive(headers, payload);
+                        subscriptionListener.onReceive(headers, payload);
+                    };
+                    this.outboundCoalescer = null;
+                    this.inboundCoalescer = null;
+                }
+                if (options.isCodeBroadcastDelta()) {
+                    this.deltaEncoder = new CodeDeltaEncoder();
+                    this.deltaDecoder = new CodeDeltaDecoder(this::requestSnapshot);
+                } else {
+                    this.deltaEncoder = null;
+                    this.deltaDecoder = null;
+                }
+                // Set before subscribing, a frame may arrive before the constructor returns
+                this.inSubscription = new AtomicBoolean(true);
+                try {
+                    this.subscription = session.subscribe(destination, frameHandler());
+                } catch (RuntimeException e) {
+                    release();
+                    throw e;
+                }
                 webSocketListener.onSubscribe(this);
                 subscriptionListener.onSubscribe(this);
             }
 
+            private void resubscribe(StompSession session) {
+                // Receivers of the new session may have missed edits
+                if (deltaEncoder != null)
+                    deltaEncoder.resetAll();
+                subscription = session.subscribe(destination, frameHandler());
+            }
+
+            private SessionFrameHandler frameHandler() {
+                return new SessionFrameHandler(receiver, inboundCoalescer, deltaDecoder, deltaEncoder);
+            }
+
+            private void requestSnapshot(String broadcaster) {
+                if (!urlEndpointResolver.containsDestinationUrlEndpoint(CodeReceivingRequest.class)) {
+                    log.warn("Snapshot can't be requested without a code receiving endpoint, broadcaster: {}", broadcaster);
+                    return;
+                }
+                try {
+                    enqueue(new CodeReceivingRequest(broadcaster, null, true));
+                } catch (RuntimeException e) {
+                    log.warn("Error while requesting snapshot, broadcaster: {}", broadcaster, e);
+                }
+            }
+
+            // Sends of a released subscription fail instead of being buffered for a session which never comes
+            private void release() {
+                inSubscription.set(false);
+                if (outboundQueue != null)
+                    outboundQueue.close();
+                if (outboundCoalescer != null) {
+                    outboundCoalescer.close();
+                    inboundCoalescer.close();
+                }
+            }
+
+            private void sent(Payload payload) {
+                webSocketListener.onSend(destination, payload);
+                subscriptionListener.onSend(payload);
+            }
+
             @Override
             public String getId() {
                 return id;
@@ -188,18 +559,45 @@ public class WebSocketClientImpl implements WebSocketClient {
             public void send(Payload payload) {
                 if (!isInSubscription())
                     throw new IllegalStateException();
+                if (outboundCoalescer != null && payload instanceof CodeBroadcastingInformation) {
+                    var information = (CodeBroadcastingInformation) payload;
+                    outboundCoalescer.offer(information.getBroadcaster(), information);
+                } else
+                    enqueue(payload);
+            }
+
+            private void enqueue(Payload payload) {
+                if (outboundQueue != null)
+                    outboundQueue.offer(payload);
+                else
+                    sendNow(payload);
+            }
+
+            private void sendNow(Payload payload) {
+                // Queued payloads of a closed subscription are discarded
+                if (!isInSubscription())
+                    return;
+                // Encoded on the sending thread in send order, a queued delta would lose its base when dropped or coalesced
+                if (deltaEncoder != null && codeBroadcastDelta && payload instanceof CodeBroadcastingInformation)
+                    payload = deltaEncoder.encode((CodeBroadcastingInformation) payload);
                 var endpoint = urlEndpointResolver.resolveDestinationUrlEndpoint(payload.getClass(), id);
-                sessionReference.get().send(endpoint, payload);
-                webSocketListener.onSend(payload);
-                subscriptionListener.onSend(payload);
+                WebSocketConnectionImpl.this.send(this, endpoint, payload);
             }
 
             @Override
             public void unsubscribe() {
-                if (!isInSubscription())
+                if (!inSubscription.compareAndSet(true, false))
                     throw new IllegalStateException();
-                subscription.unsubscribe();
-                inSubscription = false;
+                subscriptions.remove(this);
+                release();
+                // Subscription of a dropped session is gone with the session
+                if (status.get() == ConnectionStatus.CONNECTED) {
+                    try {
+                        subscription.unsubscribe();
+                    } catch (MessageDeliveryException | IllegalStateException e) {
+                        log.debug("Session has been lost while unsubscribing, destination: {}", destination);
+                    }
+                }
                 webSocketListener.onUnsubscribe(this);
                 subscriptionListener.onUnsubscribe(this);
             }
@@ -211,10 +609,24 @@ public class WebSocketClientImpl implements WebSocketClient {
 
             @Override
             public boolean isInSubscription() {
-                return inSubscription;
+                return inSubscription.get();
             }
         }
 
+    }
+
+
+    private static class PendingSend {
+
+        private final WebSocketConnectionImpl.SessionSubscriptionImpl subscription;
+        private final String endpoint;
+        private final Payload payload;
+
+        private PendingSend(WebSocketConnectionImpl.SessionSubscriptionImpl subscription, String endpoint, Payload payload) {
+            this.subscription = subscription;
+            this.endpoint = endpoint;
+            this.payload = payload;
+        }
 
     }
 
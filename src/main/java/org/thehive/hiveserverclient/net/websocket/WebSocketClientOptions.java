@@ -0,0 +1,89 @@
+package org.thehive.hiveserverclient.net.websocket;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+import org.thehive.hiveserverclient.net.websocket.header.PayloadEncoding;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadType;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Getter
+@Builder
+public class WebSocketClientOptions {
+
+    // Reconnects with jittered exponential backoff and resubscribes the active subscriptions when the transport drops
+    @Builder.Default
+    private final boolean reconnect = false;
+    @NonNull
+    @Builder.Default
+    private final Duration initialBackoff = Duration.ofMillis(500L);
+    @NonNull
+    @Builder.Default
+    private final Duration maxBackoff = Duration.ofSeconds(30L);
+    @Builder.Default
+    private final double backoffMultiplier = 2d;
+    // Fraction of the backoff which is randomized, so clients dropped together don't reconnect together
+    @Builder.Default
+    private final double jitter = 0.5d;
+    // Zero means unlimited
+    @Builder.Default
+    private final int maxReconnectAttempts = 0;
+    // Attempts before the connection has ever been up, a server which can't be reached at first is reported instead of retried
+    @Builder.Default
+    private final int maxInitialConnectAttempts = 1;
+    // Sends issued while reconnecting are kept up to this count and sent after the subscriptions are restored
+    @Builder.Default
+    private final int outageBufferCapacity = 256;
+    // Sends are queued per subscription and sent on the executor, zero sends synchronously on the caller's thread
+    @Builder.Default
+    private final int outboundQueueCapacity = 0;
+    // Payload types without a policy wait for room in a full queue
+    @NonNull
+    @Builder.Default
+    private final OutboundQueuePolicy defaultOutboundQueuePolicy = OutboundQueuePolicy.BLOCK;
+    // Longest wait of a blocking send for room in a full queue, the send fails with IllegalStateException after it
+    @NonNull
+    @Builder.Default
+    private final Duration outboundQueueBlockTimeout = Duration.ofSeconds(5L);
+    // Code broadcasting carries the whole editor state, so only the latest one is worth sending
+    @NonNull
+    @Builder.Default
+    private final Map<PayloadType, OutboundQueuePolicy> outboundQueuePolicies = Map.of(PayloadType.CODE_BROADCASTING_INFORMATION, OutboundQueuePolicy.COALESCE_LATEST);
+    // Sent and received code broadcasts are coalesced to the latest one per broadcaster at this many frames per second, zero disables
+    @Builder.Default
+    private final int codeBroadcastFrameRate = 0;
+    // Code broadcasts are sent as edits against the last sent text when the server accepts it at connect, otherwise with
+    // their full text for peers which can't rebuild them. Received ones are rebuilt before the listeners see them and a
+    // snapshot is requested with CodeReceivingRequest when the revision doesn't match
+    @Builder.Default
+    private final boolean codeBroadcastDelta = false;
+    // Encoding offered to the server at connect, the connection keeps text JSON unless the server accepts it
+    @NonNull
+    @Builder.Default
+    private final PayloadEncoding payloadEncoding = PayloadEncoding.JSON;
+    // Optional, runs reconnect attempts and code broadcast flushes, a daemon scheduler is created by the client when it isn't given
+    private final ScheduledExecutorService scheduler;
+
+    public static WebSocketClientOptions defaults() {
+        return WebSocketClientOptions.builder().build();
+    }
+
+    public OutboundQueuePolicy outboundQueuePolicyOf(@NonNull PayloadType payloadType) {
+        return outboundQueuePolicies.getOrDefault(payloadType, defaultOutboundQueuePolicy);
+    }
+
+    public long backoffMillis(int attempt) {
+        if (attempt < 1)
+            throw new IllegalArgumentException("Attempt must be positive, attempt: " + attempt);
+        var backoff = initialBackoff.toMillis() * Math.pow(backoffMultiplier, attempt - 1);
+        backoff = Math.min(backoff, maxBackoff.toMillis());
+        var jitterRange = backoff * Math.max(0d, Math.min(1d, jitter));
+        return (long) (backoff - jitterRange * ThreadLocalRandom.current().nextDouble());
+    }
+
+}
@@ -20,4 +20,8 @@ public interface WebSocketListener {
 
     void onDisconnect(WebSocketConnection connection);
 
+    // Connection has been established again after a transport failure, subscriptions are restored
+    default void onReconnect(WebSocketConnection connection) {
+    }
+
 }
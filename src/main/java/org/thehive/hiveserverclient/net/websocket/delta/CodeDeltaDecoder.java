@@ -0,0 +1,141 @@
+package org.thehive.hiveserverclient.net.websocket.delta;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.thehive.hiveserverclient.payload.CodeBroadcastingInformation;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Rebuilds the full text of each broadcaster from snapshots and delta frames, a delta which doesn't match
+// the known revision is dropped and a snapshot is requested, again after a timeout or a number of mismatches
+// while it hasn't arrived, since the request or the snapshot itself may be lost
+@Slf4j
+public class CodeDeltaDecoder {
+
+    public static final Duration DEFAULT_SNAPSHOT_RETRY_TIMEOUT = Duration.ofSeconds(2L);
+    public static final int DEFAULT_SNAPSHOT_RETRY_MISMATCHES = 16;
+
+    private final Consumer<String> snapshotRequester;
+    private final long snapshotRetryTimeoutNanos;
+    private final int snapshotRetryMismatches;
+    // Guarded by this
+    private final Map<String, State> states;
+    private final Map<String, SnapshotRequest> awaitingSnapshot;
+    private final LongAdder appliedCount;
+    private final LongAdder mismatchCount;
+
+    public CodeDeltaDecoder(@NonNull Consumer<String> snapshotRequester) {
+        this(snapshotRequester, DEFAULT_SNAPSHOT_RETRY_TIMEOUT, DEFAULT_SNAPSHOT_RETRY_MISMATCHES);
+    }
+
+    public CodeDeltaDecoder(@NonNull Consumer<String> snapshotRequester, @NonNull Duration snapshotRetryTimeout, int snapshotRetryMismatches) {
+        if (snapshotRetryMismatches < 1)
+            throw new IllegalArgumentException("Snapshot retry mismatches must be positive, snapshotRetryMismatches: " + snapshotRetryMismatches);
+        this.snapshotRequester = snapshotRequester;
+        this.snapshotRetryTimeoutNanos = snapshotRetryTimeout.toNanos();
+        this.snapshotRetryMismatches = snapshotRetryMismatches;
+        this.states = new HashMap<>();
+        this.awaitingSnapshot = new HashMap<>();
+        this.appliedCount = new LongAdder();
+        this.mismatchCount = new LongAdder();
+    }
+
+    // Returns the broadcast with its full text, or null when it can't be applied
+    public CodeBroadcastingInformation decode(@NonNull CodeBroadcastingInformation information) {
+        var broadcaster = CodeDeltaEncoder.keyOf(information.getBroadcaster());
+        if (!information.isDelta()) {
+            if (information.getText() != null) {
+                var revision = information.getRevision() != null ? information.getRevision() : TextRevision.of(information.getText());
+                synchronized (this) {
+                    states.put(broadcaster, new State(information.getText(), revision));
+                    awaitingSnapshot.remove(broadcaster);
+                }
+            }
+            return information;
+        }
+        String text = null;
+        boolean requestSnapshot;
+        synchronized (this) {
+            var state = states.get(broadcaster);
+            if (state != null && state.revision.equals(information.getBaseRevision())) {
+                try {
+                    var candidate = TextEdits.apply(state.text, information.getEdits());
+                    if (information.getRevision() == null || information.getRevision().equals(TextRevision.of(candidate)))
+                        text = candidate;
+                } catch (IllegalArgumentException e) {
+                    log.debug("Delta couldn't be applied, broadcaster: {}", broadcaster, e);
+                }
+            }
+            if (text != null) {
+                states.put(broadcaster, new State(text, information.getRevision() != null ? information.getRevision() : TextRevision.of(text)));
+                requestSnapshot = false;
+            } else {
+                states.remove(broadcaster);
+                requestSnapshot = snapshotDue(broadcaster);
+            }
+        }
+        if (text == null) {
+            mismatchCount.increment();
+            if (requestSnapshot) {
+                log.debug("Revision mismatch, snapshot is requested, broadcaster: {}", broadcaster);
+                snapshotRequester.accept(information.getBroadcaster());
+            }
+            return null;
+        }
+        appliedCount.increment();
+        return new CodeBroadcastingInformation(information.getBroadcaster(), text, null, information.getRevision(), null);
+    }
+
+    // Caller holds the lock
+    private boolean snapshotDue(String broadcaster) {
+        var now = System.nanoTime();
+        var request = awaitingSnapshot.get(broadcaster);
+        if (request == null) {
+            awaitingSnapshot.put(broadcaster, new SnapshotRequest(now));
+            return true;
+        }
+        request.mismatchCount++;
+        if (request.mismatchCount < snapshotRetryMismatches && now - request.requestedNanos < snapshotRetryTimeoutNanos)
+            return false;
+        request.requestedNanos = now;
+        request.mismatchCount = 0;
+        return true;
+    }
+
+    public long getAppliedCount() {
+        return appliedCount.sum();
+    }
+
+    public long getMismatchCount() {
+        return mismatchCount.sum();
+    }
+
+    private static class SnapshotRequest {
+
+        private long requestedNanos;
+        // Mismatches since the last request
+        private int mismatchCount;
+
+        private SnapshotRequest(long requestedNanos) {
+            this.requestedNanos = requestedNanos;
+        }
+
+    }
+
+    private static class State {
+
+        private final String text;
+        private final String revision;
+
+        private State(String text, String revision) {
+            this.text = text;
+            this.revision = revision;
+        }
+
+    }
+
+}
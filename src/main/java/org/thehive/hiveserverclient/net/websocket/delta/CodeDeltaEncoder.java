@@ -0,0 +1,96 @@
+package org.thehive.hiveserverclient.net.websocket.delta;
+
+import lombok.NonNull;
+import org.thehive.hiveserverclient.payload.CodeBroadcastingInformation;
+import org.thehive.hiveserverclient.payload.TextEdit;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Encodes code broadcasts as edits against the text which has been sent last by the same broadcaster,
+// the base is forgotten when a receiver asks for a snapshot
+public class CodeDeltaEncoder {
+
+    // Edits carry their offsets and lengths too, a delta which isn't clearly smaller is sent as a snapshot
+    private static final int EDIT_OVERHEAD = 48;
+
+    // Guarded by this
+    private final Map<String, Base> bases;
+    private final LongAdder snapshotCount;
+    private final LongAdder deltaCount;
+
+    public CodeDeltaEncoder() {
+        this.bases = new HashMap<>();
+        this.snapshotCount = new LongAdder();
+        this.deltaCount = new LongAdder();
+    }
+
+    public CodeBroadcastingInformation encode(@NonNull CodeBroadcastingInformation information) {
+        if (information.getText() == null || information.isDelta())
+            return information;
+        var broadcaster = keyOf(information.getBroadcaster());
+        var text = information.getText();
+        var revision = TextRevision.of(text);
+        List<TextEdit> edits = null;
+        String baseRevision = null;
+        synchronized (this) {
+            var base = bases.put(broadcaster, new Base(text, revision));
+            if (base != null) {
+                var candidate = TextEdits.between(base.text, text);
+                if (sizeOf(candidate) < text.length()) {
+                    edits = candidate;
+                    baseRevision = base.revision;
+                }
+            }
+        }
+        if (edits == null) {
+            snapshotCount.increment();
+            return new CodeBroadcastingInformation(information.getBroadcaster(), text, null, revision, null);
+        }
+        deltaCount.increment();
+        return new CodeBroadcastingInformation(information.getBroadcaster(), null, baseRevision, revision, edits);
+    }
+
+    // Next broadcast of the broadcaster is sent as a snapshot
+    public synchronized void reset(String broadcaster) {
+        bases.remove(keyOf(broadcaster));
+    }
+
+    public synchronized void resetAll() {
+        bases.clear();
+    }
+
+    public long getSnapshotCount() {
+        return snapshotCount.sum();
+    }
+
+    public long getDeltaCount() {
+        return deltaCount.sum();
+    }
+
+    private static int sizeOf(List<TextEdit> edits) {
+        var size = 0;
+        for (var edit : edits)
+            size += EDIT_OVERHEAD + edit.getInsert().length();
+        return size;
+    }
+
+    static String keyOf(String broadcaster) {
+        return broadcaster != null ? broadcaster : "";
+    }
+
+    private static class Base {
+
+        private final String text;
+        private final String revision;
+
+        private Base(String text, String revision) {
+            this.text = text;
+            this.revision = revision;
+        }
+
+    }
+
+}
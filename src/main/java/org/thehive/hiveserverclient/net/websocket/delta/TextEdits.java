@@ -0,0 +1,48 @@
+package org.thehive.hiveserverclient.net.websocket.delta;
+
+import lombok.NonNull;
+import org.thehive.hiveserverclient.payload.TextEdit;
+
+import java.util.List;
+
+public class TextEdits {
+
+    // Single edit replacing the range between the common prefix and the common suffix, which covers typing,
+    // deleting and pasting at one place, empty when the texts are equal
+    public static List<TextEdit> between(@NonNull String base, @NonNull String target) {
+        var limit = Math.min(base.length(), target.length());
+        var prefix = 0;
+        while (prefix < limit && base.charAt(prefix) == target.charAt(prefix))
+            prefix++;
+        // Edit boundaries don't split a surrogate pair
+        if (prefix > 0 && prefix < limit && Character.isHighSurrogate(base.charAt(prefix - 1)))
+            prefix--;
+        var suffix = 0;
+        while (suffix < limit - prefix && base.charAt(base.length() - 1 - suffix) == target.charAt(target.length() - 1 - suffix))
+            suffix++;
+        if (suffix > 0 && suffix < limit - prefix && Character.isLowSurrogate(base.charAt(base.length() - suffix)))
+            suffix--;
+        var deleteLength = base.length() - prefix - suffix;
+        var insert = target.substring(prefix, target.length() - suffix);
+        if (deleteLength == 0 && insert.isEmpty())
+            return List.of();
+        return List.of(new TextEdit(prefix, deleteLength, insert));
+    }
+
+    // Edits are applied in order, each against the result of the previous one
+    public static String apply(@NonNull String base, @NonNull List<TextEdit> edits) throws IllegalArgumentException {
+        var text = base;
+        for (var edit : edits) {
+            var insert = edit.getInsert() != null ? edit.getInsert() : "";
+            if (edit.getOffset() < 0 || edit.getDeleteLength() < 0 || edit.getOffset() + edit.getDeleteLength() > text.length())
+                throw new IllegalArgumentException("Edit is out of text bounds, edit: " + edit + ", textLength: " + text.length());
+            var builder = new StringBuilder(text.length() - edit.getDeleteLength() + insert.length());
+            builder.append(text, 0, edit.getOffset())
+                    .append(insert)
+                    .append(text, edit.getOffset() + edit.getDeleteLength(), text.length());
+            text = builder.toString();
+        }
+        return text;
+    }
+
+}
@@ -0,0 +1,18 @@
+package org.thehive.hiveserverclient.net.websocket.delta;
+
+import lombok.NonNull;
+
+public class TextRevision {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // 64-bit FNV-1a taking a UTF-16 code unit per round, far fewer collisions than the 32-bit String.hashCode
+    public static String of(@NonNull String text) {
+        var hash = FNV_OFFSET_BASIS;
+        for (var i = 0; i < text.length(); i++)
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        return Long.toHexString(hash);
+    }
+
+}
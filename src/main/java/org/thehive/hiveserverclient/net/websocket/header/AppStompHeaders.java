@@ -6,6 +6,14 @@ import org.springframework.messaging.simp.stomp.StompHeaders;
 public class AppStompHeaders extends StompHeadersProxy implements AppHeaders {
 
     public static final String PAYLOAD_TYPE = "payload-type";
+    // Connect frame lists the accepted encodings in preference order, connected frame carries the chosen one
+    public static final String PAYLOAD_ENCODING = "payload-encoding";
+    // Connect frame offers delta encoded code broadcasts, connected frame accepts them when the server gives full text
+    // to the peers which haven't offered it
+    public static final String CODE_BROADCAST_DELTA = "code-broadcast-delta";
+
+    // Resolved once per frame, the headers of a received frame are read-only
+    private PayloadType payloadType;
 
     public AppStompHeaders(@NonNull StompHeaders stompHeaders) {
         super(stompHeaders);
@@ -13,7 +21,20 @@ public class AppStompHeaders extends StompHeadersProxy implements AppHeaders {
 
     @Override
     public PayloadType getPayloadType() {
-        return PayloadType.byValue(get(PAYLOAD_TYPE).get(0));
+        if (payloadType == null)
+            payloadType = payloadTypeOf(getFirst(PAYLOAD_TYPE));
+        return payloadType;
+    }
+
+    // Read from the raw headers, so a frame is typed without wrapping its headers
+    public static PayloadType payloadTypeOf(@NonNull StompHeaders headers) throws IllegalArgumentException {
+        return payloadTypeOf(headers.getFirst(PAYLOAD_TYPE));
+    }
+
+    private static PayloadType payloadTypeOf(String value) {
+        if (value == null)
+            throw new IllegalArgumentException("Frame doesn't have payload type header");
+        return PayloadType.byValue(value);
     }
 
 }
@@ -0,0 +1,55 @@
+package org.thehive.hiveserverclient.net.websocket.header;
+
+import lombok.NonNull;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Map;
+
+public enum PayloadEncoding {
+
+    JSON("json", MimeTypeUtils.APPLICATION_JSON),
+    // Stomp client sends frames as binary websocket messages only for octet streams, the codec parameter tells the format
+    SMILE("smile", new MimeType(MimeTypeUtils.APPLICATION_OCTET_STREAM, Map.of(PayloadEncoding.CODEC_PARAMETER, "smile")));
+
+    public static final String CODEC_PARAMETER = "codec";
+
+    public final String value;
+    public final MimeType mimeType;
+
+    PayloadEncoding(String value, MimeType mimeType) {
+        this.value = value;
+        this.mimeType = mimeType;
+    }
+
+    public static PayloadEncoding byValue(@NonNull String value) throws IllegalArgumentException {
+        switch (value.trim()) {
+            case "json":
+                return JSON;
+            case "smile":
+                return SMILE;
+            default:
+                throw new IllegalArgumentException("Given value is not supported, value: " + value);
+        }
+    }
+
+    // Frames without a known binary codec are text JSON
+    public static PayloadEncoding byContentType(MimeType contentType) {
+        if (contentType == null || !contentType.equalsTypeAndSubtype(MimeTypeUtils.APPLICATION_OCTET_STREAM))
+            return JSON;
+        var codec = contentType.getParameter(CODEC_PARAMETER);
+        return codec != null ? negotiated(codec) : JSON;
+    }
+
+    // Value of the connected header chosen by the server, servers which don't negotiate keep text JSON
+    public static PayloadEncoding negotiated(String value) {
+        if (value == null)
+            return JSON;
+        try {
+            return byValue(value);
+        } catch (IllegalArgumentException e) {
+            return JSON;
+        }
+    }
+
+}
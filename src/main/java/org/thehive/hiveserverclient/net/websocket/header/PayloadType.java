@@ -3,6 +3,9 @@ package org.thehive.hiveserverclient.net.websocket.header;
 import lombok.NonNull;
 import org.thehive.hiveserverclient.payload.*;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public enum PayloadType {
 
     LIVE_SESSION_INFORMATION(LiveSessionInformation.class, "live-session-information"),
@@ -13,6 +16,16 @@ public enum PayloadType {
     CODE_BROADCASTING_NOTIFICATION(CodeBroadcastingNotification.class, "code-broadcasting-notification"),
     CODE_BROADCASTING_INFORMATION(CodeBroadcastingInformation.class, "code-broadcasting-information");
 
+    private static final Map<Class<? extends Payload>, PayloadType> BY_TYPE = new HashMap<>();
+    private static final Map<String, PayloadType> BY_VALUE = new HashMap<>();
+
+    static {
+        for (var payloadType : values()) {
+            BY_TYPE.put(payloadType.type, payloadType);
+            BY_VALUE.put(payloadType.value, payloadType);
+        }
+    }
+
     public final Class<? extends Payload> type;
     public final String value;
 
@@ -21,11 +34,19 @@ public enum PayloadType {
         this.value = value;
     }
 
+    // Frames are resolved by a hash lookup instead of scanning the values
     public static PayloadType byValue(@NonNull String value) throws IllegalArgumentException {
-        for (var pt : PayloadType.values())
-            if (pt.value.equals(value))
-                return pt;
-        throw new IllegalArgumentException("Given value is not supported, value: " + value);
+        var payloadType = BY_VALUE.get(value);
+        if (payloadType == null)
+            throw new IllegalArgumentException("Given value is not supported, value: " + value);
+        return payloadType;
+    }
+
+    public static PayloadType byType(@NonNull Class<? extends Payload> type) throws IllegalArgumentException {
+        var payloadType = BY_TYPE.get(type);
+        if (payloadType == null)
+            throw new IllegalArgumentException("Given type is not supported, type: " + type.getName());
+        return payloadType;
     }
 
 }
@@ -13,4 +13,8 @@ public interface SubscriptionListener {
 
     void onUnsubscribe(StompSubscription subscription);
 
+    // Subscription can't be kept anymore, onUnsubscribe follows
+    default void onException(Throwable t) {
+    }
+
 }
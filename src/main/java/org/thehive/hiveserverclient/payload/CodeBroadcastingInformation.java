@@ -1,15 +1,36 @@
 package org.thehive.hiveserverclient.payload;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class CodeBroadcastingInformation implements Payload {
 
     private String broadcaster;
+    // Null in delta frames
     private String text;
+    // Delta frames carry edits against the text of baseRevision instead of the text
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String baseRevision;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String revision;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<TextEdit> edits;
+
+    public CodeBroadcastingInformation(String broadcaster, String text) {
+        this(broadcaster, text, null, null, null);
+    }
+
+    @JsonIgnore
+    public boolean isDelta() {
+        return edits != null;
+    }
 
 }
@@ -0,0 +1,17 @@
+package org.thehive.hiveserverclient.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Replaces deleteLength characters at offset with insert, offsets are in UTF-16 code units of the base text
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TextEdit {
+
+    private int offset;
+    private int deleteLength;
+    private String insert;
+
+}
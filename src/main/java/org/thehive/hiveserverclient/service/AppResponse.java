@@ -11,6 +11,15 @@ public interface AppResponse<R> {
                 .build();
     }
 
+    // Successful response whose body hasn't changed since the same request was answered last time
+    static <R> AppResponse<R> notModified(R result) {
+        return AppResponseImpl.<R>builder()
+                .status(ResponseStatus.SUCCESS)
+                .response(result)
+                .notModified(true)
+                .build();
+    }
+
     static <R> AppResponse<R> of(ResponseStatus status, String message) {
         return AppResponseImpl.<R>builder()
                 .status(status)
@@ -47,4 +56,8 @@ public interface AppResponse<R> {
 
     Optional<Throwable> exception();
 
+    default boolean isNotModified() {
+        return false;
+    }
+
 }
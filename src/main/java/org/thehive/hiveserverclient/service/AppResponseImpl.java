@@ -14,6 +14,7 @@ public class AppResponseImpl<R> implements AppResponse<R> {
     private final R response;
     private final String message;
     private final Throwable exception;
+    private final boolean notModified;
 
     @Override
     public ResponseStatus status() {
@@ -35,4 +36,9 @@ public class AppResponseImpl<R> implements AppResponse<R> {
         return Optional.ofNullable(exception);
     }
 
+    @Override
+    public boolean isNotModified() {
+        return notModified;
+    }
+
 }
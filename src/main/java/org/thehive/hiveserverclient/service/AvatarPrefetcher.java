@@ -0,0 +1,192 @@
+package org.thehive.hiveserverclient.service;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.thehive.hiveserverclient.net.websocket.header.AppStompHeaders;
+import org.thehive.hiveserverclient.net.websocket.subscription.StompSubscription;
+import org.thehive.hiveserverclient.net.websocket.subscription.SubscriptionListener;
+import org.thehive.hiveserverclient.payload.LiveSessionInformation;
+import org.thehive.hiveserverclient.payload.ParticipationNotification;
+import org.thehive.hiveserverclient.payload.Payload;
+import org.thehive.hiveserverclient.util.FutureUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+// Warms the image cache for the owner and participants of a session with a few loads at a time,
+// so interactive takes of the same usernames join a load which is already in flight.
+// Loads share the image service's http transport with interactive calls, the concurrency cap is the only isolation.
+// A load which doesn't complete within the timeout gives its slot back, the load itself is left to the cache.
+@Slf4j
+public class AvatarPrefetcher implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 2;
+    public static final Duration DEFAULT_LOAD_TIMEOUT = Duration.ofSeconds(30L);
+
+    private final CachedImageService imageService;
+    private final ExecutorService executorService;
+    private final boolean ownsExecutorService;
+    private final int maxConcurrency;
+    private final Duration loadTimeout;
+    private final LongAdder prefetchedCount;
+    // Guarded by this
+    private final LinkedHashSet<String> pending;
+    private int running;
+    private boolean closed;
+
+    public AvatarPrefetcher(@NonNull CachedImageService imageService, @NonNull ExecutorService executorService, int maxConcurrency) {
+        this(imageService, executorService, maxConcurrency, DEFAULT_LOAD_TIMEOUT, false);
+    }
+
+    public AvatarPrefetcher(@NonNull CachedImageService imageService, @NonNull ExecutorService executorService, int maxConcurrency,
+                            @NonNull Duration loadTimeout) {
+        this(imageService, executorService, maxConcurrency, loadTimeout, false);
+    }
+
+    public AvatarPrefetcher(@NonNull CachedImageService imageService, int maxConcurrency) {
+        this(imageService, Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "avatar-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        }), maxConcurrency, DEFAULT_LOAD_TIMEOUT, true);
+    }
+
+    public AvatarPrefetcher(CachedImageService imageService) {
+        this(imageService, DEFAULT_MAX_CONCURRENCY);
+    }
+
+    private AvatarPrefetcher(CachedImageService imageService, ExecutorService executorService, int maxConcurrency,
+                             Duration loadTimeout, boolean ownsExecutorService) {
+        if (maxConcurrency < 1)
+            throw new IllegalArgumentException("Max concurrency must be positive, maxConcurrency: " + maxConcurrency);
+        this.imageService = imageService;
+        this.executorService = executorService;
+        this.ownsExecutorService = ownsExecutorService;
+        this.maxConcurrency = maxConcurrency;
+        this.loadTimeout = loadTimeout;
+        this.prefetchedCount = new LongAdder();
+        this.pending = new LinkedHashSet<>();
+    }
+
+    // Listener which prefetches on session information and joins before passing every call to the given one
+    public SubscriptionListener listenerOf(@NonNull SubscriptionListener listener) {
+        return new SubscriptionListener() {
+            @Override
+            public void onSubscribe(StompSubscription subscription) {
+                listener.onSubscribe(subscription);
+            }
+
+            @Override
+            public void onSend(Payload payload) {
+                listener.onSend(payload);
+            }
+
+            @Override
+            public void onReceive(AppStompHeaders headers, Payload payload) {
+                prefetchOf(payload);
+                listener.onReceive(headers, payload);
+            }
+
+            @Override
+            public void onUnsubscribe(StompSubscription subscription) {
+                listener.onUnsubscribe(subscription);
+            }
+
+            @Override
+            public void onException(Throwable t) {
+                listener.onException(t);
+            }
+        };
+    }
+
+    public void prefetchOf(Payload payload) {
+        if (payload instanceof LiveSessionInformation) {
+            var information = (LiveSessionInformation) payload;
+            var usernames = new ArrayList<String>();
+            usernames.add(information.getOwner());
+            if (information.getParticipants() != null)
+                usernames.addAll(information.getParticipants());
+            prefetch(usernames);
+        } else if (payload instanceof ParticipationNotification) {
+            var notification = (ParticipationNotification) payload;
+            if (notification.isJoined() && notification.getParticipant() != null)
+                prefetch(List.of(notification.getParticipant()));
+        }
+    }
+
+    public synchronized void prefetch(@NonNull Collection<String> usernames) {
+        if (closed)
+            return;
+        for (var username : usernames)
+            if (username != null)
+                pending.add(username);
+        pump();
+    }
+
+    // Caller holds the lock
+    private void pump() {
+        while (running < maxConcurrency && !pending.isEmpty()) {
+            var iterator = pending.iterator();
+            var username = iterator.next();
+            iterator.remove();
+            running++;
+            try {
+                executorService.execute(() -> load(username));
+            } catch (RuntimeException e) {
+                log.warn("Prefetch couldn't be dispatched, username: {}", username, e);
+                running--;
+                return;
+            }
+        }
+    }
+
+    private void load(String username) {
+        try {
+            // Prefetch future is derived from the cached one, timing it out doesn't fail the load of interactive takes
+            FutureUtils.withDeadline(imageService.prefetch(username), loadTimeout).whenComplete((prefetched, t) -> {
+                if (t instanceof TimeoutException)
+                    log.debug("Prefetch has timed out, username: {}, timeout: {}", username, loadTimeout);
+                else if (t != null)
+                    log.debug("Prefetch has failed, username: {}", username, t);
+                else if (prefetched)
+                    prefetchedCount.increment();
+                finished();
+            });
+        } catch (RuntimeException e) {
+            log.warn("Error while prefetching, username: {}", username, e);
+            finished();
+        }
+    }
+
+    private synchronized void finished() {
+        running--;
+        if (!closed)
+            pump();
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getPrefetchedCount() {
+        return prefetchedCount.sum();
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            pending.clear();
+        }
+        if (ownsExecutorService)
+            executorService.shutdownNow();
+    }
+
+}
@@ -1,50 +1,218 @@
 package org.thehive.hiveserverclient.service;
 
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.thehive.hiveserverclient.Authentication;
 import org.thehive.hiveserverclient.model.Image;
 import org.thehive.hiveserverclient.net.http.ImageClient;
+import org.thehive.hiveserverclient.store.SegmentStore;
 
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
+// Concurrent misses of a username share one load, entries are weighed by image bytes and refreshed in the background.
+// Optional disk store below the cache answers misses across restarts, background refreshes always go to the server.
 @Slf4j
 public class CachedImageService extends ImageServiceImpl {
 
-    private final Cache<String, Image> cache;
+    public static final long DEFAULT_MAX_CACHE_MEGABYTES = 32L;
+    public static final Duration DEFAULT_REFRESH_AFTER_WRITE = Duration.ofMinutes(10L);
+    // Approximate footprint of an entry besides the image content
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+    // Average image size assumed when an entry count is mapped to a weight budget
+    private static final long ASSUMED_IMAGE_BYTES = 64L * 1024;
+    // Stored in place of a missing image id
+    private static final int NO_ID = Integer.MIN_VALUE;
+
+    private final AsyncLoadingCache<String, Image> cache;
     private final ExecutorService executorService;
+    // Null when images are cached only on heap
+    private final SegmentStore diskStore;
+    // Null unless given to the deprecated constructor
+    private final Cache<String, Image> backingCache;
+    private final LongAdder diskHitCount;
 
     public CachedImageService(@NonNull ImageClient imageClient, ExecutorService executorService) {
-        this(imageClient, executorService, 500);
+        this(imageClient, executorService, DEFAULT_MAX_CACHE_MEGABYTES, DEFAULT_REFRESH_AFTER_WRITE);
+    }
+
+    // Entry count is mapped to a weight budget assuming 64 KB images, 500 entries make the default 32 MB
+    @Deprecated
+    public CachedImageService(ImageClient imageClient, ExecutorService executorService, int maxCacheSize) {
+        this(imageClient, executorService, megabytesOf(maxCacheSize), DEFAULT_REFRESH_AFTER_WRITE);
+    }
+
+    // Given cache stays the backing store, misses are answered from it and loaded images are written to it,
+    // its size bound sizes the own cache weighed by bytes which is kept in front of it
+    @Deprecated
+    public CachedImageService(ImageClient imageClient, ExecutorService executorService, @NonNull Cache<String, Image> cache) {
+        this(imageClient, executorService, megabytesOf(cache.policy().eviction()
+                .filter(eviction -> !eviction.isWeighted())
+                .map(eviction -> eviction.getMaximum())
+                .orElse(DEFAULT_MAX_CACHE_MEGABYTES * 1024 * 1024 / ASSUMED_IMAGE_BYTES)), DEFAULT_REFRESH_AFTER_WRITE, null, cache);
+    }
+
+    public CachedImageService(ImageClient imageClient, ExecutorService executorService,
+                              long maxCacheMegabytes, Duration refreshAfterWrite) {
+        this(imageClient, executorService, maxCacheMegabytes, refreshAfterWrite, null);
     }
 
-    public CachedImageService(@NonNull ImageClient imageClient, ExecutorService executorService, int maxCacheSize) {
-        this(imageClient, executorService, Caffeine.newBuilder().maximumSize(maxCacheSize).build());
+    public CachedImageService(ImageClient imageClient, ExecutorService executorService,
+                              long maxCacheMegabytes, Duration refreshAfterWrite, @Nullable SegmentStore diskStore) {
+        this(imageClient, executorService, maxCacheMegabytes, refreshAfterWrite, diskStore, null);
     }
 
-    public CachedImageService(@NonNull ImageClient imageClient, @NonNull ExecutorService executorService, @NonNull Cache<String, Image> cache) {
+    private CachedImageService(@NonNull ImageClient imageClient, @NonNull ExecutorService executorService, long maxCacheMegabytes,
+                               @NonNull Duration refreshAfterWrite, SegmentStore diskStore, Cache<String, Image> backingCache) {
         super(imageClient);
-        this.cache = cache;
+        if (maxCacheMegabytes < 1)
+            throw new IllegalArgumentException("Max cache megabytes must be positive, maxCacheMegabytes: " + maxCacheMegabytes);
         this.executorService = executorService;
+        this.diskStore = diskStore;
+        this.backingCache = backingCache;
+        this.diskHitCount = new LongAdder();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxCacheMegabytes * 1024 * 1024)
+                .weigher((String username, Image image) -> weightOf(username, image))
+                .refreshAfterWrite(refreshAfterWrite)
+                .executor(executorService)
+                .recordStats()
+                .buildAsync(new AsyncCacheLoader<>() {
+                    @Override
+                    public CompletableFuture<Image> asyncLoad(String username, Executor executor) {
+                        return load(username, true);
+                    }
+
+                    // Unsuccessful refresh keeps serving the previous image
+                    @Override
+                    public CompletableFuture<Image> asyncReload(String username, Image oldImage, Executor executor) {
+                        return load(username, false).thenApply(image -> image != null ? image : oldImage);
+                    }
+                });
+    }
+
+    private static long megabytesOf(long maxCacheSize) {
+        if (maxCacheSize < 1)
+            throw new IllegalArgumentException("Max cache size must be positive, maxCacheSize: " + maxCacheSize);
+        return Math.max(1L, (maxCacheSize * ASSUMED_IMAGE_BYTES + 1024 * 1024 - 1) / (1024 * 1024));
+    }
+
+    private static int weightOf(String username, Image image) {
+        var contentLength = image.getContent() != null ? image.getContent().length : 0;
+        return (int) Math.min(Integer.MAX_VALUE, ENTRY_OVERHEAD_BYTES + username.length() * 2L + contentLength);
     }
 
-    @SuppressWarnings({"unchecked", "OptionalGetWithoutIsPresent"})
     @Override
     public void take(@NonNull String username, @NonNull Consumer<? super AppResponse<? extends Image>> consumer) {
         var cachedImage = cache.getIfPresent(username);
-        if (cachedImage != null) {
+        if (cachedImage != null)
             log.info("Image is taken from cache, username: {}", username);
-            executorService.execute(() -> consumer.accept(AppResponse.wrap(cachedImage)));
-        } else {
-            super.take(username, consumer.andThen(response -> {
-                var appResponse = (AppResponse<? extends Image>) response;
-                if (appResponse.status().isSuccess())
-                    cache.put(username, appResponse.response().get());
-            }));
+        else if (!Authentication.INSTANCE.isAuthenticated())
+            throw new IllegalStateException("Authentication instance has not been authenticated");
+        var image = cachedImage != null ? cachedImage : cache.get(username);
+        LoadFuture.whenLoaded(cache, username, image, consumer, executorService);
+    }
+
+    // Warms the cache without a consumer, a username which is cached or loading isn't requested again
+    public CompletableFuture<Boolean> prefetch(@NonNull String username) {
+        if (cache.asMap().containsKey(username) || !Authentication.INSTANCE.isAuthenticated())
+            return CompletableFuture.completedFuture(false);
+        return cache.get(username).thenApply(image -> image != null);
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    public long getDiskHitCount() {
+        return diskHitCount.sum();
+    }
+
+    public long getWeightedSize() {
+        var synchronousCache = cache.synchronous();
+        synchronousCache.cleanUp();
+        return synchronousCache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    private LoadFuture<Image> load(String username, boolean fromDisk) {
+        var future = new LoadFuture<Image>();
+        if (fromDisk && backingCache != null) {
+            var backed = backingCache.getIfPresent(username);
+            if (backed != null) {
+                future.complete(backed);
+                return future;
+            }
+        }
+        if (fromDisk && diskStore != null) {
+            var stored = diskStore.get(username);
+            if (stored != null) {
+                diskHitCount.increment();
+                log.info("Image is taken from disk, username: {}", username);
+                future.complete(imageOf(stored));
+                return future;
+            }
+        }
+        try {
+            super.take(username, response -> {
+                var image = response.response().orElse(null);
+                if (response.status().isSuccess() && image != null)
+                    stored(username, image);
+                future.complete(response);
+            });
+        } catch (RuntimeException e) {
+            future.fail(AppResponse.of(e));
         }
+        return future;
     }
 
-}
+    // Called on the thread completing the request, which is the I/O reactor of an async transport, so the disk write
+    // goes to the executor
+    private void stored(String username, Image image) {
+        if (backingCache != null)
+            backingCache.put(username, image);
+        if (diskStore == null)
+            return;
+        try {
+            executorService.execute(() -> {
+                try {
+                    diskStore.put(username, bytesOf(image));
+                } catch (RuntimeException e) {
+                    log.warn("Image couldn't be stored on disk, username: {}", username, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Image isn't stored on disk after shutdown, username: {}", username);
+        }
+    }
+
+    private static byte[] bytesOf(Image image) {
+        var content = image.getContent() != null ? image.getContent() : new byte[0];
+        return ByteBuffer.allocate(Integer.BYTES + content.length)
+                .putInt(image.getId() != null ? image.getId() : NO_ID)
+                .put(content)
+                .array();
+    }
+
+    // Image holds its content as an array, so the mapped bytes are copied once here
+    private static Image imageOf(ByteBuffer stored) {
+        var id = stored.getInt();
+        var content = new byte[stored.remaining()];
+        stored.get(content);
+        return new Image(id != NO_ID ? id : null, content);
+    }
 
+}
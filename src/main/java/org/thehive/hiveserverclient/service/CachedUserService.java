@@ -0,0 +1,143 @@
+package org.thehive.hiveserverclient.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.thehive.hiveserverclient.Authentication;
+import org.thehive.hiveserverclient.model.User;
+import org.thehive.hiveserverclient.net.http.UserClient;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+// Profiles are cached by id, and the authenticated user's own profile by username.
+// Concurrent misses share one load, entries expire after a while and are refreshed in the background,
+// a successful update drops the cached profile of that id.
+@Slf4j
+public class CachedUserService extends UserServiceImpl {
+
+    public static final long DEFAULT_MAX_CACHE_SIZE = 1000L;
+    public static final Duration DEFAULT_EXPIRE_AFTER_WRITE = Duration.ofMinutes(30L);
+    public static final Duration DEFAULT_REFRESH_AFTER_WRITE = Duration.ofMinutes(5L);
+
+    private final AsyncLoadingCache<Integer, User> byId;
+    private final AsyncLoadingCache<String, User> byUsername;
+    private final ExecutorService executorService;
+
+    public CachedUserService(@NonNull UserClient userClient, ExecutorService executorService) {
+        this(userClient, executorService, DEFAULT_MAX_CACHE_SIZE, DEFAULT_EXPIRE_AFTER_WRITE, DEFAULT_REFRESH_AFTER_WRITE);
+    }
+
+    public CachedUserService(@NonNull UserClient userClient, @NonNull ExecutorService executorService,
+                             long maxCacheSize, @NonNull Duration expireAfterWrite, @NonNull Duration refreshAfterWrite) {
+        super(userClient);
+        if (maxCacheSize < 1)
+            throw new IllegalArgumentException("Max cache size must be positive, maxCacheSize: " + maxCacheSize);
+        if (refreshAfterWrite.compareTo(expireAfterWrite) >= 0)
+            throw new IllegalArgumentException("Refresh must happen before expiry, refreshAfterWrite: " + refreshAfterWrite + ", expireAfterWrite: " + expireAfterWrite);
+        this.executorService = executorService;
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxCacheSize)
+                .expireAfterWrite(expireAfterWrite)
+                .refreshAfterWrite(refreshAfterWrite)
+                .executor(executorService)
+                .recordStats()
+                .buildAsync(new AsyncCacheLoader<>() {
+                    @Override
+                    public CompletableFuture<User> asyncLoad(Integer id, Executor executor) {
+                        return loadById(id);
+                    }
+
+                    // Unsuccessful refresh keeps serving the previous profile until it expires
+                    @Override
+                    public CompletableFuture<User> asyncReload(Integer id, User oldUser, Executor executor) {
+                        return loadById(id).thenApply(user -> user != null ? user : oldUser);
+                    }
+                });
+        this.byUsername = Caffeine.newBuilder()
+                .maximumSize(maxCacheSize)
+                .expireAfterWrite(expireAfterWrite)
+                .refreshAfterWrite(refreshAfterWrite)
+                .executor(executorService)
+                .recordStats()
+                .buildAsync(new AsyncCacheLoader<>() {
+                    @Override
+                    public CompletableFuture<User> asyncLoad(String username, Executor executor) {
+                        return loadOwn();
+                    }
+
+                    @Override
+                    public CompletableFuture<User> asyncReload(String username, User oldUser, Executor executor) {
+                        return loadOwn().thenApply(user -> user != null ? user : oldUser);
+                    }
+                });
+    }
+
+    @Override
+    public void profile(@NonNull Consumer<? super AppResponse<? extends User>> consumer) {
+        if (!Authentication.INSTANCE.isAuthenticated())
+            throw new IllegalStateException("Authentication instance has not been authenticated");
+        var username = Authentication.INSTANCE.getUsername();
+        LoadFuture.whenLoaded(byUsername, username, byUsername.get(username), consumer, executorService);
+    }
+
+    @Override
+    public void profile(int id, @NonNull Consumer<? super AppResponse<? extends User>> consumer) {
+        // Looked up through the map view first so that a miss isn't recorded twice
+        if (byId.asMap().containsKey(id))
+            log.info("User is taken from cache, id: {}", id);
+        else if (!Authentication.INSTANCE.isAuthenticated())
+            throw new IllegalStateException("Authentication instance has not been authenticated");
+        LoadFuture.whenLoaded(byId, id, byId.get(id), consumer, executorService);
+    }
+
+    @Override
+    public void update(int id, @NonNull User user, @NonNull Consumer<? super AppResponse<? extends User>> consumer) {
+        super.update(id, user, response -> {
+            if (response.status().isSuccess())
+                invalidate(id);
+            consumer.accept(response);
+        });
+    }
+
+    public void invalidate(int id) {
+        byId.synchronous().invalidate(id);
+        byUsername.synchronous().asMap().values().removeIf(user -> user.getId() != null && user.getId() == id);
+        log.info("User is invalidated, id: {}", id);
+    }
+
+    public CacheStats stats() {
+        return byId.synchronous().stats().plus(byUsername.synchronous().stats());
+    }
+
+    public long getCachedCount() {
+        return byId.synchronous().estimatedSize() + byUsername.synchronous().estimatedSize();
+    }
+
+    private LoadFuture<User> loadById(int id) {
+        var future = new LoadFuture<User>();
+        try {
+            super.profile(id, future::complete);
+        } catch (RuntimeException e) {
+            future.fail(AppResponse.of(e));
+        }
+        return future;
+    }
+
+    private LoadFuture<User> loadOwn() {
+        var future = new LoadFuture<User>();
+        try {
+            super.profile(future::complete);
+        } catch (RuntimeException e) {
+            future.fail(AppResponse.of(e));
+        }
+        return future;
+    }
+
+}
@@ -0,0 +1,44 @@
+package org.thehive.hiveserverclient.service;
+
+import java.util.concurrent.TimeUnit;
+
+// Rate of the last complete one second window, frames of a connection are marked from its transport thread
+class FrameRateMeter {
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1L);
+
+    private long windowStartNanos;
+    private long windowCount;
+    private long totalCount;
+    private double lastRate;
+
+    FrameRateMeter() {
+        this.windowStartNanos = System.nanoTime();
+    }
+
+    synchronized void mark() {
+        roll(System.nanoTime());
+        windowCount++;
+        totalCount++;
+    }
+
+    synchronized double getRate() {
+        roll(System.nanoTime());
+        return lastRate;
+    }
+
+    synchronized long getTotalCount() {
+        return totalCount;
+    }
+
+    private void roll(long nowNanos) {
+        var elapsed = nowNanos - windowStartNanos;
+        if (elapsed < WINDOW_NANOS)
+            return;
+        // Idle windows after the last complete one mean no frames
+        lastRate = elapsed < 2 * WINDOW_NANOS ? windowCount * (double) WINDOW_NANOS / elapsed : 0d;
+        windowStartNanos = nowNanos;
+        windowCount = 0L;
+    }
+
+}
@@ -1,11 +1,17 @@
 package org.thehive.hiveserverclient.service;
 
 import org.thehive.hiveserverclient.model.Image;
+import org.thehive.hiveserverclient.util.FutureUtils;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public interface ImageService {
 
     void take(String username, Consumer<? super AppResponse<? extends Image>> consumer);
 
+    default CompletableFuture<AppResponse<? extends Image>> takeAsync(String username) {
+        return FutureUtils.fromConsumer(consumer -> take(username, consumer));
+    }
+
 }
@@ -0,0 +1,48 @@
+package org.thehive.hiveserverclient.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+// Cache load which completes with null when unsuccessful, the cache drops it without logging
+// and its response goes to every consumer waiting on the load
+class LoadFuture<T> extends CompletableFuture<T> {
+
+    private volatile AppResponse<? extends T> failure;
+
+    void complete(AppResponse<? extends T> response) {
+        if (response.status().isSuccess())
+            complete(response.response().orElse(null));
+        else
+            fail(response);
+    }
+
+    void fail(AppResponse<? extends T> response) {
+        this.failure = response;
+        complete((T) null);
+    }
+
+    static <T> AppResponse<? extends T> responseOf(CompletableFuture<T> future, T value, Throwable t) {
+        if (t != null)
+            return AppResponse.of(t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+        if (value == null && future instanceof LoadFuture && ((LoadFuture<T>) future).failure != null)
+            return ((LoadFuture<T>) future).failure;
+        return AppResponse.wrap(value);
+    }
+
+    // Cache drops an unsuccessful load on the completing thread, it's removed before the response is delivered as well
+    // so that a consumer retrying right away loads again instead of joining the finished load
+    static <K, T> void whenLoaded(AsyncCache<K, T> cache, K key, CompletableFuture<T> future,
+                                  Consumer<? super AppResponse<? extends T>> consumer, Executor executor) {
+        future.whenCompleteAsync((value, t) -> {
+            var response = responseOf(future, value, t);
+            if (!response.status().isSuccess())
+                cache.asMap().remove(key, future);
+            consumer.accept(response);
+        }, executor);
+    }
+
+}
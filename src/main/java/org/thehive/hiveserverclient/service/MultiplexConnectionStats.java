@@ -0,0 +1,20 @@
+package org.thehive.hiveserverclient.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import org.thehive.hiveserverclient.net.websocket.ConnectionStatus;
+
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class MultiplexConnectionStats {
+
+    private final int index;
+    private final ConnectionStatus status;
+    private final int subscriptionCount;
+    private final long receivedFrameCount;
+    // Frames per second over the last complete window
+    private final double receivedFrameRate;
+
+}
@@ -0,0 +1,267 @@
+package org.thehive.hiveserverclient.service;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.thehive.hiveserverclient.Authentication;
+import org.thehive.hiveserverclient.model.Session;
+import org.thehive.hiveserverclient.util.FutureUtils;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Local copy of the session listing which is refreshed by fetching only sessions created after the newest one seen.
+// Falls back to diffing full listings when the server rejects or ignores the query, and probes the query again after an
+// interval since the server may have been upgraded or the rejection transient. A full listing is diffed every few refreshes
+// anyway since removals aren't visible incrementally. Listeners get the differences instead of the array.
+@Slf4j
+public class SessionIndex {
+
+    public static final int DEFAULT_FULL_SYNC_INTERVAL = 10;
+    public static final Duration DEFAULT_INCREMENTAL_RETRY_INTERVAL = Duration.ofMinutes(5L);
+
+    private static final Comparator<Session> CREATION_ORDER = Comparator
+            .comparingLong((Session session) -> session.getCreationTime() != null ? session.getCreationTime() : Long.MIN_VALUE)
+            .thenComparingInt(Session::getId);
+    private static final Session[] EMPTY = new Session[0];
+
+    private final SessionService sessionService;
+    private final int fullSyncInterval;
+    private final long incrementalRetryIntervalNanos;
+    private final List<SessionIndexListener> listeners;
+    // Guarded by this
+    private final Map<Integer, Session> sessions;
+    private Session[] snapshot;
+    // Full listing diffed last time
+    private Session[] lastListing;
+    private Session newest;
+    private boolean incrementalSupported;
+    private long incrementalDisabledNanos;
+    private int refreshesSinceFullSync;
+    private long incrementalRefreshCount;
+    private long fullRefreshCount;
+    // Non-null while a refresh is in flight, later callers wait for its result
+    private List<Consumer<? super AppResponse<? extends Session[]>>> waiting;
+
+    public SessionIndex(@NonNull SessionService sessionService, int fullSyncInterval, @NonNull Duration incrementalRetryInterval) {
+        if (fullSyncInterval < 1)
+            throw new IllegalArgumentException("Full sync interval must be positive, fullSyncInterval: " + fullSyncInterval);
+        this.sessionService = sessionService;
+        this.fullSyncInterval = fullSyncInterval;
+        this.incrementalRetryIntervalNanos = incrementalRetryInterval.toNanos();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.sessions = new HashMap<>();
+        this.snapshot = EMPTY;
+        this.incrementalSupported = true;
+    }
+
+    public SessionIndex(SessionService sessionService, int fullSyncInterval) {
+        this(sessionService, fullSyncInterval, DEFAULT_INCREMENTAL_RETRY_INTERVAL);
+    }
+
+    public SessionIndex(SessionService sessionService) {
+        this(sessionService, DEFAULT_FULL_SYNC_INTERVAL);
+    }
+
+    public void addListener(@NonNull SessionIndexListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(SessionIndexListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void refresh(@NonNull Consumer<? super AppResponse<? extends Session[]>> consumer) {
+        if (!Authentication.INSTANCE.isAuthenticated())
+            throw new IllegalStateException("Authentication instance has not been authenticated");
+        boolean incremental;
+        long creationTime;
+        int id;
+        synchronized (this) {
+            if (waiting != null) {
+                waiting.add(consumer);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(consumer);
+            if (!incrementalSupported && System.nanoTime() - incrementalDisabledNanos >= incrementalRetryIntervalNanos) {
+                log.debug("Incremental session listing is probed again");
+                incrementalSupported = true;
+            }
+            incremental = incrementalSupported && newest != null && refreshesSinceFullSync < fullSyncInterval - 1;
+            creationTime = newest != null && newest.getCreationTime() != null ? newest.getCreationTime() : Long.MIN_VALUE;
+            id = newest != null ? newest.getId() : Integer.MIN_VALUE;
+        }
+        try {
+            if (incremental)
+                sessionService.takeSince(creationTime, id, this::incrementalTaken);
+            else
+                sessionService.takeAll(this::fullTaken);
+        } catch (RuntimeException e) {
+            finish(AppResponse.of(e), Collections.emptyList());
+        }
+    }
+
+    public CompletableFuture<AppResponse<? extends Session[]>> refreshAsync() {
+        return FutureUtils.fromConsumer(this::refresh);
+    }
+
+    // Ordered by creation time and id
+    public synchronized Session[] getSessions() {
+        return snapshot.clone();
+    }
+
+    public synchronized int getSize() {
+        return sessions.size();
+    }
+
+    public synchronized boolean isIncrementalSupported() {
+        return incrementalSupported;
+    }
+
+    public synchronized long getIncrementalRefreshCount() {
+        return incrementalRefreshCount;
+    }
+
+    public synchronized long getFullRefreshCount() {
+        return fullRefreshCount;
+    }
+
+    private void incrementalTaken(AppResponse<? extends Session[]> response) {
+        var status = response.status();
+        if (status == ResponseStatus.ERROR_INVALID || status == ResponseStatus.ERROR_UNAVAILABLE) {
+            log.info("Incremental session listing isn't supported, status: {}", status.name());
+            synchronized (this) {
+                incrementalDisabled();
+            }
+            takeAllAfterIncremental();
+            return;
+        }
+        if (!status.isSuccess()) {
+            finish(response, Collections.emptyList());
+            return;
+        }
+        Session[] taken = response.response().isPresent() ? response.response().get() : EMPTY;
+        List<Runnable> events;
+        synchronized (this) {
+            // Server which ignores the query answers with sessions already seen, the answer is a full listing then
+            if (Arrays.stream(taken).anyMatch(session -> session.getId() != null && CREATION_ORDER.compare(session, newest) <= 0)) {
+                log.info("Session listing query is ignored by the server, full listings are diffed until it is probed again");
+                incrementalDisabled();
+                events = diff(taken);
+            } else {
+                incrementalRefreshCount++;
+                refreshesSinceFullSync++;
+                events = merge(taken);
+            }
+        }
+        finish(AppResponse.of(snapshot()), events);
+    }
+
+    private void takeAllAfterIncremental() {
+        try {
+            sessionService.takeAll(this::fullTaken);
+        } catch (RuntimeException e) {
+            finish(AppResponse.of(e), Collections.emptyList());
+        }
+    }
+
+    private void fullTaken(AppResponse<? extends Session[]> response) {
+        if (!response.status().isSuccess()) {
+            finish(response, Collections.emptyList());
+            return;
+        }
+        Session[] taken = response.response().isPresent() ? response.response().get() : EMPTY;
+        List<Runnable> events;
+        synchronized (this) {
+            // Conditional cache is shared, so an unmodified listing is skipped only when it is the one this index diffed last,
+            // and no incremental refresh has merged sessions since. Elements of the cached listing are shared, the check is cheap.
+            if (response.isNotModified() && refreshesSinceFullSync == 0 && Arrays.equals(taken, lastListing)) {
+                fullRefreshCount++;
+                events = Collections.emptyList();
+            } else
+                events = diff(taken);
+        }
+        finish(AppResponse.of(snapshot()), events);
+    }
+
+    // Caller holds the lock
+    private void incrementalDisabled() {
+        incrementalSupported = false;
+        incrementalDisabledNanos = System.nanoTime();
+    }
+
+    // Caller holds the lock
+    private List<Runnable> diff(Session[] listing) {
+        fullRefreshCount++;
+        refreshesSinceFullSync = 0;
+        lastListing = listing.clone();
+        var events = new ArrayList<Runnable>();
+        var present = new HashSet<Integer>();
+        for (var session : listing)
+            if (session.getId() != null)
+                present.add(session.getId());
+        var iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            var session = iterator.next();
+            if (!present.contains(session.getId())) {
+                iterator.remove();
+                events.add(() -> listeners.forEach(listener -> listener.onRemoved(session)));
+            }
+        }
+        events.addAll(merge(listing));
+        if (!events.isEmpty())
+            ordered();
+        return events;
+    }
+
+    // Caller holds the lock
+    private List<Runnable> merge(Session[] taken) {
+        var events = new ArrayList<Runnable>();
+        for (var session : taken) {
+            if (session.getId() == null)
+                continue;
+            var previous = sessions.put(session.getId(), session);
+            if (previous == null)
+                events.add(() -> listeners.forEach(listener -> listener.onAdded(session)));
+            else if (!previous.equals(session))
+                events.add(() -> listeners.forEach(listener -> listener.onChanged(previous, session)));
+        }
+        if (!events.isEmpty())
+            ordered();
+        return events;
+    }
+
+    // Caller holds the lock
+    private void ordered() {
+        var ordered = sessions.values().toArray(EMPTY);
+        Arrays.sort(ordered, CREATION_ORDER);
+        snapshot = ordered;
+        newest = ordered.length > 0 ? ordered[ordered.length - 1] : null;
+    }
+
+    private synchronized Session[] snapshot() {
+        return snapshot.clone();
+    }
+
+    // Refreshes are serial, so listeners see events in the order the listings were taken
+    private void finish(AppResponse<? extends Session[]> response, List<Runnable> events) {
+        for (var event : events) {
+            try {
+                event.run();
+            } catch (RuntimeException e) {
+                log.warn("Error while notifying session index listener", e);
+            }
+        }
+        List<Consumer<? super AppResponse<? extends Session[]>>> consumers;
+        synchronized (this) {
+            consumers = waiting;
+            waiting = null;
+        }
+        for (var consumer : consumers)
+            consumer.accept(response);
+    }
+
+}
@@ -0,0 +1,13 @@
+package org.thehive.hiveserverclient.service;
+
+import org.thehive.hiveserverclient.model.Session;
+
+public interface SessionIndexListener {
+
+    void onAdded(Session session);
+
+    void onRemoved(Session session);
+
+    void onChanged(Session previous, Session session);
+
+}
@@ -2,15 +2,38 @@ package org.thehive.hiveserverclient.service;
 
 
 import org.thehive.hiveserverclient.model.Session;
+import org.thehive.hiveserverclient.util.FutureUtils;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public interface SessionService {
 
     void takeAll(Consumer<? super AppResponse<? extends Session[]>> consumer);
 
+    // Services without the incremental query answer with the full listing, which callers can tell by the sessions already seen
+    default void takeSince(long creationTime, int id, Consumer<? super AppResponse<? extends Session[]>> consumer) {
+        takeAll(consumer);
+    }
+
     void takeLive(String liveId, Consumer<? super AppResponse<? extends Session>> consumer);
 
     void create(Session session, Consumer<? super AppResponse<? extends Session>> consumer);
 
+    default CompletableFuture<AppResponse<? extends Session[]>> takeAllAsync() {
+        return FutureUtils.fromConsumer(this::takeAll);
+    }
+
+    default CompletableFuture<AppResponse<? extends Session[]>> takeSinceAsync(long creationTime, int id) {
+        return FutureUtils.fromConsumer(consumer -> takeSince(creationTime, id, consumer));
+    }
+
+    default CompletableFuture<AppResponse<? extends Session>> takeLiveAsync(String liveId) {
+        return FutureUtils.fromConsumer(consumer -> takeLive(liveId, consumer));
+    }
+
+    default CompletableFuture<AppResponse<? extends Session>> createAsync(Session session) {
+        return FutureUtils.fromConsumer(consumer -> create(session, consumer));
+    }
+
 }
@@ -33,6 +33,13 @@ public class SessionServiceImpl implements SessionService {
                 consumer.accept(response);
             }
 
+            @Override
+            public void onNotModified(Session[] responseBody) {
+                var response = AppResponse.notModified(responseBody);
+                log.info("#takeAll status: {}, notModified: true", response.status().name());
+                consumer.accept(response);
+            }
+
             @Override
             public void onError(Error error) {
                 AppResponse<Session[]> response;
@@ -53,6 +60,41 @@ public class SessionServiceImpl implements SessionService {
         }, HeaderUtils.httpBasicAuthenticationHeader(Authentication.INSTANCE.getToken()));
     }
 
+    @Override
+    public void takeSince(long creationTime, int id, @NonNull Consumer<? super AppResponse<? extends Session[]>> consumer) {
+        log.info("#takeSince creationTime: {}, id: {}", creationTime, id);
+        if (!Authentication.INSTANCE.isAuthenticated())
+            throw new IllegalStateException("Authentication instance has not been authenticated");
+        sessionClient.getSessionsSince(creationTime, id, new RequestCallback<>() {
+            @Override
+            public void onResponse(Session[] responseBody) {
+                var response = AppResponse.of(responseBody);
+                log.info("#takeSince creationTime: {}, id: {}, status: {}", creationTime, id, response.status().name());
+                consumer.accept(response);
+            }
+
+            @Override
+            public void onError(Error error) {
+                AppResponse<Session[]> response;
+                if (error.getStatus() == 400)
+                    response = AppResponse.of(ResponseStatus.ERROR_INVALID, error.getMessage());
+                else if (error.getStatus() == 404)
+                    response = AppResponse.of(ResponseStatus.ERROR_UNAVAILABLE, error.getMessage());
+                else
+                    response = AppResponse.of(error.getMessage());
+                log.info("#takeSince creationTime: {}, id: {}, status: {}", creationTime, id, response.status().name());
+                consumer.accept(response);
+            }
+
+            @Override
+            public void onFail(Throwable t) {
+                var response = AppResponse.<Session[]>of(t);
+                log.info("#takeSince creationTime: {}, id: {}, status: {}", creationTime, id, response.status().name());
+                consumer.accept(response);
+            }
+        }, HeaderUtils.httpBasicAuthenticationHeader(Authentication.INSTANCE.getToken()));
+    }
+
     @Override
     public void takeLive(String liveId, Consumer<? super AppResponse<? extends Session>> consumer) {
         log.info("#takeLive liveId: {}", liveId);
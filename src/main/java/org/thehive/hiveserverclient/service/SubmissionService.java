@@ -1,7 +1,9 @@
 package org.thehive.hiveserverclient.service;
 
 import org.thehive.hiveserverclient.model.Submission;
+import org.thehive.hiveserverclient.util.FutureUtils;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public interface SubmissionService {
@@ -14,4 +16,20 @@ public interface SubmissionService {
 
     void submit(Submission submission, Consumer<? super AppResponse<? extends Submission>> consumer);
 
+    default CompletableFuture<AppResponse<? extends Submission[]>> takeAllAsync() {
+        return FutureUtils.fromConsumer(this::takeAll);
+    }
+
+    default CompletableFuture<AppResponse<? extends Submission[]>> takeAllBySessionAsync(int sessionId) {
+        return FutureUtils.fromConsumer(consumer -> takeAllBySession(sessionId, consumer));
+    }
+
+    default CompletableFuture<AppResponse<? extends Submission>> takeThisAsync() {
+        return FutureUtils.fromConsumer(this::takeThis);
+    }
+
+    default CompletableFuture<AppResponse<? extends Submission>> submitAsync(Submission submission) {
+        return FutureUtils.fromConsumer(consumer -> submit(submission, consumer));
+    }
+
 }
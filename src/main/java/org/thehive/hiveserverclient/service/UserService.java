@@ -1,7 +1,9 @@
 package org.thehive.hiveserverclient.service;
 
 import org.thehive.hiveserverclient.model.User;
+import org.thehive.hiveserverclient.util.FutureUtils;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public interface UserService {
@@ -14,4 +16,26 @@ public interface UserService {
 
     void profile(int id, Consumer<? super AppResponse<? extends User>> consumer);
 
+    void update(int id, User user, Consumer<? super AppResponse<? extends User>> consumer);
+
+    default CompletableFuture<AppResponse<? extends User>> signInAsync(String username, String password) {
+        return FutureUtils.fromConsumer(consumer -> signIn(username, password, consumer));
+    }
+
+    default CompletableFuture<AppResponse<? extends User>> signUpAsync(User user) {
+        return FutureUtils.fromConsumer(consumer -> signUp(user, consumer));
+    }
+
+    default CompletableFuture<AppResponse<? extends User>> profileAsync() {
+        return FutureUtils.fromConsumer(this::profile);
+    }
+
+    default CompletableFuture<AppResponse<? extends User>> profileAsync(int id) {
+        return FutureUtils.fromConsumer(consumer -> profile(id, consumer));
+    }
+
+    default CompletableFuture<AppResponse<? extends User>> updateAsync(int id, User user) {
+        return FutureUtils.fromConsumer(consumer -> update(id, user, consumer));
+    }
+
 }
@@ -155,4 +155,40 @@ public class UserServiceImpl implements UserService {
         }, HeaderUtils.httpBasicAuthenticationHeader(Authentication.INSTANCE.getToken()));
     }
 
+    @Override
+    public void update(int id, @NonNull User user, @NonNull Consumer<? super AppResponse<? extends User>> consumer) {
+        log.info("#update id: {}, user: {}", id, user);
+        if (!Authentication.INSTANCE.isAuthenticated())
+            throw new IllegalStateException("Authentication instance has not been authenticated");
+        userClient.update(id, user, new RequestCallback<>() {
+            @Override
+            public void onResponse(User responseBody) {
+                var response = AppResponse.of(responseBody);
+                log.info("#update id: {}, status: {}", id, response.status().name());
+                consumer.accept(response);
+            }
+
+            @Override
+            public void onError(Error error) {
+                AppResponse<User> response;
+                if (error.getStatus() == HttpStatus.SC_BAD_REQUEST) {
+                    response = AppResponse.of(ResponseStatus.ERROR_INVALID, error.getMessage());
+                } else if (error.getStatus() == HttpStatus.SC_NOT_FOUND) {
+                    response = AppResponse.of(ResponseStatus.ERROR_UNAVAILABLE, error.getMessage());
+                } else {
+                    response = AppResponse.of(error.getMessage());
+                }
+                log.info("#update id: {}, status: {}", id, response.status().name());
+                consumer.accept(response);
+            }
+
+            @Override
+            public void onFail(Throwable t) {
+                var response = AppResponse.<User>of(t);
+                log.info("#update id: {}, status: {}", id, response.status().name());
+                consumer.accept(response);
+            }
+        }, HeaderUtils.httpBasicAuthenticationHeader(Authentication.INSTANCE.getToken()));
+    }
+
 }
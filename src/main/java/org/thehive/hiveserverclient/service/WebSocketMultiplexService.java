@@ -0,0 +1,19 @@
+package org.thehive.hiveserverclient.service;
+
+import org.thehive.hiveserverclient.net.websocket.subscription.SessionSubscription;
+import org.thehive.hiveserverclient.net.websocket.subscription.SubscriptionListener;
+
+import java.util.List;
+
+public interface WebSocketMultiplexService {
+
+    // Subscription is placed on the least loaded connection of the pool and moved to another one when its connection is lost
+    SessionSubscription subscribeToSession(String id, SubscriptionListener listener);
+
+    int getSubscriptionCount();
+
+    List<MultiplexConnectionStats> getConnectionStats();
+
+    void close();
+
+}
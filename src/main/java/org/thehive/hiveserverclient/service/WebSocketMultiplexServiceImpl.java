@@ -0,0 +1,394 @@
+package org.thehive.hiveserverclient.service;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.thehive.hiveserverclient.net.websocket.WebSocketClient;
+import org.thehive.hiveserverclient.net.websocket.WebSocketConnection;
+import org.thehive.hiveserverclient.net.websocket.WebSocketListener;
+import org.thehive.hiveserverclient.net.websocket.header.AppStompHeaders;
+import org.thehive.hiveserverclient.net.websocket.subscription.SessionSubscription;
+import org.thehive.hiveserverclient.net.websocket.subscription.StompSubscription;
+import org.thehive.hiveserverclient.net.websocket.subscription.SubscriptionListener;
+import org.thehive.hiveserverclient.payload.Payload;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+// Session subscriptions share a pool of connections, each subscription keeps its own listener.
+// Listener is told about the subscription once, moving it to another connection isn't reported.
+// Subscriptions left without any connection to wait for, and the ones torn down by close, are reported as unsubscribed.
+@Slf4j
+public class WebSocketMultiplexServiceImpl extends WebSocketServiceImpl implements WebSocketMultiplexService {
+
+    public static final int DEFAULT_POOL_SIZE = 4;
+
+    private final int poolSize;
+    // Guarded by this
+    private final List<PooledConnection> connections;
+    // Subscriptions which lost their connection while no other connection was up
+    private final Set<MultiplexedSubscription> unplaced;
+    private int connectionSequence;
+    private boolean closed;
+
+    public WebSocketMultiplexServiceImpl(@NonNull WebSocketClient webSocketClient, int poolSize) {
+        super(webSocketClient);
+        if (poolSize < 1)
+            throw new IllegalArgumentException("Pool size must be positive, poolSize: " + poolSize);
+        this.poolSize = poolSize;
+        this.connections = new ArrayList<>(poolSize);
+        this.unplaced = new LinkedHashSet<>();
+    }
+
+    public WebSocketMultiplexServiceImpl(WebSocketClient webSocketClient) {
+        this(webSocketClient, DEFAULT_POOL_SIZE);
+    }
+
+    @Override
+    public SessionSubscription subscribeToSession(@NonNull String id, @NonNull SubscriptionListener listener) {
+        var subscription = new MultiplexedSubscription(id, listener);
+        var attaching = new ArrayList<Runnable>();
+        synchronized (this) {
+            if (closed)
+                throw new IllegalStateException("Service has been closed");
+            place(subscription, true, attaching);
+        }
+        attach(attaching);
+        return subscription;
+    }
+
+    @Override
+    public synchronized int getSubscriptionCount() {
+        return connections.stream().mapToInt(connection -> connection.subscriptions.size()).sum() + unplaced.size();
+    }
+
+    @Override
+    public synchronized List<MultiplexConnectionStats> getConnectionStats() {
+        return connections.stream()
+                .map(connection -> new MultiplexConnectionStats(connection.index, connection.connection.status(),
+                        connection.subscriptions.size(), connection.frameRateMeter.getTotalCount(), connection.frameRateMeter.getRate()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void close() {
+        List<PooledConnection> closing;
+        var ended = new ArrayList<MultiplexedSubscription>();
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            closing = List.copyOf(connections);
+            connections.clear();
+            ended.addAll(unplaced);
+            unplaced.clear();
+            for (var connection : closing) {
+                connection.removed = true;
+                ended.addAll(connection.subscriptions);
+                connection.subscriptions.clear();
+            }
+            for (var subscription : ended)
+                subscription.end();
+        }
+        for (var connection : closing)
+            connection.connection.disconnect();
+        for (var subscription : ended)
+            subscription.listener.onUnsubscribe(subscription);
+    }
+
+    // SUBSCRIBE frames are sent without the lock, so a slow connection doesn't stall the whole pool
+    private void attach(List<Runnable> attaching) {
+        for (var attach : attaching)
+            attach.run();
+    }
+
+    // Caller holds the lock, a new connection is opened while the pool isn't full and every connection has subscriptions
+    private void place(MultiplexedSubscription subscription, boolean open, List<Runnable> attaching) {
+        PooledConnection target = null;
+        for (var connection : connections)
+            if (target == null || connection.subscriptions.size() < target.subscriptions.size())
+                target = connection;
+        if (open && connections.size() < poolSize && (target == null || !target.subscriptions.isEmpty()))
+            target = open();
+        if (target == null) {
+            unplaced.add(subscription);
+            return;
+        }
+        target.assign(subscription, attaching);
+    }
+
+    // Caller holds the lock
+    private PooledConnection open() {
+        var pooled = new PooledConnection(connectionSequence++);
+        connections.add(pooled);
+        pooled.connection = connect(pooled);
+        log.debug("Connection has been opened, index: {}, poolSize: {}", pooled.index, connections.size());
+        return pooled;
+    }
+
+    // Caller holds the lock, replacement connections are opened only for connections which had been up
+    private void evict(PooledConnection pooled, boolean open, List<Runnable> attaching) {
+        if (pooled.removed)
+            return;
+        pooled.removed = true;
+        connections.remove(pooled);
+        var moved = List.copyOf(pooled.subscriptions);
+        pooled.subscriptions.clear();
+        for (var subscription : moved) {
+            subscription.detach();
+            place(subscription, open, attaching);
+        }
+        log.info("Connection has been evicted, index: {}, movedSubscriptionCount: {}", pooled.index, moved.size());
+    }
+
+    private class PooledConnection implements WebSocketListener {
+
+        private final int index;
+        private final Set<MultiplexedSubscription> subscriptions;
+        private final FrameRateMeter frameRateMeter;
+        private WebSocketConnection connection;
+        private boolean connected;
+        private boolean removed;
+
+        private PooledConnection(int index) {
+            this.index = index;
+            this.subscriptions = new LinkedHashSet<>();
+            this.frameRateMeter = new FrameRateMeter();
+        }
+
+        // Caller holds the lock
+        private void assign(MultiplexedSubscription subscription, List<Runnable> attaching) {
+            subscriptions.add(subscription);
+            subscription.owner = this;
+            if (connected && subscription.attachTo(this))
+                attaching.add(() -> subscription.attach(this));
+        }
+
+        @Override
+        public void onConnect(WebSocketConnection connection) {
+            var attaching = new ArrayList<Runnable>();
+            synchronized (WebSocketMultiplexServiceImpl.this) {
+                if (removed) {
+                    connection.disconnect();
+                    return;
+                }
+                connected = true;
+                for (var subscription : subscriptions)
+                    if (subscription.attachTo(this))
+                        attaching.add(() -> subscription.attach(this));
+                var waiting = List.copyOf(unplaced);
+                unplaced.clear();
+                for (var subscription : waiting)
+                    place(subscription, false, attaching);
+            }
+            attach(attaching);
+        }
+
+        @Override
+        public void onSubscribe(StompSubscription subscription) {
+        }
+
+        @Override
+        public void onUnsubscribe(StompSubscription subscription) {
+        }
+
+        @Override
+        public void onReceive(AppStompHeaders headers, Payload payload) {
+            frameRateMeter.mark();
+        }
+
+        @Override
+        public void onSend(Payload payload) {
+        }
+
+        @Override
+        public void onException(Throwable t) {
+            log.warn("Error on pooled connection, index: {}", index, t);
+            var attaching = new ArrayList<Runnable>();
+            var failed = new ArrayList<MultiplexedSubscription>();
+            synchronized (WebSocketMultiplexServiceImpl.this) {
+                // Connection which has never been up doesn't get a replacement, so an unreachable server isn't retried in a loop
+                if (!connected) {
+                    evict(this, false, attaching);
+                    // Without any connection left nothing would place the waiting subscriptions
+                    if (connections.isEmpty()) {
+                        failed.addAll(unplaced);
+                        unplaced.clear();
+                        for (var subscription : failed)
+                            subscription.end();
+                    }
+                }
+            }
+            attach(attaching);
+            for (var subscription : failed) {
+                log.warn("Subscription has been ended without a connection, id: {}", subscription.id);
+                subscription.listener.onException(t);
+                subscription.listener.onUnsubscribe(subscription);
+            }
+        }
+
+        @Override
+        public void onDisconnect(WebSocketConnection connection) {
+            var attaching = new ArrayList<Runnable>();
+            synchronized (WebSocketMultiplexServiceImpl.this) {
+                evict(this, true, attaching);
+            }
+            attach(attaching);
+        }
+
+    }
+
+    private class MultiplexedSubscription implements SessionSubscription {
+
+        private final String id;
+        private final SubscriptionListener listener;
+        private final AtomicBoolean subscribed;
+        private volatile SessionSubscription delegate;
+        private volatile boolean inSubscription;
+        // Guarded by the service
+        private PooledConnection owner;
+        // Guarded by the service, connection the subscription is being attached to without the lock
+        private PooledConnection attaching;
+
+        private MultiplexedSubscription(String id, SubscriptionListener listener) {
+            this.id = id;
+            this.listener = listener;
+            this.subscribed = new AtomicBoolean();
+            this.inSubscription = true;
+        }
+
+        // Caller holds the lock, true when the caller has to attach the subscription once the lock is released
+        private boolean attachTo(PooledConnection pooled) {
+            if (!inSubscription || delegate != null || attaching == pooled)
+                return false;
+            attaching = pooled;
+            return true;
+        }
+
+        // Caller doesn't hold the lock
+        private void attach(PooledConnection pooled) {
+            synchronized (WebSocketMultiplexServiceImpl.this) {
+                if (attaching != pooled)
+                    return;
+            }
+            var delegateListener = new DelegateListener();
+            SessionSubscription attached;
+            try {
+                attached = pooled.connection.subscribeToSession(id, delegateListener);
+            } catch (IllegalStateException e) {
+                log.warn("Subscription couldn't be attached, id: {}, status: {}", id, pooled.connection.status());
+                synchronized (WebSocketMultiplexServiceImpl.this) {
+                    if (attaching == pooled)
+                        attaching = null;
+                }
+                return;
+            }
+            synchronized (WebSocketMultiplexServiceImpl.this) {
+                if (attaching == pooled) {
+                    attaching = null;
+                    if (inSubscription && owner == pooled) {
+                        delegate = attached;
+                        return;
+                    }
+                }
+            }
+            // Unsubscribed or moved while attaching, the stale subscription is dropped without telling the listener
+            delegateListener.stale = true;
+            if (attached.isInSubscription()) {
+                try {
+                    attached.unsubscribe();
+                } catch (IllegalStateException e) {
+                    log.debug("Stale subscription has already been unsubscribed, id: {}", id);
+                }
+            }
+        }
+
+        // Subscription of a lost connection is gone with the connection
+        private void detach() {
+            delegate = null;
+            owner = null;
+            attaching = null;
+        }
+
+        // Caller holds the lock and tells the listener once the lock is released
+        private void end() {
+            inSubscription = false;
+            detach();
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public void send(Payload payload) {
+            var current = delegate;
+            if (!inSubscription || current == null)
+                throw new IllegalStateException("Subscription isn't attached to a connection, id: " + id);
+            current.send(payload);
+        }
+
+        @Override
+        public void unsubscribe() {
+            SessionSubscription current;
+            synchronized (WebSocketMultiplexServiceImpl.this) {
+                if (!inSubscription)
+                    throw new IllegalStateException();
+                inSubscription = false;
+                if (owner != null)
+                    owner.subscriptions.remove(this);
+                unplaced.remove(this);
+                current = delegate;
+                detach();
+            }
+            if (current != null && current.isInSubscription())
+                current.unsubscribe();
+            else
+                listener.onUnsubscribe(this);
+        }
+
+        @Override
+        public String getDestination() {
+            var current = delegate;
+            return current != null ? current.getDestination() : null;
+        }
+
+        @Override
+        public boolean isInSubscription() {
+            return inSubscription;
+        }
+
+        // Listener sees this subscription instead of the one of the current connection
+        private class DelegateListener implements SubscriptionListener {
+
+            private volatile boolean stale;
+
+            @Override
+            public void onSubscribe(StompSubscription subscription) {
+                if (!stale && subscribed.compareAndSet(false, true))
+                    listener.onSubscribe(MultiplexedSubscription.this);
+            }
+
+            @Override
+            public void onSend(Payload payload) {
+                listener.onSend(payload);
+            }
+
+            @Override
+            public void onReceive(AppStompHeaders headers, Payload payload) {
+                if (!stale)
+                    listener.onReceive(headers, payload);
+            }
+
+            @Override
+            public void onUnsubscribe(StompSubscription subscription) {
+                if (!stale)
+                    listener.onUnsubscribe(MultiplexedSubscription.this);
+            }
+
+        }
+
+    }
+
+}
@@ -29,7 +29,8 @@ public class WebSocketSingleConnServiceImpl extends WebSocketServiceImpl impleme
 
     @Override
     public boolean hasConnection() {
-        return connectionReference.get() != null && connectionReference.get().status() != ConnectionStatus.DISCONNECTED;
+        var connection = connectionReference.get();
+        return connection != null && connection.status() != ConnectionStatus.DISCONNECTING && connection.status() != ConnectionStatus.DISCONNECTED;
     }
 
     @Override
@@ -0,0 +1,70 @@
+package org.thehive.hiveserverclient.store;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Segment file mapped once at its full size, records are appended by the store and read through slices of the mapping
+@Slf4j
+final class Segment {
+
+    final long id;
+    final Path path;
+    private final FileChannel channel;
+    final MappedByteBuffer buffer;
+    final ByteBuffer readView;
+    // Bytes of records still referenced by the index
+    final AtomicLong liveBytes;
+    // Guarded by the store
+    int writePosition;
+
+    private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.readView = buffer.asReadOnlyBuffer();
+        this.liveBytes = new AtomicLong();
+    }
+
+    static Segment open(long id, Path path, int size) throws IOException {
+        var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    void close() {
+        buffer.force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Error while closing segment, path: {}", path, e);
+        }
+    }
+
+    // Slices handed out earlier stay readable, the mapping outlives the file
+    void delete() {
+        close();
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Segment couldn't be deleted, path: {}", path, e);
+        }
+    }
+
+}
@@ -0,0 +1,328 @@
+package org.thehive.hiveserverclient.store;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+// Append only store of byte values in memory mapped segment files, the index is rebuilt from the segments on open.
+// Record: magic, crc32 of the rest, version, written at epoch millis, key length, value length, key, value.
+@Slf4j
+public class SegmentStore implements AutoCloseable {
+
+    static final int MAGIC = 0x48495645;
+    static final int HEADER_LENGTH = 32;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private final SegmentStoreOptions options;
+    private final ConcurrentHashMap<String, IndexEntry> index;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+    private final AtomicLong compactionCount;
+    // Guarded by this
+    private final TreeMap<Long, Segment> segments;
+    private Segment active;
+    private long nextVersion;
+    private boolean closed;
+    private ScheduledFuture<?> compaction;
+
+    private SegmentStore(SegmentStoreOptions options) {
+        this.options = options;
+        this.index = new ConcurrentHashMap<>();
+        this.ownsScheduler = options.getScheduler() == null;
+        this.scheduler = ownsScheduler
+                ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    var thread = new Thread(runnable, "segment-store-compaction");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : options.getScheduler();
+        this.compactionCount = new AtomicLong();
+        this.segments = new TreeMap<>();
+        this.nextVersion = 1L;
+    }
+
+    public static SegmentStore open(@NonNull SegmentStoreOptions options) throws IOException {
+        if (options.getSegmentSize() <= HEADER_LENGTH)
+            throw new IllegalArgumentException("Segment size must be larger than a record header, segmentSize: " + options.getSegmentSize());
+        Files.createDirectories(options.getDirectory());
+        var store = new SegmentStore(options);
+        try {
+            store.load();
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+        var interval = options.getCompactionInterval().toMillis();
+        store.compaction = store.scheduler.scheduleWithFixedDelay(store::compactQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        return store;
+    }
+
+    private synchronized void load() throws IOException {
+        var ids = new ArrayList<Long>();
+        try (var paths = Files.list(options.getDirectory())) {
+            paths.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> {
+                        try {
+                            ids.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                        } catch (NumberFormatException e) {
+                            log.warn("Unexpected file in store directory, name: {}", name);
+                        }
+                    });
+        }
+        ids.sort(null);
+        for (var id : ids) {
+            var segment = Segment.open(id, segmentPath(id), options.getSegmentSize());
+            segments.put(id, segment);
+            replay(segment);
+        }
+        this.active = segments.isEmpty() ? roll() : segments.lastEntry().getValue();
+        log.info("Segment store has been opened, directory: {}, segmentCount: {}, entryCount: {}",
+                options.getDirectory(), segments.size(), index.size());
+    }
+
+    // Reading stops at the first record which is torn or fails its checksum, the next append overwrites it
+    private void replay(Segment segment) {
+        var buffer = segment.buffer;
+        var crc = new CRC32();
+        var now = System.currentTimeMillis();
+        var position = 0;
+        while (position + HEADER_LENGTH <= segment.capacity() && buffer.getInt(position) == MAGIC) {
+            var checksum = buffer.getInt(position + 4);
+            var version = buffer.getLong(position + 8);
+            var writtenAt = buffer.getLong(position + 16);
+            var keyLength = buffer.getInt(position + 24);
+            var valueLength = buffer.getInt(position + 28);
+            if (keyLength < 0 || valueLength < 0 || (long) position + HEADER_LENGTH + keyLength + valueLength > segment.capacity())
+                break;
+            var recordLength = HEADER_LENGTH + keyLength + valueLength;
+            if (checksumOf(crc, segment, position, recordLength) != checksum) {
+                log.warn("Record failed its checksum, segment: {}, position: {}", segment.id, position);
+                break;
+            }
+            var keyBytes = new byte[keyLength];
+            buffer.duplicate().position(position + HEADER_LENGTH).get(keyBytes);
+            var entry = new IndexEntry(segment, position, recordLength, keyLength, valueLength, version, writtenAt);
+            nextVersion = Math.max(nextVersion, version + 1);
+            position += recordLength;
+            if (isExpired(entry, now))
+                continue;
+            // Compaction copies keep their version, the copy in the later segment wins
+            var key = new String(keyBytes, StandardCharsets.UTF_8);
+            var current = index.get(key);
+            if (current != null && current.version > version)
+                continue;
+            index.put(key, entry);
+            segment.liveBytes.addAndGet(recordLength);
+            if (current != null)
+                current.segment.liveBytes.addAndGet(-current.recordLength);
+        }
+        segment.writePosition = position;
+    }
+
+    private static int checksumOf(CRC32 crc, Segment segment, int position, int recordLength) {
+        var view = segment.buffer.duplicate();
+        view.position(position + 8).limit(position + recordLength);
+        crc.reset();
+        crc.update(view);
+        return (int) crc.getValue();
+    }
+
+    // Returned buffer is a read only slice of the mapped segment
+    @Nullable
+    public ByteBuffer get(@NonNull String key) {
+        var entry = index.get(key);
+        if (entry == null)
+            return null;
+        if (isExpired(entry, System.currentTimeMillis())) {
+            if (index.remove(key, entry))
+                entry.segment.liveBytes.addAndGet(-entry.recordLength);
+            return null;
+        }
+        var view = entry.segment.readView.duplicate();
+        var valueOffset = entry.offset + HEADER_LENGTH + entry.keyLength;
+        view.position(valueOffset).limit(valueOffset + entry.valueLength);
+        return view.slice();
+    }
+
+    // Store is a cache tier, a value which can't be written is reported and skipped
+    public synchronized boolean put(@NonNull String key, @NonNull byte[] value) {
+        if (closed)
+            return false;
+        var keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        var recordLength = HEADER_LENGTH + keyBytes.length + value.length;
+        if (recordLength > options.getSegmentSize()) {
+            log.warn("Value is larger than a segment, key: {}, length: {}", key, value.length);
+            return false;
+        }
+        try {
+            var entry = append(keyBytes, value, nextVersion++, System.currentTimeMillis());
+            var previous = index.put(key, entry);
+            if (previous != null)
+                previous.segment.liveBytes.addAndGet(-previous.recordLength);
+            return true;
+        } catch (IOException e) {
+            log.warn("Value couldn't be stored, key: {}", key, e);
+            return false;
+        }
+    }
+
+    // Caller holds the lock
+    private IndexEntry append(byte[] keyBytes, byte[] value, long version, long writtenAt) throws IOException {
+        var recordLength = HEADER_LENGTH + keyBytes.length + value.length;
+        if (active.writePosition + recordLength > active.capacity())
+            active = roll();
+        var position = active.writePosition;
+        var view = active.buffer.duplicate();
+        view.position(position + 8);
+        view.putLong(version)
+                .putLong(writtenAt)
+                .putInt(keyBytes.length)
+                .putInt(value.length)
+                .put(keyBytes)
+                .put(value);
+        // Magic goes last, a record torn before it is never read back
+        active.buffer.putInt(position + 4, checksumOf(new CRC32(), active, position, recordLength));
+        active.buffer.putInt(position, MAGIC);
+        active.writePosition += recordLength;
+        var entry = new IndexEntry(active, position, recordLength, keyBytes.length, value.length, version, writtenAt);
+        active.liveBytes.addAndGet(recordLength);
+        return entry;
+    }
+
+    // Caller holds the lock
+    private IndexEntry copy(IndexEntry entry) throws IOException {
+        if (active.writePosition + entry.recordLength > active.capacity())
+            active = roll();
+        var source = entry.segment.buffer.duplicate();
+        source.position(entry.offset).limit(entry.offset + entry.recordLength);
+        var position = active.writePosition;
+        active.buffer.duplicate().position(position).put(source);
+        active.writePosition += entry.recordLength;
+        active.liveBytes.addAndGet(entry.recordLength);
+        return new IndexEntry(active, position, entry.recordLength, entry.keyLength, entry.valueLength, entry.version, entry.writtenAt);
+    }
+
+    // Caller holds the lock
+    private Segment roll() throws IOException {
+        var id = segments.isEmpty() ? 1L : segments.lastKey() + 1;
+        var segment = Segment.open(id, segmentPath(id), options.getSegmentSize());
+        segments.put(id, segment);
+        if (active != null)
+            active.buffer.force();
+        log.debug("Segment has been created, id: {}", id);
+        return segment;
+    }
+
+    private Path segmentPath(long id) {
+        return options.getDirectory().resolve(String.format("%s%010d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private boolean isExpired(IndexEntry entry, long now) {
+        return now - entry.writtenAt >= options.getTtl().toMillis();
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Error while compacting segments", e);
+        }
+    }
+
+    // Drops expired entries, then rewrites the live records of sparse sealed segments into the active one and deletes them
+    synchronized void compact() throws IOException {
+        if (closed)
+            return;
+        var now = System.currentTimeMillis();
+        for (var indexEntry : index.entrySet()) {
+            var entry = indexEntry.getValue();
+            if (isExpired(entry, now) && index.remove(indexEntry.getKey(), entry))
+                entry.segment.liveBytes.addAndGet(-entry.recordLength);
+        }
+        for (var segment : new ArrayList<>(segments.values())) {
+            if (segment == active || segment.liveBytes.get() >= segment.writePosition * options.getCompactionLiveRatio())
+                continue;
+            for (var indexEntry : index.entrySet()) {
+                var entry = indexEntry.getValue();
+                if (entry.segment != segment)
+                    continue;
+                var copied = copy(entry);
+                // Entry removed by an expiring read meanwhile leaves its copy dead
+                if (!index.replace(indexEntry.getKey(), entry, copied))
+                    copied.segment.liveBytes.addAndGet(-copied.recordLength);
+                segment.liveBytes.addAndGet(-entry.recordLength);
+            }
+            segments.remove(segment.id);
+            segment.delete();
+            compactionCount.incrementAndGet();
+            log.debug("Segment has been compacted, id: {}", segment.id);
+        }
+    }
+
+    public int getEntryCount() {
+        return index.size();
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getCompactionCount() {
+        return compactionCount.get();
+    }
+
+    @Override
+    public void close() {
+        if (compaction != null)
+            compaction.cancel(false);
+        if (ownsScheduler)
+            scheduler.shutdownNow();
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            for (var segment : segments.values())
+                segment.close();
+        }
+    }
+
+    private static final class IndexEntry {
+
+        private final Segment segment;
+        private final int offset;
+        private final int recordLength;
+        private final int keyLength;
+        private final int valueLength;
+        private final long version;
+        private final long writtenAt;
+
+        private IndexEntry(Segment segment, int offset, int recordLength, int keyLength, int valueLength, long version, long writtenAt) {
+            this.segment = segment;
+            this.offset = offset;
+            this.recordLength = recordLength;
+            this.keyLength = keyLength;
+            this.valueLength = valueLength;
+            this.version = version;
+            this.writtenAt = writtenAt;
+        }
+
+    }
+
+}
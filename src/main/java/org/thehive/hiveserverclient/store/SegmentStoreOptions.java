@@ -0,0 +1,34 @@
+package org.thehive.hiveserverclient.store;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Getter
+@Builder
+public class SegmentStoreOptions {
+
+    @NonNull
+    private final Path directory;
+    // Each segment file is mapped at this size, a record larger than a segment isn't stored
+    @Builder.Default
+    private final int segmentSize = 16 * 1024 * 1024;
+    @Builder.Default
+    private final Duration ttl = Duration.ofDays(7L);
+    // Sealed segment is rewritten once the share of its bytes still referenced by the index drops below this
+    @Builder.Default
+    private final double compactionLiveRatio = 0.5d;
+    @Builder.Default
+    private final Duration compactionInterval = Duration.ofMinutes(1L);
+    // Compaction runs on a daemon thread of the store when null
+    private final ScheduledExecutorService scheduler;
+
+    public static SegmentStoreOptions defaults(Path directory) {
+        return SegmentStoreOptions.builder().directory(directory).build();
+    }
+
+}
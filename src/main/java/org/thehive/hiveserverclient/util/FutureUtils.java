@@ -0,0 +1,54 @@
+package org.thehive.hiveserverclient.util;
+
+import lombok.NonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class FutureUtils {
+
+    // Future is completed on the thread that invokes the consumer, no executor hop is added
+    public static <T> CompletableFuture<T> fromConsumer(@NonNull Consumer<Consumer<T>> operation) {
+        var future = new CompletableFuture<T>();
+        try {
+            operation.accept(future::complete);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public static <T> CompletableFuture<T> withDeadline(@NonNull CompletableFuture<T> future, @NonNull Duration deadline) {
+        return future.orTimeout(deadline.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public static <T> CompletableFuture<List<T>> allOf(@NonNull List<? extends CompletableFuture<? extends T>> futures) {
+        var all = CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+        return all.thenApply(ignored -> {
+            var results = new ArrayList<T>(futures.size());
+            for (var future : futures)
+                results.add(future.join());
+            return results;
+        });
+    }
+
+    public static <T> CompletableFuture<List<T>> allOf(@NonNull List<? extends CompletableFuture<? extends T>> futures, @NonNull Duration deadline) {
+        return withDeadline(allOf(futures), deadline);
+    }
+
+    public static <A, B> CompletableFuture<Pair<A, B>> both(@NonNull CompletableFuture<? extends A> first,
+                                                            @NonNull CompletableFuture<? extends B> second) {
+        return first.thenCombine(second, Pair::of);
+    }
+
+    public static <A, B> CompletableFuture<Pair<A, B>> both(@NonNull CompletableFuture<? extends A> first,
+                                                            @NonNull CompletableFuture<? extends B> second,
+                                                            @NonNull Duration deadline) {
+        return withDeadline(both(first, second), deadline);
+    }
+
+}
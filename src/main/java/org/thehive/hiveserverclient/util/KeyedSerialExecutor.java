@@ -0,0 +1,87 @@
+package org.thehive.hiveserverclient.util;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+// Tasks with the same key run one at a time in submission order, tasks with different keys run in parallel on the executor
+@Slf4j
+public class KeyedSerialExecutor {
+
+    // Tasks of a key run in one batch before the key yields its thread to other keys
+    public static final int DEFAULT_BATCH_SIZE = 16;
+
+    private final Executor executor;
+    private final int batchSize;
+    private final ConcurrentMap<Object, ArrayDeque<Runnable>> queues;
+
+    public KeyedSerialExecutor(@NonNull Executor executor, int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be positive, batchSize: " + batchSize);
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.queues = new ConcurrentHashMap<>();
+    }
+
+    public KeyedSerialExecutor(@NonNull Executor executor) {
+        this(executor, DEFAULT_BATCH_SIZE);
+    }
+
+    public void execute(@NonNull Object key, @NonNull Runnable task) {
+        var created = new boolean[1];
+        queues.compute(key, (k, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                created[0] = true;
+            }
+            queue.add(task);
+            return queue;
+        });
+        // Only the submitter which created the queue schedules it, the queue is drained until it is removed
+        if (created[0])
+            schedule(key);
+    }
+
+    public int getActiveKeyCount() {
+        return queues.size();
+    }
+
+    private void schedule(Object key) {
+        try {
+            executor.execute(() -> drain(key));
+        } catch (RejectedExecutionException e) {
+            var queue = queues.remove(key);
+            log.warn("Tasks have been rejected by executor, key: {}, taskCount: {}", key, queue != null ? queue.size() : 0, e);
+        }
+    }
+
+    private void drain(Object key) {
+        for (var i = 0; i < batchSize; i++) {
+            var task = poll(key);
+            if (task == null)
+                return;
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.warn("Error while executing task, key: {}", key, e);
+            }
+        }
+        schedule(key);
+    }
+
+    // Removes the queue once it is empty, so the next submission of the key schedules it again
+    private Runnable poll(Object key) {
+        var next = new Runnable[1];
+        queues.computeIfPresent(key, (k, queue) -> {
+            next[0] = queue.poll();
+            return next[0] != null ? queue : null;
+        });
+        return next[0];
+    }
+
+}
@@ -0,0 +1,45 @@
+package org.thehive.hiveserverclient;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionModeTest {
+
+    static final long TIMEOUT_MS_EXECUTE = 5_000L;
+
+    @Test
+    @DisplayName("Each execution mode runs blocking tasks concurrently")
+    void eachExecutionModeRunsBlockingTasksConcurrently() throws InterruptedException {
+        final var taskCount = 16;
+        for (var executionMode : ExecutionMode.values()) {
+            var executorService = executionMode.newExecutorService(taskCount);
+            var started = new CountDownLatch(taskCount);
+            var release = new CountDownLatch(1);
+            for (var i = 0; i < taskCount; i++)
+                executorService.execute(() -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            assertTrue(started.await(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS), executionMode.name());
+            release.countDown();
+            executorService.shutdown();
+            assertTrue(executorService.awaitTermination(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS), executionMode.name());
+        }
+    }
+
+    @Test
+    @DisplayName("Platform mode rejects non-positive thread count")
+    void platformModeRejectsNonPositiveThreadCount() {
+        assertThrows(IllegalArgumentException.class, () -> ExecutionMode.PLATFORM.newExecutorService(0));
+    }
+
+}
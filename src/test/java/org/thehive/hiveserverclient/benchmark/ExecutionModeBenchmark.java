@@ -0,0 +1,113 @@
+package org.thehive.hiveserverclient.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.thehive.hiveserverclient.ExecutionMode;
+import org.thehive.hiveserverclient.model.Error;
+import org.thehive.hiveserverclient.model.User;
+import org.thehive.hiveserverclient.net.http.BlockingHttpTransport;
+import org.thehive.hiveserverclient.net.http.RequestCallback;
+import org.thehive.hiveserverclient.net.http.UserClientImpl;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Throughput of blocking http calls on platform and virtual threads against a local stub with fixed latency
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class ExecutionModeBenchmark {
+
+    static final byte[] USER_JSON = "{\"id\":1,\"username\":\"user\",\"email\":\"user@test.com\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    ExecutionMode executionMode;
+    @Param({"1000", "10000"})
+    int concurrentRequests;
+    // Platform pool stays at max threads, virtual threads are bounded by the connection pool only
+    @Param({"200"})
+    int maxThreads;
+    @Param({"200", "10000"})
+    int maxConnections;
+    @Param({"10"})
+    long latencyMs;
+
+    HttpServer server;
+    ExecutorService serverExecutor;
+    UserClientImpl userClient;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ExecutionModeBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        this.serverExecutor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 4096);
+        server.setExecutor(serverExecutor);
+        server.createContext("/user", exchange -> {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, USER_JSON.length);
+            try (var os = exchange.getResponseBody()) {
+                os.write(USER_JSON);
+            }
+        });
+        server.start();
+        var url = "http://localhost:" + server.getAddress().getPort() + "/user";
+        var transport = BlockingHttpTransport.create(executionMode, maxThreads, maxConnections);
+        this.userClient = new UserClientImpl(url, new ObjectMapper(), transport);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public int concurrentRequests() throws InterruptedException {
+        var latch = new CountDownLatch(concurrentRequests);
+        var responseCount = new AtomicInteger();
+        var callback = new RequestCallback<User>() {
+            @Override
+            public void onResponse(User responseBody) {
+                responseCount.incrementAndGet();
+                latch.countDown();
+            }
+
+            @Override
+            public void onError(Error error) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFail(Throwable t) {
+                latch.countDown();
+            }
+        };
+        for (var i = 0; i < concurrentRequests; i++)
+            userClient.get(callback);
+        if (!latch.await(1, TimeUnit.MINUTES))
+            throw new IllegalStateException("Requests haven't completed in time");
+        return responseCount.get();
+    }
+
+}
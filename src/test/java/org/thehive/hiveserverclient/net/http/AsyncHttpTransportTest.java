@@ -0,0 +1,164 @@
+package org.thehive.hiveserverclient.net.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.thehive.hiveserverclient.model.Error;
+import org.thehive.hiveserverclient.model.User;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class AsyncHttpTransportTest {
+
+    static final long TIMEOUT_MS_EXECUTE = 5_000L;
+    static final String USER_JSON = "{\"id\":1,\"username\":\"user\",\"email\":\"user@test.com\"}";
+    static final String ERROR_JSON = "{\"status\":404,\"message\":\"Not found\"}";
+
+    HttpServer server;
+    UserClientImpl userClient;
+    AtomicInteger requestCount;
+    CountDownLatch release;
+
+    @BeforeEach
+    void init() throws IOException {
+        this.requestCount = new AtomicInteger();
+        this.release = new CountDownLatch(0);
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/user", exchange -> {
+            requestCount.incrementAndGet();
+            try {
+                release.await(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            var notFound = exchange.getRequestURI().getPath().endsWith("/404");
+            var body = (notFound ? ERROR_JSON : USER_JSON).getBytes();
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(notFound ? 404 : 200, body.length);
+            try (var os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+        var url = "http://localhost:" + server.getAddress().getPort() + "/user";
+        this.userClient = new UserClientImpl(url, new ObjectMapper(), AsyncHttpTransport.create(32));
+    }
+
+    @AfterEach
+    void destroy() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("Concurrent requests complete from I/O completion")
+    void concurrentRequestsCompleteFromIoCompletion() throws InterruptedException {
+        final var requestCount = 200;
+        var latch = new CountDownLatch(requestCount);
+        var responseCount = new AtomicInteger();
+        var failRef = new AtomicReference<Throwable>();
+        var callback = new RequestCallback<User>() {
+            @Override
+            public void onResponse(User responseBody) {
+                if ("user".equals(responseBody.getUsername()))
+                    responseCount.incrementAndGet();
+                latch.countDown();
+            }
+
+            @Override
+            public void onError(Error error) {
+                log.error("Error: {}", error);
+                latch.countDown();
+            }
+
+            @Override
+            public void onFail(Throwable t) {
+                failRef.set(t);
+                latch.countDown();
+            }
+        };
+        for (var i = 0; i < requestCount; i++)
+            userClient.get(callback);
+        var completed = latch.await(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS);
+        if (!completed)
+            fail(new IllegalStateException("Callback execution timed out"));
+        assertNull(failRef.get());
+        assertEquals(requestCount, responseCount.get());
+    }
+
+    @Test
+    @DisplayName("Error status is delivered to onError")
+    void errorStatusIsDeliveredToOnError() throws InterruptedException {
+        var latch = new CountDownLatch(1);
+        var errRef = new AtomicReference<Error>();
+        userClient.get(404, new RequestCallback<>() {
+            @Override
+            public void onResponse(User responseBody) {
+                log.error("User: {}", responseBody);
+            }
+
+            @Override
+            public void onError(Error error) {
+                errRef.set(error);
+                latch.countDown();
+            }
+
+            @Override
+            public void onFail(Throwable t) {
+                log.error(t.getMessage());
+            }
+        });
+        var completed = latch.await(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS);
+        if (!completed)
+            fail(new IllegalStateException("Callback execution timed out"));
+        assertNotNull(errRef.get());
+        assertEquals(404, errRef.get().getStatus());
+    }
+
+    @Test
+    @DisplayName("Identical GET requests of a default client share one network call")
+    void identicalGetRequestsOfDefaultClientShareOneNetworkCall() throws InterruptedException {
+        this.release = new CountDownLatch(1);
+        final var callbackCount = 10;
+        var latch = new CountDownLatch(callbackCount);
+        var responseCount = new AtomicInteger();
+        for (var i = 0; i < callbackCount; i++)
+            userClient.get(1, new RequestCallback<>() {
+                @Override
+                public void onResponse(User responseBody) {
+                    responseCount.incrementAndGet();
+                    latch.countDown();
+                }
+
+                @Override
+                public void onError(Error error) {
+                    log.error("Error: {}", error);
+                    latch.countDown();
+                }
+
+                @Override
+                public void onFail(Throwable t) {
+                    log.error(t.getMessage());
+                    latch.countDown();
+                }
+            });
+        release.countDown();
+        var completed = latch.await(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS);
+        if (!completed)
+            fail(new IllegalStateException("Callback execution timed out"));
+        assertEquals(callbackCount, responseCount.get());
+        assertEquals(1, requestCount.get());
+    }
+
+}
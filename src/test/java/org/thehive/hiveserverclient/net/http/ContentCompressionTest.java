@@ -0,0 +1,154 @@
+package org.thehive.hiveserverclient.net.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.thehive.hiveserverclient.ExecutionMode;
+import org.thehive.hiveserverclient.model.Session;
+import org.thehive.hiveserverclient.model.Submission;
+import org.thehive.hiveserverclient.model.User;
+import org.thehive.hiveserverclient.stub.StubDataStore;
+import org.thehive.hiveserverclient.stub.StubHiveServer;
+import org.thehive.hiveserverclient.util.HeaderUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ContentCompressionTest {
+
+    static final String URL = "http://localhost:8080/submission";
+    static final long TIMEOUT_MS_EXECUTE = 10_000L;
+
+    final ObjectMapper objectMapper = new ObjectMapper();
+
+    static byte[] gzip(byte[] bytes) throws IOException {
+        var bos = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(bos)) {
+            gzip.write(bytes);
+        }
+        return bos.toByteArray();
+    }
+
+    static String submissionJson() {
+        var content = "public class Main { public static void main(String[] args) { System.out.println(args.length); } }\n".repeat(50);
+        return "{\"id\":1,\"content\":\"" + content.replace("\n", "\\n") + "\"}";
+    }
+
+    @Test
+    @DisplayName("Gzip response is decompressed and counted")
+    void gzipResponseIsDecompressedAndCounted() throws IOException {
+        var json = submissionJson().getBytes(StandardCharsets.UTF_8);
+        var compressed = gzip(json);
+        var requestRef = new AtomicReference<HttpUriRequest>();
+        var compression = ContentCompression.create();
+        var pipeline = RequestPipeline.builder()
+                .transport((request, listener) -> {
+                    requestRef.set(request);
+                    var response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+                    var entity = new ByteArrayEntity(compressed, ContentType.APPLICATION_JSON);
+                    entity.setContentEncoding("gzip");
+                    response.setEntity(entity);
+                    response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                    listener.onResponse(response);
+                })
+                .compression(compression)
+                .build();
+        RequestCallback<Submission> callback = RequestPipelineTest.callbackMock();
+        pipeline.execute(RequestUtils.getRequestOf(URL), JsonResponseDecoder.of(objectMapper, Submission.class), callback);
+        assertEquals(ContentCompression.ACCEPT_ENCODING, requestRef.get().getFirstHeader(HttpHeaders.ACCEPT_ENCODING).getValue());
+        verify(callback, only()).onResponse(ArgumentMatchers.argThat(submission -> submission.getContent().startsWith("public class Main")));
+        assertEquals(compressed.length, compression.getResponseWireBytes());
+        assertEquals(json.length, compression.getResponseDecodedBytes());
+    }
+
+    @Test
+    @DisplayName("Wire bytes of a gzip response from the blocking transport are counted before decoding")
+    void blockingTransportLeavesDecodingToCompression() {
+        var compression = ContentCompression.create();
+        var transport = BlockingHttpTransport.create(ExecutionMode.PLATFORM, 2, 2, true);
+        var pipeline = RequestPipeline.builder()
+                .transport(transport)
+                .compression(compression)
+                .build();
+        try (var server = StubHiveServer.start()) {
+            var submissionClient = new SubmissionClientImpl(server.getHttpUrl("/submission"), objectMapper, pipeline);
+            RequestCallback<Submission[]> callback = RequestPipelineTest.callbackMock();
+            submissionClient.getAllSubmissions(callback,
+                    HeaderUtils.httpBasicAuthenticationHeader(StubDataStore.USERNAME, StubDataStore.PASSWORD));
+            verify(callback, timeout(TIMEOUT_MS_EXECUTE)).onResponse(ArgumentMatchers.argThat(submissions -> submissions.length > 0));
+        }
+        assertTrue(compression.getResponseWireBytes() > 0);
+        assertTrue(compression.getResponseWireBytes() < compression.getResponseDecodedBytes(),
+                "wireBytes: " + compression.getResponseWireBytes() + ", decodedBytes: " + compression.getResponseDecodedBytes());
+    }
+
+    @Test
+    @DisplayName("Request body is compressed only above threshold")
+    void requestBodyIsCompressedOnlyAboveThreshold() throws Exception {
+        var compression = ContentCompression.builder().requestCompressionThreshold(256).build();
+        var body = submissionJson().getBytes(StandardCharsets.UTF_8);
+        var largeRequest = RequestUtils.postRequestOf(URL, body);
+        largeRequest.setEntity(ContentCompression.compressible(largeRequest.getEntity()));
+        compression.intercept(largeRequest);
+        var entity = ((HttpEntityEnclosingRequest) largeRequest).getEntity();
+        assertEquals("gzip", entity.getContentEncoding().getValue());
+        assertTrue(entity.getContentLength() < body.length);
+        try (var in = new GZIPInputStream(entity.getContent())) {
+            assertArrayEquals(body, in.readAllBytes());
+        }
+        var smallBody = "{}".getBytes(StandardCharsets.UTF_8);
+        var smallRequest = RequestUtils.putRequestOf(URL, smallBody);
+        smallRequest.setEntity(ContentCompression.compressible(smallRequest.getEntity()));
+        compression.intercept(smallRequest);
+        var smallEntity = ((HttpEntityEnclosingRequest) smallRequest).getEntity();
+        assertNull(smallEntity.getContentEncoding());
+        assertArrayEquals(smallBody, EntityUtils.toByteArray(smallEntity));
+        assertEquals(body.length + smallBody.length, compression.getRequestRawBytes());
+        assertEquals(entity.getContentLength() + smallBody.length, compression.getRequestWireBytes());
+    }
+
+    @Test
+    @DisplayName("Only bodies of submission saves and user updates are compressed")
+    void onlyMarkedBodiesAreCompressed() {
+        var requests = new ArrayList<HttpUriRequest>();
+        var pipeline = RequestPipeline.builder()
+                .transport((request, listener) -> requests.add(request))
+                .compression(ContentCompression.builder().requestCompressionThreshold(256).build())
+                .build();
+        var large = "x".repeat(4096);
+        var user = new User(1, "user", large + "@test.com", large, null);
+        var userClient = new UserClientImpl(URL, objectMapper, pipeline);
+        userClient.save(user, RequestPipelineTest.callbackMock());
+        userClient.update(1, user, RequestPipelineTest.callbackMock());
+        var session = new Session(1, large, null, 3_600_000L, null, 0L);
+        new SessionClientImpl(URL, objectMapper, pipeline).save(session, RequestPipelineTest.callbackMock());
+        var submission = new Submission();
+        submission.setContent(large);
+        new SubmissionClientImpl(URL, objectMapper, pipeline).save(submission, RequestPipelineTest.callbackMock());
+        var encodings = requests.stream()
+                .map(request -> ((HttpEntityEnclosingRequest) request).getEntity().getContentEncoding())
+                .map(encoding -> encoding != null ? encoding.getValue() : null)
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList(null, "gzip", null, "gzip"), encodings);
+    }
+
+}
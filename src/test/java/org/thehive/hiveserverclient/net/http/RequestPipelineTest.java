@@ -0,0 +1,263 @@
+package org.thehive.hiveserverclient.net.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.thehive.hiveserverclient.model.Error;
+import org.thehive.hiveserverclient.model.Submission;
+import org.thehive.hiveserverclient.model.User;
+import org.thehive.hiveserverclient.util.HeaderUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@ExtendWith(MockitoExtension.class)
+class RequestPipelineTest {
+
+    static final String URL = "http://localhost:8080/user";
+
+    final ObjectMapper objectMapper = new ObjectMapper();
+
+    static HttpTransport transportOf(int statusCode, String body) {
+        return (request, listener) -> {
+            var response = new BasicHttpResponse(HttpVersion.HTTP_1_1, statusCode, "Status " + statusCode);
+            response.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+            listener.onResponse(response);
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> RequestCallback<T> callbackMock() {
+        return mock(RequestCallback.class);
+    }
+
+    @Test
+    @DisplayName("Interceptors are applied and response is decoded")
+    void interceptorsAreAppliedAndResponseIsDecoded() {
+        var responseRef = new AtomicReference<HttpResponse>();
+        var pipeline = RequestPipeline.builder()
+                .transport(transportOf(200, "{\"id\":1,\"username\":\"user\"}"))
+                .requestInterceptor(request -> request.addHeader("X-Test", "true"))
+                .responseInterceptor((request, response) -> responseRef.set(response))
+                .build();
+        var req = RequestUtils.getRequestOf(URL);
+        RequestCallback<User> callback = callbackMock();
+        pipeline.execute(req, JsonResponseDecoder.of(objectMapper, User.class), callback);
+        assertTrue(req.containsHeader("X-Test"));
+        assertNotNull(responseRef.get());
+        verify(callback, only()).onResponse(ArgumentMatchers.argThat(user -> "user".equals(user.getUsername())));
+    }
+
+    @Test
+    @DisplayName("Error without body is mapped from status line")
+    void errorWithoutBodyIsMappedFromStatusLine() {
+        var pipeline = RequestPipeline.of(transportOf(404, ""));
+        RequestCallback<Submission> callback = callbackMock();
+        pipeline.execute(RequestUtils.getRequestOf(URL), JsonResponseDecoder.of(objectMapper, Submission.class, Submission.EMPTY), callback);
+        verify(callback, only()).onError(ArgumentMatchers.argThat(error -> error.getStatus() == 404));
+    }
+
+    @Test
+    @DisplayName("Empty successful body is decoded to empty value")
+    void emptySuccessfulBodyIsDecodedToEmptyValue() {
+        var pipeline = RequestPipeline.of(transportOf(200, ""));
+        RequestCallback<Submission> callback = callbackMock();
+        pipeline.execute(RequestUtils.getRequestOf(URL), JsonResponseDecoder.of(objectMapper, Submission.class, Submission.EMPTY), callback);
+        verify(callback, only()).onResponse(Submission.EMPTY);
+    }
+
+    @Test
+    @DisplayName("Exception thrown by callback doesn't trigger onFail")
+    void exceptionThrownByCallbackDoesNotTriggerOnFail() {
+        var pipeline = RequestPipeline.of(transportOf(500, "{\"status\":500}"));
+        RequestCallback<User> callback = callbackMock();
+        doThrow(new IllegalStateException()).when(callback).onError(ArgumentMatchers.any(Error.class));
+        pipeline.execute(RequestUtils.getRequestOf(URL), JsonResponseDecoder.of(objectMapper, User.class), callback);
+        verify(callback).onError(ArgumentMatchers.any());
+        verify(callback, never()).onFail(ArgumentMatchers.any());
+    }
+
+    @Test
+    @DisplayName("Undecodable body triggers onFail")
+    void undecodableBodyTriggersOnFail() {
+        var pipeline = RequestPipeline.of(transportOf(200, "not-json"));
+        RequestCallback<User> callback = callbackMock();
+        pipeline.execute(RequestUtils.getRequestOf(URL), JsonResponseDecoder.of(objectMapper, User.class), callback);
+        verify(callback, only()).onFail(ArgumentMatchers.any());
+    }
+
+    @Test
+    @DisplayName("Concurrent identical GET requests share one network call")
+    void concurrentIdenticalGetRequestsShareOneNetworkCall() {
+        var sentCount = new AtomicInteger();
+        var listeners = new ArrayList<ResponseListener>();
+        HttpTransport transport = (request, listener) -> {
+            sentCount.incrementAndGet();
+            listeners.add(listener);
+        };
+        var coalescer = new RequestCoalescer();
+        var pipeline = RequestPipeline.builder()
+                .transport(transport)
+                .coalescer(coalescer)
+                .build();
+        var decoder = JsonResponseDecoder.of(objectMapper, User.class);
+        var authHeader = HeaderUtils.httpBasicAuthenticationHeader("user", "password");
+        final var callbackCount = 10;
+        var users = new ArrayList<User>();
+        for (var i = 0; i < callbackCount; i++)
+            pipeline.execute(RequestUtils.getRequestOf(URL + "/1", authHeader), decoder, new RequestCallback<User>() {
+                @Override
+                public void onResponse(User responseBody) {
+                    users.add(responseBody);
+                }
+
+                @Override
+                public void onError(Error error) {
+                    log.error("Error: {}", error);
+                }
+
+                @Override
+                public void onFail(Throwable t) {
+                    log.error(t.getMessage());
+                }
+            });
+        RequestCallback<User> otherUserCallback = callbackMock();
+        pipeline.execute(RequestUtils.getRequestOf(URL + "/1", HeaderUtils.httpBasicAuthenticationHeader("other", "password")), decoder, otherUserCallback);
+        assertEquals(2, sentCount.get());
+        assertEquals(callbackCount - 1, coalescer.getDeduplicatedCount());
+        var response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new StringEntity("{\"id\":1,\"username\":\"user\"}", ContentType.APPLICATION_JSON));
+        listeners.get(0).onResponse(response);
+        assertEquals(callbackCount, users.size());
+        assertTrue(users.stream().allMatch(user -> user == users.get(0)));
+        assertEquals(1, coalescer.getInFlightCount());
+        RequestCallback<User> lateCallback = callbackMock();
+        pipeline.execute(RequestUtils.getRequestOf(URL + "/1", authHeader), decoder, lateCallback);
+        assertEquals(3, sentCount.get());
+        verify(lateCallback, never()).onResponse(ArgumentMatchers.any());
+    }
+
+    @Test
+    @DisplayName("Transport rejecting a request fails the callback and completes the coalesced flight")
+    void transportRejectionFailsCallbackAndCompletesFlight() {
+        var sentCount = new AtomicInteger();
+        var coalescer = new RequestCoalescer();
+        var pipeline = RequestPipeline.builder()
+                .transport((request, listener) -> {
+                    sentCount.incrementAndGet();
+                    throw new RejectedExecutionException("Executor has been shut down");
+                })
+                .coalescer(coalescer)
+                .build();
+        var decoder = JsonResponseDecoder.of(objectMapper, User.class);
+        for (var i = 0; i < 2; i++) {
+            RequestCallback<User> callback = callbackMock();
+            pipeline.execute(RequestUtils.getRequestOf(URL + "/1"), decoder, callback);
+            verify(callback, only()).onFail(ArgumentMatchers.any(RejectedExecutionException.class));
+        }
+        assertEquals(2, sentCount.get());
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    @Test
+    @DisplayName("Non-GET requests aren't coalesced")
+    void nonGetRequestsAreNotCoalesced() {
+        var sentCount = new AtomicInteger();
+        var coalescer = new RequestCoalescer();
+        var pipeline = RequestPipeline.builder()
+                .transport((request, listener) -> sentCount.incrementAndGet())
+                .coalescer(coalescer)
+                .build();
+        var decoder = JsonResponseDecoder.of(objectMapper, User.class);
+        for (var body : List.of("{}", "{}"))
+            pipeline.execute(RequestUtils.postRequestOf(URL, body), decoder, callbackMock());
+        assertEquals(2, sentCount.get());
+        assertEquals(0, coalescer.getDeduplicatedCount());
+    }
+
+    @Test
+    @DisplayName("Not modified response is answered from conditional cache")
+    void notModifiedResponseIsAnsweredFromConditionalCache() {
+        var etag = "\"v1\"";
+        var requestEtags = new ArrayList<String>();
+        HttpTransport transport = (request, listener) -> {
+            var ifNoneMatch = request.getFirstHeader(HttpHeaders.IF_NONE_MATCH);
+            requestEtags.add(ifNoneMatch != null ? ifNoneMatch.getValue() : null);
+            BasicHttpResponse response;
+            if (ifNoneMatch != null && etag.equals(ifNoneMatch.getValue()))
+                response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 304, "Not Modified");
+            else {
+                response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+                response.setEntity(new StringEntity("[{\"id\":1}]", ContentType.APPLICATION_JSON));
+            }
+            response.setHeader(HttpHeaders.ETAG, etag);
+            listener.onResponse(response);
+        };
+        var cache = new ConditionalResponseCache();
+        var pipeline = RequestPipeline.builder()
+                .transport(transport)
+                .responseCache(cache)
+                .build();
+        var decoder = JsonResponseDecoder.of(objectMapper, Submission[].class);
+        var submissions = new ArrayList<Submission[]>();
+        var notModified = new ArrayList<Boolean>();
+        var callback = new RequestCallback<Submission[]>() {
+            @Override
+            public void onResponse(Submission[] responseBody) {
+                submissions.add(responseBody);
+                notModified.add(false);
+            }
+
+            @Override
+            public void onNotModified(Submission[] responseBody) {
+                submissions.add(responseBody);
+                notModified.add(true);
+            }
+
+            @Override
+            public void onError(Error error) {
+                fail(error.getMessage());
+            }
+
+            @Override
+            public void onFail(Throwable t) {
+                fail(t);
+            }
+        };
+        for (var i = 0; i < 3; i++)
+            pipeline.executeConditional(RequestUtils.getRequestOf(URL), decoder, callback);
+        assertEquals(List.of(false, true, true), notModified);
+        assertEquals(Arrays.asList(null, etag, etag), requestEtags);
+        assertEquals(1, cache.getModifiedCount());
+        assertEquals(2, cache.getNotModifiedCount());
+        assertTrue(cache.getWeightedSize() > 0);
+        assertEquals(1, submissions.get(0)[0].getId());
+        assertArrayEquals(submissions.get(0), submissions.get(2));
+        // Callers get their own arrays, so one of them can't change what the others and the cache see
+        assertNotSame(submissions.get(0), submissions.get(1));
+        assertNotSame(submissions.get(1), submissions.get(2));
+        submissions.get(0)[0] = null;
+        submissions.get(1)[0] = null;
+        pipeline.executeConditional(RequestUtils.getRequestOf(URL), decoder, callback);
+        assertEquals(1, submissions.get(3)[0].getId());
+    }
+
+}
@@ -0,0 +1,52 @@
+package org.thehive.hiveserverclient.net.http;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.thehive.hiveserverclient.util.HeaderUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class RequestUtilsTest {
+
+    static final String URL = "http://localhost:8080/submission";
+
+    @DisplayName("Content length of non-ASCII body is its UTF-8 byte count")
+    @Test
+    void contentLengthOfNonAsciiBodyIsItsUtf8ByteCount() throws IOException {
+        final var bodyJson = "{\"content\":\"print('merhaba dünya, çğıöşü')\"}";
+        var expectedBytes = bodyJson.getBytes(StandardCharsets.UTF_8);
+        log.info("Body: {}, chars: {}, bytes: {}", bodyJson, bodyJson.length(), expectedBytes.length);
+        var req = RequestUtils.postRequestOf(URL, bodyJson);
+        assertEquals(expectedBytes.length, req.getEntity().getContentLength());
+        assertArrayEquals(expectedBytes, EntityUtils.toByteArray(req.getEntity()));
+        assertEquals("application/json; charset=UTF-8", req.getEntity().getContentType().getValue());
+    }
+
+    @DisplayName("Byte body is sent as is")
+    @Test
+    void byteBodyIsSentAsIs() throws IOException {
+        var body = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+        var req = RequestUtils.putRequestOf(URL, body);
+        assertEquals(body.length, req.getEntity().getContentLength());
+        assertArrayEquals(body, EntityUtils.toByteArray(req.getEntity()));
+    }
+
+    @DisplayName("Request key carries a digest of the credential instead of the credential")
+    @Test
+    void requestKeyCarriesDigestOfCredential() {
+        var token = HeaderUtils.httpBasicAuthenticationToken("user", "password");
+        var key = RequestUtils.keyOf(RequestUtils.getRequestOf(URL, HeaderUtils.httpBasicAuthenticationHeader(token)));
+        assertFalse(key.contains(token));
+        assertFalse(key.contains(token.substring(token.indexOf(' ') + 1)));
+        assertEquals(key, RequestUtils.keyOf(RequestUtils.getRequestOf(URL, HeaderUtils.httpBasicAuthenticationHeader(token))));
+        var otherToken = HeaderUtils.httpBasicAuthenticationToken("other", "password");
+        assertNotEquals(key, RequestUtils.keyOf(RequestUtils.getRequestOf(URL, HeaderUtils.httpBasicAuthenticationHeader(otherToken))));
+    }
+
+}
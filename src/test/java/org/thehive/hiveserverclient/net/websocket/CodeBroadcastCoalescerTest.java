@@ -0,0 +1,148 @@
+package org.thehive.hiveserverclient.net.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.thehive.hiveserverclient.net.websocket.header.AppStompHeaders;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadType;
+import org.thehive.hiveserverclient.net.websocket.subscription.SubscriptionListener;
+import org.thehive.hiveserverclient.payload.ChatMessage;
+import org.thehive.hiveserverclient.payload.CodeBroadcastingInformation;
+import org.thehive.hiveserverclient.payload.Payload;
+import org.thehive.hiveserverclient.util.Pair;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.*;
+
+class CodeBroadcastCoalescerTest {
+
+    ScheduledExecutorService scheduler;
+
+    @BeforeEach
+    void init() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Only the latest update of each broadcaster is flushed")
+    void onlyTheLatestUpdateOfEachBroadcasterIsFlushed() {
+        var flushed = new CopyOnWriteArrayList<CodeBroadcastingInformation>();
+        // Frame rate is low enough that the scheduled flush doesn't run during the test
+        var coalescer = new CodeBroadcastCoalescer<CodeBroadcastingInformation>(scheduler, 1, flushed::add);
+        for (var i = 0; i < 100; i++)
+            for (var broadcaster : List.of("first", "second"))
+                coalescer.offer(broadcaster, new CodeBroadcastingInformation(broadcaster, String.valueOf(i)));
+        coalescer.flush();
+        assertEquals(Set.of(new CodeBroadcastingInformation("first", "99"), new CodeBroadcastingInformation("second", "99")), Set.copyOf(flushed));
+        coalescer.flush();
+        assertEquals(2, flushed.size());
+        assertEquals(200, coalescer.getOfferedCount());
+        assertEquals(2, coalescer.getFlushedCount());
+        coalescer.close();
+    }
+
+    @Test
+    @DisplayName("Received code broadcasts are coalesced per frame and other payloads pass through")
+    void receivedCodeBroadcastsAreCoalescedPerFrame() {
+        var webSocketListener = mock(WebSocketListener.class);
+        var subscriptionListener = mock(SubscriptionListener.class);
+        var coalescer = new CodeBroadcastCoalescer<Pair<StompHeaders, CodeBroadcastingInformation>>(scheduler, 1,
+                update -> subscriptionListener.onReceive(new AppStompHeaders(update.key), update.value));
+        var handler = new SessionFrameHandler(webSocketListener, subscriptionListener, coalescer);
+        var headers = new StompHeaders();
+        headers.setDestination("/user/queue/session/1");
+        headers.add(AppStompHeaders.PAYLOAD_TYPE, PayloadType.CODE_BROADCASTING_INFORMATION.value);
+        for (var i = 0; i < 50; i++) {
+            handler.getPayloadType(headers);
+            handler.handleFrame(headers, new CodeBroadcastingInformation("user", String.valueOf(i)));
+        }
+        var chatHeaders = new StompHeaders();
+        chatHeaders.setDestination("/user/queue/session/1");
+        chatHeaders.add(AppStompHeaders.PAYLOAD_TYPE, PayloadType.CHAT_MESSAGE.value);
+        var chatMessage = new ChatMessage("user", "Hello", 0L);
+        handler.handleFrame(chatHeaders, chatMessage);
+        verify(subscriptionListener).onReceive(any(), same((Payload) chatMessage));
+        coalescer.flush();
+        coalescer.close();
+        verify(subscriptionListener).onReceive(any(), eq(new CodeBroadcastingInformation("user", "49")));
+        verify(subscriptionListener, times(2)).onReceive(any(), any());
+    }
+
+    @Test
+    @DisplayName("Flushed broadcasts keep their order with plain frames of the subscription")
+    void flushedBroadcastsKeepTheirOrderWithPlainFrames() throws Exception {
+        var pool = Executors.newFixedThreadPool(4);
+        try {
+            var received = new CopyOnWriteArrayList<Payload>();
+            var receivingThreads = ConcurrentHashMap.<Thread>newKeySet();
+            var concurrentCalls = new AtomicInteger();
+            var overlapped = new AtomicBoolean();
+            var release = new CountDownLatch(1);
+            SubscriptionListener subscriptionListener = mock(SubscriptionListener.class);
+            doAnswer(invocation -> {
+                if (concurrentCalls.incrementAndGet() > 1)
+                    overlapped.set(true);
+                receivingThreads.add(Thread.currentThread());
+                // First frame holds the lane, later frames wait behind it
+                if (received.isEmpty())
+                    release.await();
+                received.add(invocation.getArgument(1));
+                concurrentCalls.decrementAndGet();
+                return null;
+            }).when(subscriptionListener).onReceive(any(), any());
+            var onExecutorListener = new WebSocketClientImpl.WebSocketOnExecutorListener(mock(WebSocketListener.class), pool);
+            var receiver = onExecutorListener.receiverOf(subscriptionListener);
+            var coalescer = new CodeBroadcastCoalescer<Pair<StompHeaders, CodeBroadcastingInformation>>(scheduler, 1,
+                    update -> receiver.accept(new AppStompHeaders(update.key), update.value));
+            var handler = new SessionFrameHandler(receiver, coalescer, null, null);
+            var chatHeaders = headersOf(PayloadType.CHAT_MESSAGE);
+            var codeHeaders = headersOf(PayloadType.CODE_BROADCASTING_INFORMATION);
+            var firstMessage = new ChatMessage("user", "First", 0L);
+            var secondMessage = new ChatMessage("user", "Second", 0L);
+            handler.handleFrame(chatHeaders, firstMessage);
+            handler.handleFrame(codeHeaders, new CodeBroadcastingInformation("user", "1"));
+            handler.handleFrame(codeHeaders, new CodeBroadcastingInformation("user", "2"));
+            // Flush only hands the update over, it doesn't wait for the listener which is still busy
+            coalescer.flush();
+            handler.handleFrame(chatHeaders, secondMessage);
+            assertTrue(received.isEmpty());
+            release.countDown();
+            var deadline = System.currentTimeMillis() + 5_000L;
+            while (received.size() < 3 && System.currentTimeMillis() < deadline)
+                Thread.sleep(10L);
+            assertEquals(List.of(firstMessage, new CodeBroadcastingInformation("user", "2"), secondMessage), received);
+            assertFalse(overlapped.get());
+            assertFalse(receivingThreads.contains(Thread.currentThread()));
+            coalescer.close();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    static StompHeaders headersOf(PayloadType payloadType) {
+        var headers = new StompHeaders();
+        headers.setDestination("/user/queue/session/1");
+        headers.add(AppStompHeaders.PAYLOAD_TYPE, payloadType.value);
+        return headers;
+    }
+
+}
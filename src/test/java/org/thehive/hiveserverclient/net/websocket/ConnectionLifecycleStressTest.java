@@ -0,0 +1,217 @@
+package org.thehive.hiveserverclient.net.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.thehive.hiveserverclient.net.websocket.header.AppStompHeaders;
+import org.thehive.hiveserverclient.net.websocket.subscription.StompSubscription;
+import org.thehive.hiveserverclient.net.websocket.subscription.SubscriptionListener;
+import org.thehive.hiveserverclient.payload.Payload;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Races lifecycle calls of one connection many times, every outcome has to fire each listener event at most once
+class ConnectionLifecycleStressTest {
+
+    static final int ITERATION_COUNT = 500;
+    static final int THREAD_COUNT = 4;
+
+    ExecutorService racers;
+    WebSocketStompClient stompClient;
+    AtomicReference<StompSessionHandler> handlerRef;
+    WebSocketClientImpl webSocketClient;
+
+    // Listener events run on the calling thread, so they are counted once every racer has returned
+    static class DirectExecutorService extends AbstractExecutorService {
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+
+    }
+
+    static class CountingListener implements WebSocketListener, SubscriptionListener {
+
+        final AtomicInteger connectCount = new AtomicInteger();
+        final AtomicInteger disconnectCount = new AtomicInteger();
+        final AtomicInteger unsubscribeCount = new AtomicInteger();
+
+        @Override
+        public void onConnect(WebSocketConnection connection) {
+            connectCount.incrementAndGet();
+        }
+
+        @Override
+        public void onSubscribe(StompSubscription subscription) {
+        }
+
+        @Override
+        public void onUnsubscribe(StompSubscription subscription) {
+            unsubscribeCount.incrementAndGet();
+        }
+
+        @Override
+        public void onReceive(AppStompHeaders headers, Payload payload) {
+        }
+
+        @Override
+        public void onSend(Payload payload) {
+        }
+
+        @Override
+        public void onException(Throwable t) {
+        }
+
+        @Override
+        public void onDisconnect(WebSocketConnection connection) {
+            disconnectCount.incrementAndGet();
+        }
+
+    }
+
+    @BeforeEach
+    void init() {
+        this.racers = Executors.newFixedThreadPool(THREAD_COUNT);
+        this.stompClient = mock(WebSocketStompClient.class);
+        this.handlerRef = new AtomicReference<>();
+        doAnswer(invocation -> {
+            handlerRef.set(invocation.getArgument(3));
+            return null;
+        }).when(stompClient).connect(ArgumentMatchers.anyString(), ArgumentMatchers.any(WebSocketHttpHeaders.class),
+                ArgumentMatchers.any(StompHeaders.class), ArgumentMatchers.any(StompSessionHandler.class));
+        this.webSocketClient = new WebSocketClientImpl("ws://localhost/stomp", new UrlEndpointResolverImpl("/user/queue/session"),
+                stompClient, new DirectExecutorService());
+    }
+
+    @AfterEach
+    void destroy() {
+        racers.shutdownNow();
+    }
+
+    // Runs every action at once from its own thread and collects what they threw
+    List<Throwable> race(List<Runnable> actions) throws Exception {
+        var barrier = new CyclicBarrier(actions.size());
+        var futures = new ArrayList<Future<?>>();
+        for (var action : actions)
+            futures.add(racers.submit(() -> {
+                barrier.await();
+                action.run();
+                return null;
+            }));
+        var thrown = new ArrayList<Throwable>();
+        for (var future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                thrown.add(e.getCause());
+            }
+        }
+        return thrown;
+    }
+
+    StompSession connected(WebSocketConnection connection) {
+        var session = mock(StompSession.class, RETURNS_MOCKS);
+        handlerRef.get().afterConnected(session, new StompHeaders());
+        assertEquals(ConnectionStatus.CONNECTED, connection.status());
+        return session;
+    }
+
+    @Test
+    @DisplayName("Concurrent disconnects fire onDisconnect once")
+    void concurrentDisconnectsFireOnDisconnectOnce() throws Exception {
+        for (var i = 0; i < ITERATION_COUNT; i++) {
+            var listener = new CountingListener();
+            var connection = webSocketClient.connect(new WebSocketHttpHeaders(), null, listener);
+            var session = connected(connection);
+            var actions = new ArrayList<Runnable>();
+            for (var j = 0; j < THREAD_COUNT; j++)
+                actions.add(connection::disconnect);
+            assertEquals(List.of(), race(actions));
+            assertEquals(ConnectionStatus.DISCONNECTED, connection.status());
+            assertEquals(1, listener.connectCount.get());
+            assertEquals(1, listener.disconnectCount.get());
+            verify(session, times(1)).disconnect();
+        }
+    }
+
+    @Test
+    @DisplayName("Disconnect racing connect completion leaves one consistent outcome")
+    void disconnectRacingConnectCompletion() throws Exception {
+        for (var i = 0; i < ITERATION_COUNT; i++) {
+            var listener = new CountingListener();
+            var connection = webSocketClient.connect(new WebSocketHttpHeaders(), null, listener);
+            var handler = handlerRef.get();
+            var session = mock(StompSession.class, RETURNS_MOCKS);
+            var thrown = race(List.of(
+                    () -> handler.afterConnected(session, new StompHeaders()),
+                    connection::disconnect));
+            assertEquals(List.of(), thrown);
+            assertEquals(ConnectionStatus.DISCONNECTED, connection.status());
+            assertTrue(listener.connectCount.get() <= 1);
+            assertEquals(1, listener.disconnectCount.get());
+            // Either the completed connect or the disconnect closes the session, never both
+            verify(session, times(1)).disconnect();
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent unsubscribes fire onUnsubscribe once")
+    void concurrentUnsubscribesFireOnUnsubscribeOnce() throws Exception {
+        for (var i = 0; i < ITERATION_COUNT; i++) {
+            var listener = new CountingListener();
+            var connection = webSocketClient.connect(new WebSocketHttpHeaders(), null, listener);
+            connected(connection);
+            var subscription = connection.subscribeToSession("1", listener);
+            var actions = new ArrayList<Runnable>();
+            for (var j = 0; j < THREAD_COUNT; j++)
+                actions.add(subscription::unsubscribe);
+            var thrown = race(actions);
+            assertEquals(THREAD_COUNT - 1, thrown.size());
+            assertTrue(thrown.stream().allMatch(IllegalStateException.class::isInstance));
+            assertFalse(subscription.isInSubscription());
+            // Web socket listener and subscription listener are the same counter
+            assertEquals(2, listener.unsubscribeCount.get());
+            connection.disconnect();
+        }
+    }
+
+}
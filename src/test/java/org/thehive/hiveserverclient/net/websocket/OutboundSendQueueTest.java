@@ -0,0 +1,139 @@
+package org.thehive.hiveserverclient.net.websocket;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadType;
+import org.thehive.hiveserverclient.payload.ChatMessage;
+import org.thehive.hiveserverclient.payload.CodeBroadcastingInformation;
+import org.thehive.hiveserverclient.payload.Payload;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundSendQueueTest {
+
+    static final long TIMEOUT_MS_EXECUTE = 10_000L;
+
+    // Runs the drain tasks only when asked, so the queue contents can be inspected
+    final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    final List<Payload> sent = new CopyOnWriteArrayList<>();
+    final OutboundQueueMetrics metrics = new OutboundQueueMetrics();
+
+    OutboundSendQueue queueOf(int capacity, WebSocketClientOptions options) {
+        return new OutboundSendQueue(capacity, options::outboundQueuePolicyOf, options.getOutboundQueueBlockTimeout(), tasks::add, sent::add, t -> fail(t), metrics);
+    }
+
+    void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null)
+            task.run();
+    }
+
+    static ChatMessage chatMessage(int i) {
+        return new ChatMessage("user", String.valueOf(i), i);
+    }
+
+    static CodeBroadcastingInformation codeBroadcast(int i) {
+        return new CodeBroadcastingInformation("user", String.valueOf(i));
+    }
+
+    @Test
+    @DisplayName("Code broadcasts are coalesced to the latest while chat messages are kept")
+    void codeBroadcastsAreCoalescedWhileChatMessagesAreKept() {
+        var queue = queueOf(16, WebSocketClientOptions.defaults());
+        for (var i = 0; i < 10; i++) {
+            queue.offer(codeBroadcast(i));
+            queue.offer(chatMessage(i));
+        }
+        assertEquals(11, queue.size());
+        assertEquals(11, metrics.getQueueDepth());
+        assertEquals(9, metrics.getCoalescedCount());
+        runTasks();
+        var codeBroadcasts = sent.stream().filter(payload -> payload instanceof CodeBroadcastingInformation).collect(Collectors.toList());
+        assertEquals(List.of(codeBroadcast(9)), codeBroadcasts);
+        var chatMessages = sent.stream().filter(payload -> payload instanceof ChatMessage).collect(Collectors.toList());
+        assertEquals(10, chatMessages.size());
+        for (var i = 0; i < 10; i++)
+            assertEquals(chatMessage(i), chatMessages.get(i));
+        assertEquals(0, metrics.getQueueDepth());
+        assertEquals(11, metrics.getDrainedCount());
+    }
+
+    @Test
+    @DisplayName("Oldest droppable payload makes room and blocking payloads are never dropped")
+    void oldestDroppablePayloadMakesRoom() {
+        var options = WebSocketClientOptions.builder()
+                .outboundQueuePolicies(Map.of(PayloadType.CODE_BROADCASTING_INFORMATION, OutboundQueuePolicy.DROP_OLDEST))
+                .build();
+        var queue = queueOf(3, options);
+        queue.offer(chatMessage(0));
+        queue.offer(codeBroadcast(0));
+        queue.offer(codeBroadcast(1));
+        queue.offer(codeBroadcast(2));
+        assertEquals(1, metrics.getDroppedCount());
+        runTasks();
+        assertEquals(List.of(chatMessage(0), codeBroadcast(1), codeBroadcast(2)), sent);
+    }
+
+    @Test
+    @DisplayName("Blocking payload waits for room in a full queue")
+    void blockingPayloadWaitsForRoom() throws InterruptedException {
+        var queue = queueOf(1, WebSocketClientOptions.defaults());
+        queue.offer(chatMessage(0));
+        var offered = new CountDownLatch(1);
+        var sender = new Thread(() -> {
+            queue.offer(chatMessage(1));
+            offered.countDown();
+        });
+        sender.start();
+        var deadline = System.currentTimeMillis() + TIMEOUT_MS_EXECUTE;
+        while (metrics.getBlockedCount() == 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10L);
+        assertEquals(1, metrics.getBlockedCount());
+        assertEquals(1, offered.getCount());
+        runTasks();
+        assertTrue(offered.await(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS));
+        runTasks();
+        assertEquals(List.of(chatMessage(0), chatMessage(1)), sent);
+        assertEquals(0, metrics.getDroppedCount());
+    }
+
+    @Test
+    @DisplayName("Blocking payload sent from the drain's only thread fails after the timeout instead of deadlocking")
+    void blockingPayloadOnDrainThreadTimesOut() throws Exception {
+        var options = WebSocketClientOptions.builder()
+                .outboundQueueBlockTimeout(Duration.ofMillis(200L))
+                .build();
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var queue = new OutboundSendQueue(1, options::outboundQueuePolicyOf, options.getOutboundQueueBlockTimeout(),
+                    executor, sent::add, t -> fail(t), metrics);
+            // Like a listener callback sending twice, the drain of the first message is queued behind this task
+            var offers = executor.submit(() -> {
+                queue.offer(chatMessage(0));
+                queue.offer(chatMessage(1));
+            });
+            var e = assertThrows(ExecutionException.class, () -> offers.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS));
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertEquals(1, metrics.getBlockTimeoutCount());
+            var deadline = System.currentTimeMillis() + TIMEOUT_MS_EXECUTE;
+            while (sent.isEmpty() && System.currentTimeMillis() < deadline)
+                Thread.sleep(10L);
+            assertEquals(List.of(chatMessage(0)), sent);
+            assertEquals(0, queue.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package org.thehive.hiveserverclient.net.websocket;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadEncoding;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadType;
+import org.thehive.hiveserverclient.payload.*;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Converter cost of each payload class with text JSON and Smile frames, main prints the wire bytes of both
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadEncodingBenchmark {
+
+    static final Map<PayloadType, Payload> SAMPLES = Map.of(
+            PayloadType.LIVE_SESSION_INFORMATION, new LiveSessionInformation("owner", Set.of("first", "second", "third"), 3_600_000L, 1_634_000_000_000L),
+            PayloadType.PARTICIPATION_NOTIFICATION, new ParticipationNotification("participant", true, 1_634_000_000_000L),
+            PayloadType.EXPIRATION_NOTIFICATION, new ExpirationNotification(1_634_000_000_000L),
+            PayloadType.CHAT_MESSAGE, new ChatMessage("user", "Did you push the fix for the login page?", 1_634_000_000_000L),
+            PayloadType.CODE_RECEIVING_REQUEST, new CodeReceivingRequest("broadcaster", "receiver", true),
+            PayloadType.CODE_BROADCASTING_NOTIFICATION, new CodeBroadcastingNotification(Set.of("first", "second", "third")),
+            PayloadType.CODE_BROADCASTING_INFORMATION, new CodeBroadcastingInformation("broadcaster",
+                    "public class Main {\n    public static void main(String[] args) {\n        System.out.println(\"Hello\");\n    }\n}\n"));
+
+    @Param({"LIVE_SESSION_INFORMATION", "PARTICIPATION_NOTIFICATION", "EXPIRATION_NOTIFICATION", "CHAT_MESSAGE",
+            "CODE_RECEIVING_REQUEST", "CODE_BROADCASTING_NOTIFICATION", "CODE_BROADCASTING_INFORMATION"})
+    PayloadType payloadType;
+
+    @Param({"JSON", "SMILE"})
+    PayloadEncoding payloadEncoding;
+
+    MappingJackson2MessageConverter converter;
+    MessageHeaders headers;
+    Payload payload;
+    Message<?> message;
+
+    public static void main(String[] args) throws RunnerException {
+        for (var payloadType : PayloadType.values()) {
+            var sizes = new StringBuilder();
+            for (var payloadEncoding : PayloadEncoding.values()) {
+                var benchmark = new PayloadEncodingBenchmark();
+                benchmark.payloadType = payloadType;
+                benchmark.payloadEncoding = payloadEncoding;
+                benchmark.setup();
+                sizes.append(", ").append(payloadEncoding).append(": ").append(((byte[]) benchmark.message.getPayload()).length);
+            }
+            System.out.println(payloadType.name() + sizes);
+        }
+        new Runner(new OptionsBuilder().include(PayloadEncodingBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void setup() {
+        if (payloadEncoding == PayloadEncoding.SMILE)
+            this.converter = new SmileMessageConverter();
+        else {
+            this.converter = new MappingJackson2MessageConverter();
+            converter.setSerializedPayloadClass(byte[].class);
+        }
+        var accessor = new MessageHeaderAccessor();
+        accessor.setContentType(payloadEncoding.mimeType);
+        this.headers = accessor.getMessageHeaders();
+        this.payload = SAMPLES.get(payloadType);
+        this.message = converter.toMessage(payload, headers);
+    }
+
+    @Benchmark
+    public Message<?> serialize() {
+        return converter.toMessage(payload, headers);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return converter.fromMessage(message, payloadType.type);
+    }
+
+}
@@ -0,0 +1,172 @@
+package org.thehive.hiveserverclient.net.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.thehive.hiveserverclient.net.websocket.header.AppStompHeaders;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadEncoding;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadType;
+import org.thehive.hiveserverclient.net.websocket.subscription.SessionSubscription;
+import org.thehive.hiveserverclient.net.websocket.subscription.StompSubscription;
+import org.thehive.hiveserverclient.net.websocket.subscription.SubscriptionListener;
+import org.thehive.hiveserverclient.payload.ChatMessage;
+import org.thehive.hiveserverclient.payload.CodeBroadcastingInformation;
+import org.thehive.hiveserverclient.payload.ParticipationNotification;
+import org.thehive.hiveserverclient.payload.Payload;
+import org.thehive.hiveserverclient.stub.StubDataStore;
+import org.thehive.hiveserverclient.stub.StubHiveServer;
+import org.thehive.hiveserverclient.stub.StubServerOptions;
+import org.thehive.hiveserverclient.util.HeaderUtils;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class PayloadEncodingTest {
+
+    static final long TIMEOUT_MS_EXECUTE = 10_000L;
+    static final String SESSION_ID = "1";
+
+    StubHiveServer server;
+    final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void destroy() {
+        server.close();
+        executorService.shutdownNow();
+    }
+
+    SessionSubscription subscribe(PayloadEncoding payloadEncoding, BlockingQueue<Payload> received) throws Exception {
+        return subscribe(WebSocketClientOptions.builder().payloadEncoding(payloadEncoding).build(), received);
+    }
+
+    SessionSubscription subscribe(WebSocketClientOptions options, BlockingQueue<Payload> received) throws Exception {
+        var connectionFuture = new CompletableFuture<WebSocketConnection>();
+        var listener = new WebSocketListener() {
+            @Override
+            public void onConnect(WebSocketConnection connection) {
+                connectionFuture.complete(connection);
+            }
+
+            @Override
+            public void onSubscribe(StompSubscription subscription) {
+            }
+
+            @Override
+            public void onUnsubscribe(StompSubscription subscription) {
+            }
+
+            @Override
+            public void onReceive(AppStompHeaders headers, Payload payload) {
+                assertEquals(payload.getClass(), headers.getPayloadType().type);
+                received.add(payload);
+            }
+
+            @Override
+            public void onSend(Payload payload) {
+            }
+
+            @Override
+            public void onException(Throwable t) {
+                connectionFuture.completeExceptionally(t);
+            }
+
+            @Override
+            public void onDisconnect(WebSocketConnection connection) {
+            }
+        };
+        var wsStompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        var jsonConverter = new MappingJackson2MessageConverter();
+        wsStompClient.setMessageConverter(options.getPayloadEncoding() == PayloadEncoding.SMILE ? SmileMessageConverter.withFallback(jsonConverter) : jsonConverter);
+        var urlEndpointResolver = new UrlEndpointResolverImpl("/user/queue/session", "/websocket");
+        urlEndpointResolver.addDestinationUrlEndpoint(ChatMessage.class, "/chat/" + SESSION_ID);
+        urlEndpointResolver.addDestinationUrlEndpoint(CodeBroadcastingInformation.class, "/code-broadcasting/" + SESSION_ID);
+        var webSocketClient = new WebSocketClientImpl(server.getWebSocketUrl(), urlEndpointResolver, wsStompClient, executorService, options);
+        var headers = new WebSocketHttpHeaders();
+        headers.add(HeaderUtils.HTTP_BASIC_AUTHENTICATION_HEADER_NAME,
+                HeaderUtils.httpBasicAuthenticationToken(StubDataStore.USERNAME, StubDataStore.PASSWORD));
+        webSocketClient.connect(headers, null, listener);
+        var connection = connectionFuture.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS);
+        var subscriptionCount = server.getSubscriptionCount(SESSION_ID);
+        var subscription = connection.subscribeToSession(SESSION_ID, mock(SubscriptionListener.class));
+        var deadline = System.currentTimeMillis() + TIMEOUT_MS_EXECUTE;
+        while (server.getSubscriptionCount(SESSION_ID) == subscriptionCount && System.currentTimeMillis() < deadline)
+            Thread.sleep(10L);
+        return subscription;
+    }
+
+    @Test
+    @DisplayName("Smile and JSON connections exchange payloads through the same session")
+    void smileAndJsonConnectionsExchangePayloads() throws Exception {
+        this.server = StubHiveServer.start();
+        var smileReceived = new LinkedBlockingQueue<Payload>();
+        var jsonReceived = new LinkedBlockingQueue<Payload>();
+        var smileSubscription = subscribe(PayloadEncoding.SMILE, smileReceived);
+        subscribe(PayloadEncoding.JSON, jsonReceived);
+        assertEquals(1, server.getConnectionCount(PayloadEncoding.SMILE));
+        assertEquals(1, server.getConnectionCount(PayloadEncoding.JSON));
+
+        var chatMessage = new ChatMessage("user", "Merhaba", 1L);
+        smileSubscription.send(chatMessage);
+        assertEquals(chatMessage, smileReceived.poll(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS));
+        assertEquals(chatMessage, jsonReceived.poll(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS));
+
+        var notification = new ParticipationNotification("user", true, 1L);
+        server.publish(SESSION_ID, PayloadType.PARTICIPATION_NOTIFICATION, notification);
+        assertEquals(notification, smileReceived.poll(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS));
+        assertEquals(notification, jsonReceived.poll(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("Connection keeps JSON when the server doesn't accept Smile")
+    void connectionKeepsJsonWhenServerDoesNotAcceptSmile() throws Exception {
+        this.server = StubHiveServer.start(StubServerOptions.builder().smilePayloadEncoding(false).build());
+        var received = new LinkedBlockingQueue<Payload>();
+        var subscription = subscribe(PayloadEncoding.SMILE, received);
+        assertEquals(0, server.getConnectionCount(PayloadEncoding.SMILE));
+        var chatMessage = new ChatMessage("user", "Merhaba", 1L);
+        subscription.send(chatMessage);
+        assertEquals(chatMessage, received.poll(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("Code broadcasts keep their full text when the server doesn't accept deltas")
+    void codeBroadcastsKeepFullTextWithoutDeltaNegotiation() throws Exception {
+        this.server = StubHiveServer.start(StubServerOptions.builder().codeBroadcastDelta(false).build());
+        var received = new LinkedBlockingQueue<Payload>();
+        var legacyReceived = new LinkedBlockingQueue<Payload>();
+        var subscription = subscribe(WebSocketClientOptions.builder().codeBroadcastDelta(true).build(), received);
+        subscribe(PayloadEncoding.JSON, legacyReceived);
+        var text = "public class Main {\n}\n".repeat(20);
+        for (var edit : List.of(text, text + "// edit\n")) {
+            subscription.send(new CodeBroadcastingInformation("user", edit));
+            var broadcast = (CodeBroadcastingInformation) legacyReceived.poll(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS);
+            assertNotNull(broadcast);
+            assertFalse(broadcast.isDelta());
+            assertEquals(edit, broadcast.getText());
+            assertEquals(edit, ((CodeBroadcastingInformation) received.poll(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS)).getText());
+        }
+    }
+
+    @Test
+    @DisplayName("Smile connection isn't created on a stomp client without the Smile converter")
+    void smileIsRejectedWithoutSmileConverter() {
+        this.server = StubHiveServer.start();
+        var wsStompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        var converter = new MappingJackson2MessageConverter();
+        wsStompClient.setMessageConverter(converter);
+        var options = WebSocketClientOptions.builder()
+                .payloadEncoding(PayloadEncoding.SMILE)
+                .build();
+        assertThrows(IllegalArgumentException.class, () -> new WebSocketClientImpl(server.getWebSocketUrl(),
+                new UrlEndpointResolverImpl("/user/queue/session", "/websocket"), wsStompClient, executorService, options));
+        assertSame(converter, wsStompClient.getMessageConverter());
+    }
+
+}
@@ -0,0 +1,142 @@
+package org.thehive.hiveserverclient.net.websocket;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.thehive.hiveserverclient.net.websocket.header.AppStompHeaders;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadType;
+import org.thehive.hiveserverclient.net.websocket.subscription.StompSubscription;
+import org.thehive.hiveserverclient.net.websocket.subscription.SubscriptionListener;
+import org.thehive.hiveserverclient.payload.CodeBroadcastingInformation;
+import org.thehive.hiveserverclient.payload.Payload;
+
+import java.util.concurrent.TimeUnit;
+
+// Receive path of a subscription frame, run with -prof gc to compare allocations per frame
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionFrameHandlerBenchmark {
+
+    StompHeaders headers;
+    Payload payload;
+    SessionFrameHandler handler;
+    Blackhole blackhole;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SessionFrameHandlerBenchmark.class.getSimpleName()).addProfiler("gc").build()).run();
+    }
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        var headers = new StompHeaders();
+        headers.setDestination("/user/queue/session/84697174304");
+        headers.setSubscription("0");
+        headers.setMessageId("1");
+        headers.add(AppStompHeaders.PAYLOAD_TYPE, PayloadType.CODE_BROADCASTING_INFORMATION.value);
+        this.headers = StompHeaders.readOnlyStompHeaders(headers);
+        this.payload = new CodeBroadcastingInformation("user", "class Main {}");
+        this.handler = new SessionFrameHandler(new BlackholeWebSocketListener(blackhole), new BlackholeSubscriptionListener(blackhole));
+    }
+
+    @Benchmark
+    public void sessionFrameHandler() {
+        blackhole.consume(handler.getPayloadType(headers));
+        handler.handleFrame(headers, payload);
+    }
+
+    // Receive path before the frame handler, headers wrapped for each call and the payload type scanned linearly
+    @Benchmark
+    public void wrapPerCall() {
+        var payloadTypeHeaders = new AppStompHeaders(headers);
+        blackhole.consume(scan(payloadTypeHeaders.get(AppStompHeaders.PAYLOAD_TYPE).get(0)).type);
+        var appStompHeaders = new AppStompHeaders(headers);
+        blackhole.consume(appStompHeaders);
+        blackhole.consume(payload);
+        blackhole.consume(appStompHeaders);
+        blackhole.consume(payload);
+    }
+
+    static PayloadType scan(String value) {
+        for (var pt : PayloadType.values())
+            if (pt.value.equals(value))
+                return pt;
+        throw new IllegalArgumentException("Given value is not supported, value: " + value);
+    }
+
+    static class BlackholeWebSocketListener implements WebSocketListener {
+
+        private final Blackhole blackhole;
+
+        BlackholeWebSocketListener(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void onConnect(WebSocketConnection connection) {
+        }
+
+        @Override
+        public void onSubscribe(StompSubscription subscription) {
+        }
+
+        @Override
+        public void onUnsubscribe(StompSubscription subscription) {
+        }
+
+        @Override
+        public void onReceive(AppStompHeaders headers, Payload payload) {
+            blackhole.consume(headers);
+            blackhole.consume(payload);
+        }
+
+        @Override
+        public void onSend(Payload payload) {
+        }
+
+        @Override
+        public void onException(Throwable t) {
+        }
+
+        @Override
+        public void onDisconnect(WebSocketConnection connection) {
+        }
+
+    }
+
+    static class BlackholeSubscriptionListener implements SubscriptionListener {
+
+        private final Blackhole blackhole;
+
+        BlackholeSubscriptionListener(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void onSubscribe(StompSubscription subscription) {
+        }
+
+        @Override
+        public void onSend(Payload payload) {
+        }
+
+        @Override
+        public void onReceive(AppStompHeaders headers, Payload payload) {
+            blackhole.consume(headers);
+            blackhole.consume(payload);
+        }
+
+        @Override
+        public void onUnsubscribe(StompSubscription subscription) {
+        }
+
+    }
+
+}
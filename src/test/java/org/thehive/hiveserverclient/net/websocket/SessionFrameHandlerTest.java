@@ -0,0 +1,71 @@
+package org.thehive.hiveserverclient.net.websocket;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.thehive.hiveserverclient.net.websocket.header.AppStompHeaders;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadType;
+import org.thehive.hiveserverclient.net.websocket.subscription.SubscriptionListener;
+import org.thehive.hiveserverclient.payload.ChatMessage;
+import org.thehive.hiveserverclient.payload.Payload;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionFrameHandlerTest {
+
+    static StompHeaders frameHeaders(PayloadType payloadType) {
+        var headers = new StompHeaders();
+        headers.setDestination("/user/queue/session/1");
+        headers.add(AppStompHeaders.PAYLOAD_TYPE, payloadType.value);
+        return headers;
+    }
+
+    @Test
+    @DisplayName("Headers of a frame are wrapped once")
+    void headersOfAFrameAreWrappedOnce() {
+        var webSocketListener = mock(WebSocketListener.class);
+        var subscriptionListener = mock(SubscriptionListener.class);
+        var handler = new SessionFrameHandler(webSocketListener, subscriptionListener);
+        var headers = frameHeaders(PayloadType.CHAT_MESSAGE);
+        assertEquals(ChatMessage.class, handler.getPayloadType(headers));
+        var payload = new ChatMessage("user", "Hello", 0L);
+        handler.handleFrame(headers, payload);
+        var webSocketHeaders = ArgumentCaptor.forClass(AppStompHeaders.class);
+        var subscriptionHeaders = ArgumentCaptor.forClass(AppStompHeaders.class);
+        verify(webSocketListener).onReceive(webSocketHeaders.capture(), same((Payload) payload));
+        verify(subscriptionListener).onReceive(subscriptionHeaders.capture(), same((Payload) payload));
+        assertSame(webSocketHeaders.getValue(), subscriptionHeaders.getValue());
+        assertEquals(PayloadType.CHAT_MESSAGE, webSocketHeaders.getValue().getPayloadType());
+    }
+
+    @Test
+    @DisplayName("Next frame gets its own headers")
+    void nextFrameGetsItsOwnHeaders() {
+        var webSocketListener = mock(WebSocketListener.class);
+        var handler = new SessionFrameHandler(webSocketListener, mock(SubscriptionListener.class));
+        for (var payloadType : PayloadType.values()) {
+            var headers = frameHeaders(payloadType);
+            assertEquals(payloadType.type, handler.getPayloadType(headers));
+            handler.handleFrame(headers, null);
+        }
+        var captor = ArgumentCaptor.forClass(AppStompHeaders.class);
+        verify(webSocketListener, times(PayloadType.values().length)).onReceive(captor.capture(), any());
+        for (var i = 0; i < PayloadType.values().length; i++)
+            assertEquals(PayloadType.values()[i], captor.getAllValues().get(i).getPayloadType());
+    }
+
+    @Test
+    @DisplayName("Every payload type is resolved by value")
+    void everyPayloadTypeIsResolvedByValue() {
+        for (var payloadType : PayloadType.values())
+            assertSame(payloadType, PayloadType.byValue(payloadType.value));
+        assertThrows(IllegalArgumentException.class, () -> PayloadType.byValue("unknown"));
+    }
+
+}
@@ -0,0 +1,74 @@
+package org.thehive.hiveserverclient.net.websocket;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.thehive.hiveserverclient.payload.ChatMessage;
+import org.thehive.hiveserverclient.payload.CodeBroadcastingInformation;
+import org.thehive.hiveserverclient.payload.CodeReceivingRequest;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrlEndpointResolverImplTest {
+
+    @Test
+    @DisplayName("Id templates are expanded and expansions are reused")
+    void idTemplatesAreExpandedAndReused() {
+        var resolver = UrlEndpointResolverImpl.builder()
+                .subscriptionUrlEndpoint("/user/queue/session/{id}")
+                .destinationPrefix("/websocket")
+                .destinationUrlEndpoint(ChatMessage.class, "/session/chat/{id}")
+                .destinationUrlEndpoint(CodeReceivingRequest.class, "/session/code-receiving")
+                .build();
+        assertEquals("/user/queue/session/7", resolver.resolveSubscriptionUrlEndpoint("7"));
+        var destination = resolver.resolveDestinationUrlEndpoint(ChatMessage.class, "7");
+        assertEquals("/websocket/session/chat/7", destination);
+        assertSame(destination, resolver.resolveDestinationUrlEndpoint(ChatMessage.class, "7"));
+        assertEquals("/websocket/session/chat/8", resolver.resolveDestinationUrlEndpoint(ChatMessage.class, "8"));
+        assertEquals("/websocket/session/code-receiving", resolver.resolveDestinationUrlEndpoint(CodeReceivingRequest.class, "7"));
+        assertNull(resolver.resolveDestinationUrlEndpoint(CodeBroadcastingInformation.class, "7"));
+        assertThrows(UnsupportedOperationException.class,
+                () -> resolver.addDestinationUrlEndpoint(CodeBroadcastingInformation.class, "/session/code-broadcasting/{id}"));
+    }
+
+    @Test
+    @DisplayName("Subscription endpoint without template gets the id appended")
+    void subscriptionEndpointWithoutTemplateGetsIdAppended() {
+        assertEquals("/user/queue/session/1", new UrlEndpointResolverImpl("/user/queue/session").resolveSubscriptionUrlEndpoint("1"));
+        assertEquals("/user/queue/session/1", new UrlEndpointResolverImpl("/user/queue/session/").resolveSubscriptionUrlEndpoint("1"));
+        var template = EndpointTemplate.compile("/a/{id}/b/{id}", false, 2);
+        assertEquals("/a/1/b/1", template.resolve("1"));
+        template.resolve("2");
+        template.resolve("3");
+        template.resolve("4");
+        assertTrue(template.cachedCount() <= 3);
+    }
+
+    @Test
+    @DisplayName("Destinations added while resolving are visible to resolvers")
+    void destinationsAddedWhileResolvingAreVisible() throws Exception {
+        var resolver = new UrlEndpointResolverImpl("/user/queue/session", "/websocket");
+        resolver.addDestinationUrlEndpoint(ChatMessage.class, "/session/chat/{id}");
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (var i = 0; i < 4; i++)
+                futures.add(executorService.submit(() -> {
+                    for (var j = 0; j < 10_000; j++)
+                        assertEquals("/websocket/session/chat/" + (j % 16), resolver.resolveDestinationUrlEndpoint(ChatMessage.class, Integer.toString(j % 16)));
+                }));
+            resolver.addDestinationUrlEndpoint(CodeReceivingRequest.class, "/session/code-receiving/{id}");
+            for (var future : futures)
+                future.get();
+        } finally {
+            executorService.shutdownNow();
+        }
+        assertTrue(resolver.containsDestinationUrlEndpoint(CodeReceivingRequest.class));
+        assertEquals("/websocket/session/code-receiving/3", resolver.resolveDestinationUrlEndpoint(CodeReceivingRequest.class, "3"));
+    }
+
+}
@@ -0,0 +1,125 @@
+package org.thehive.hiveserverclient.net.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.thehive.hiveserverclient.net.websocket.header.AppStompHeaders;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadType;
+import org.thehive.hiveserverclient.net.websocket.subscription.StompSubscription;
+import org.thehive.hiveserverclient.net.websocket.subscription.SubscriptionListener;
+import org.thehive.hiveserverclient.payload.CodeBroadcastingInformation;
+import org.thehive.hiveserverclient.payload.Payload;
+import org.thehive.hiveserverclient.stub.StubDataStore;
+import org.thehive.hiveserverclient.stub.StubHiveServer;
+import org.thehive.hiveserverclient.util.HeaderUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class WebSocketDispatchOrderTest {
+
+    static final long TIMEOUT_MS_EXECUTE = 10_000L;
+
+    StubHiveServer server;
+    ExecutorService executorService;
+
+    @BeforeEach
+    void init() {
+        this.server = StubHiveServer.start();
+        this.executorService = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void destroy() {
+        server.close();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Frames of each subscription are dispatched in order on a multi-threaded executor")
+    void framesOfEachSubscriptionAreDispatchedInOrder() throws Exception {
+        final var sessionIds = List.of("1", "2", "3", "4");
+        final var frameCount = 500;
+        Map<String, List<Integer>> receivedBySession = new ConcurrentHashMap<>();
+        var latch = new CountDownLatch(sessionIds.size() * frameCount);
+        var connectionFuture = new CompletableFuture<WebSocketConnection>();
+        var listener = new WebSocketListener() {
+            @Override
+            public void onConnect(WebSocketConnection connection) {
+                connectionFuture.complete(connection);
+            }
+
+            @Override
+            public void onSubscribe(StompSubscription subscription) {
+            }
+
+            @Override
+            public void onUnsubscribe(StompSubscription subscription) {
+            }
+
+            @Override
+            public void onReceive(AppStompHeaders headers, Payload payload) {
+                var sessionId = headers.getDestination().substring(headers.getDestination().lastIndexOf('/') + 1);
+                receivedBySession.computeIfAbsent(sessionId, key -> new CopyOnWriteArrayList<>())
+                        .add(Integer.parseInt(((CodeBroadcastingInformation) payload).getText()));
+                // Uneven work makes reordering likely without serial dispatch
+                if (ThreadLocalRandom.current().nextInt(20) == 0) {
+                    try {
+                        Thread.sleep(1L);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                latch.countDown();
+            }
+
+            @Override
+            public void onSend(Payload payload) {
+            }
+
+            @Override
+            public void onException(Throwable t) {
+                connectionFuture.completeExceptionally(t);
+            }
+
+            @Override
+            public void onDisconnect(WebSocketConnection connection) {
+            }
+        };
+        var wsStompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        wsStompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        var urlEndpointResolver = new UrlEndpointResolverImpl("/user/queue/session");
+        var webSocketClient = new WebSocketClientImpl(server.getWebSocketUrl(), urlEndpointResolver, wsStompClient, executorService);
+        var headers = new WebSocketHttpHeaders();
+        headers.add(HeaderUtils.HTTP_BASIC_AUTHENTICATION_HEADER_NAME,
+                HeaderUtils.httpBasicAuthenticationToken(StubDataStore.USERNAME, StubDataStore.PASSWORD));
+        webSocketClient.connect(headers, null, listener);
+        var connection = connectionFuture.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS);
+        for (var sessionId : sessionIds)
+            connection.subscribeToSession(sessionId, mock(SubscriptionListener.class));
+        var deadline = System.currentTimeMillis() + TIMEOUT_MS_EXECUTE;
+        while (sessionIds.stream().anyMatch(id -> server.getSubscriptionCount(id) == 0) && System.currentTimeMillis() < deadline)
+            Thread.sleep(10L);
+        for (var i = 0; i < frameCount; i++)
+            for (var sessionId : sessionIds)
+                server.publish(sessionId, PayloadType.CODE_BROADCASTING_INFORMATION, new CodeBroadcastingInformation("user", String.valueOf(i)));
+        assertTrue(latch.await(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS));
+        for (var sessionId : sessionIds) {
+            var received = receivedBySession.get(sessionId);
+            assertEquals(frameCount, received.size());
+            for (var i = 0; i < frameCount; i++)
+                assertEquals(i, received.get(i));
+        }
+        connection.disconnect();
+    }
+
+}
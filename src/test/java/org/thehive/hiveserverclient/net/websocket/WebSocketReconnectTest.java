@@ -0,0 +1,170 @@
+package org.thehive.hiveserverclient.net.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.thehive.hiveserverclient.net.websocket.header.AppStompHeaders;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadType;
+import org.thehive.hiveserverclient.net.websocket.subscription.StompSubscription;
+import org.thehive.hiveserverclient.net.websocket.subscription.SubscriptionListener;
+import org.thehive.hiveserverclient.payload.ChatMessage;
+import org.thehive.hiveserverclient.payload.CodeBroadcastingInformation;
+import org.thehive.hiveserverclient.payload.Payload;
+import org.thehive.hiveserverclient.stub.StubDataStore;
+import org.thehive.hiveserverclient.stub.StubHiveServer;
+import org.thehive.hiveserverclient.util.HeaderUtils;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class WebSocketReconnectTest {
+
+    static final long TIMEOUT_MS_EXECUTE = 10_000L;
+    static final String SESSION_ID = "1";
+
+    StubHiveServer server;
+    ExecutorService executorService;
+
+    static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + TIMEOUT_MS_EXECUTE;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10L);
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @BeforeEach
+    void init() {
+        this.server = StubHiveServer.start();
+        this.executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void destroy() {
+        server.close();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Dropped connection is reestablished with its subscriptions and buffered sends")
+    void droppedConnectionIsReestablished() throws Exception {
+        var connectionFuture = new CompletableFuture<WebSocketConnection>();
+        var reconnectLatch = new CountDownLatch(1);
+        var disconnectLatch = new CountDownLatch(1);
+        var received = new LinkedBlockingQueue<Payload>();
+        var listener = new WebSocketListener() {
+            @Override
+            public void onConnect(WebSocketConnection connection) {
+                connectionFuture.complete(connection);
+            }
+
+            @Override
+            public void onReconnect(WebSocketConnection connection) {
+                reconnectLatch.countDown();
+            }
+
+            @Override
+            public void onSubscribe(StompSubscription subscription) {
+            }
+
+            @Override
+            public void onUnsubscribe(StompSubscription subscription) {
+            }
+
+            @Override
+            public void onReceive(AppStompHeaders headers, Payload payload) {
+                received.add(payload);
+            }
+
+            @Override
+            public void onSend(Payload payload) {
+            }
+
+            @Override
+            public void onException(Throwable t) {
+            }
+
+            @Override
+            public void onDisconnect(WebSocketConnection connection) {
+                disconnectLatch.countDown();
+            }
+        };
+        var options = WebSocketClientOptions.builder()
+                .reconnect(true)
+                .initialBackoff(Duration.ofMillis(50L))
+                .maxBackoff(Duration.ofMillis(200L))
+                .maxReconnectAttempts(3)
+                .build();
+        var wsStompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        wsStompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        var urlEndpointResolver = new UrlEndpointResolverImpl("/user/queue/session", "/websocket");
+        urlEndpointResolver.addDestinationUrlEndpoint(ChatMessage.class, "/chat/" + SESSION_ID);
+        var webSocketClient = new WebSocketClientImpl(server.getWebSocketUrl(), urlEndpointResolver, wsStompClient, executorService, options);
+        var headers = new WebSocketHttpHeaders();
+        headers.add(HeaderUtils.HTTP_BASIC_AUTHENTICATION_HEADER_NAME,
+                HeaderUtils.httpBasicAuthenticationToken(StubDataStore.USERNAME, StubDataStore.PASSWORD));
+        webSocketClient.connect(headers, null, listener);
+        var connection = connectionFuture.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS);
+        var subscription = connection.subscribeToSession(SESSION_ID, mock(SubscriptionListener.class));
+        awaitCondition(() -> server.getSubscriptionCount(SESSION_ID) == 1);
+
+        server.dropConnections();
+        awaitCondition(() -> connection.status() == ConnectionStatus.RECONNECTING);
+        subscription.send(new ChatMessage("user", "sent while reconnecting", System.currentTimeMillis()));
+        assertTrue(reconnectLatch.await(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS));
+        assertEquals(ConnectionStatus.CONNECTED, connection.status());
+        assertTrue(subscription.isInSubscription());
+        var buffered = received.poll(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS);
+        assertTrue(buffered instanceof ChatMessage);
+        assertEquals("sent while reconnecting", ((ChatMessage) buffered).getText());
+
+        server.publish(SESSION_ID, PayloadType.CODE_BROADCASTING_INFORMATION, new CodeBroadcastingInformation("user", "after reconnect"));
+        var published = received.poll(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS);
+        assertTrue(published instanceof CodeBroadcastingInformation);
+
+        var metrics = webSocketClient.getReconnectMetrics();
+        assertEquals(1, metrics.getConnectionLossCount());
+        assertEquals(1, metrics.getReconnectCount());
+        assertEquals(1, metrics.getBufferedSendCount());
+
+        server.close();
+        assertTrue(disconnectLatch.await(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS));
+        assertEquals(ConnectionStatus.DISCONNECTED, connection.status());
+        assertEquals(1, metrics.getExhaustedCount());
+        assertFalse(subscription.isInSubscription());
+        assertThrows(IllegalStateException.class, () -> subscription.send(new ChatMessage("user", "sent after disconnect", System.currentTimeMillis())));
+    }
+
+    @Test
+    @DisplayName("Failed initial connect is reported instead of retried without limit")
+    void failedInitialConnectIsReported() throws Exception {
+        var stopped = StubHiveServer.start();
+        var url = stopped.getWebSocketUrl();
+        stopped.close();
+        var options = WebSocketClientOptions.builder()
+                .reconnect(true)
+                .initialBackoff(Duration.ofMillis(20L))
+                .maxInitialConnectAttempts(3)
+                .build();
+        var wsStompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        wsStompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        var webSocketClient = new WebSocketClientImpl(url, new UrlEndpointResolverImpl("/user/queue/session", "/websocket"),
+                wsStompClient, executorService, options);
+        var listener = mock(WebSocketListener.class);
+        var connection = webSocketClient.connect(new WebSocketHttpHeaders(), null, listener);
+        verify(listener, timeout(TIMEOUT_MS_EXECUTE)).onDisconnect(connection);
+        assertEquals(ConnectionStatus.DISCONNECTED, connection.status());
+        verify(listener, times(1)).onException(any());
+        verify(listener, never()).onConnect(any());
+        assertEquals(1, webSocketClient.getReconnectMetrics().getExhaustedCount());
+    }
+
+}
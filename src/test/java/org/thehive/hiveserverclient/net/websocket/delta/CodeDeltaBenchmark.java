@@ -0,0 +1,101 @@
+package org.thehive.hiveserverclient.net.websocket.delta;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.thehive.hiveserverclient.payload.CodeBroadcastingInformation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Sender and receiver cost per frame of full text and delta code broadcasts over an edit trace,
+// main prints the wire bytes per frame of both before running the benchmarks
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodeDeltaBenchmark {
+
+    static final int EDIT_COUNT = 2_000;
+    static final long SEED = 42L;
+
+    @Param({"200", "2000"})
+    int lineCount;
+
+    final ObjectMapper objectMapper = new ObjectMapper();
+    List<String> texts;
+    List<byte[]> fullFrames;
+    List<byte[]> deltaFrames;
+    CodeDeltaEncoder encoder;
+    CodeDeltaDecoder decoder;
+    int index;
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        for (var lineCount : List.of(200, 2_000)) {
+            var benchmark = new CodeDeltaBenchmark();
+            benchmark.lineCount = lineCount;
+            benchmark.setup();
+            var fullBytes = benchmark.fullFrames.stream().mapToLong(frame -> frame.length).sum();
+            var deltaBytes = benchmark.deltaFrames.stream().mapToLong(frame -> frame.length).sum();
+            System.out.printf("lineCount: %d, frames: %d, full bytes/frame: %d, delta bytes/frame: %d%n",
+                    lineCount, benchmark.texts.size(), fullBytes / benchmark.texts.size(), deltaBytes / benchmark.texts.size());
+        }
+        new Runner(new OptionsBuilder().include(CodeDeltaBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        this.texts = EditTrace.of(lineCount, EDIT_COUNT, SEED);
+        this.fullFrames = new ArrayList<>(texts.size());
+        this.deltaFrames = new ArrayList<>(texts.size());
+        var traceEncoder = new CodeDeltaEncoder();
+        for (var text : texts) {
+            var information = new CodeBroadcastingInformation("user", text);
+            fullFrames.add(objectMapper.writeValueAsBytes(information));
+            deltaFrames.add(objectMapper.writeValueAsBytes(traceEncoder.encode(information)));
+        }
+        this.encoder = new CodeDeltaEncoder();
+        this.decoder = new CodeDeltaDecoder(broadcaster -> {
+            throw new IllegalStateException("Trace is applied in order");
+        });
+        this.index = 0;
+    }
+
+    // Frames are walked in trace order, the trace restarts from its snapshot so the chain is never broken
+    private int next() {
+        var i = index;
+        index = i + 1 == texts.size() ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public byte[] encodeFull() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(new CodeBroadcastingInformation("user", texts.get(next())));
+    }
+
+    @Benchmark
+    public byte[] encodeDelta() throws JsonProcessingException {
+        var i = next();
+        if (i == 0)
+            encoder.resetAll();
+        return objectMapper.writeValueAsBytes(encoder.encode(new CodeBroadcastingInformation("user", texts.get(i))));
+    }
+
+    @Benchmark
+    public CodeBroadcastingInformation applyFull() throws IOException {
+        return objectMapper.readValue(fullFrames.get(next()), CodeBroadcastingInformation.class);
+    }
+
+    @Benchmark
+    public CodeBroadcastingInformation applyDelta() throws IOException {
+        return decoder.decode(objectMapper.readValue(deltaFrames.get(next()), CodeBroadcastingInformation.class));
+    }
+
+}
@@ -0,0 +1,109 @@
+package org.thehive.hiveserverclient.net.websocket.delta;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.thehive.hiveserverclient.payload.CodeBroadcastingInformation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodeDeltaTest {
+
+    final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Deltas of an edit trace rebuild every text on the receiver")
+    void deltasOfAnEditTraceRebuildEveryText() throws Exception {
+        var texts = EditTrace.of(2_000, 500, 42L);
+        var encoder = new CodeDeltaEncoder();
+        var requested = new ArrayList<String>();
+        var decoder = new CodeDeltaDecoder(requested::add);
+        long fullBytes = 0L;
+        long deltaBytes = 0L;
+        for (var text : texts) {
+            var full = new CodeBroadcastingInformation("user", text);
+            var encoded = encoder.encode(full);
+            fullBytes += objectMapper.writeValueAsBytes(full).length;
+            var wire = objectMapper.writeValueAsBytes(encoded);
+            deltaBytes += wire.length;
+            var decoded = decoder.decode(objectMapper.readValue(wire, CodeBroadcastingInformation.class));
+            assertNotNull(decoded);
+            assertEquals(text, decoded.getText());
+        }
+        assertTrue(requested.isEmpty());
+        assertEquals(1, encoder.getSnapshotCount());
+        assertEquals(texts.size() - 1, encoder.getDeltaCount());
+        assertTrue(deltaBytes * 100 < fullBytes, "fullBytes: " + fullBytes + ", deltaBytes: " + deltaBytes);
+    }
+
+    @Test
+    @DisplayName("Missed delta requests one snapshot and the snapshot restores the text")
+    void missedDeltaRequestsOneSnapshot() {
+        var texts = EditTrace.of(100, 10, 7L);
+        var encoder = new CodeDeltaEncoder();
+        var requested = new ArrayList<String>();
+        var decoder = new CodeDeltaDecoder(requested::add, Duration.ofMinutes(1L), Integer.MAX_VALUE);
+        var encoded = new ArrayList<CodeBroadcastingInformation>();
+        for (var text : texts)
+            encoded.add(encoder.encode(new CodeBroadcastingInformation("user", text)));
+        assertNotNull(decoder.decode(encoded.get(0)));
+        // Second frame is lost
+        for (var i = 2; i < encoded.size(); i++)
+            assertNull(decoder.decode(encoded.get(i)));
+        assertEquals(List.of("user"), requested);
+        assertEquals(encoded.size() - 2, decoder.getMismatchCount());
+        encoder.reset("user");
+        var snapshot = encoder.encode(new CodeBroadcastingInformation("user", texts.get(texts.size() - 1) + "x"));
+        assertFalse(snapshot.isDelta());
+        assertEquals(texts.get(texts.size() - 1) + "x", decoder.decode(snapshot).getText());
+        var next = encoder.encode(new CodeBroadcastingInformation("user", texts.get(texts.size() - 1) + "xy"));
+        assertTrue(next.isDelta());
+        assertEquals(texts.get(texts.size() - 1) + "xy", decoder.decode(next).getText());
+    }
+
+    @Test
+    @DisplayName("Lost snapshot request is repeated after the mismatch limit and after the timeout")
+    void lostSnapshotRequestIsRepeated() throws InterruptedException {
+        var texts = EditTrace.of(20, 10, 11L);
+        var encoder = new CodeDeltaEncoder();
+        var encoded = new ArrayList<CodeBroadcastingInformation>();
+        for (var text : texts)
+            encoded.add(encoder.encode(new CodeBroadcastingInformation("user", text)));
+        var requested = new ArrayList<String>();
+        var decoder = new CodeDeltaDecoder(requested::add, Duration.ofMinutes(1L), 4);
+        // First frame is lost and none of the requested snapshots arrives
+        for (var i = 1; i <= 9; i++)
+            assertNull(decoder.decode(encoded.get(i)));
+        assertEquals(List.of("user", "user", "user"), requested);
+
+        requested.clear();
+        var timedDecoder = new CodeDeltaDecoder(requested::add, Duration.ofMillis(50L), Integer.MAX_VALUE);
+        assertNull(timedDecoder.decode(encoded.get(1)));
+        assertNull(timedDecoder.decode(encoded.get(2)));
+        assertEquals(1, requested.size());
+        Thread.sleep(100L);
+        assertNull(timedDecoder.decode(encoded.get(3)));
+        assertEquals(2, requested.size());
+        encoder.reset("user");
+        var last = texts.get(texts.size() - 1);
+        assertEquals(last, timedDecoder.decode(encoder.encode(new CodeBroadcastingInformation("user", last))).getText());
+        assertEquals(2, requested.size());
+    }
+
+    @Test
+    @DisplayName("Edits don't split surrogate pairs")
+    void editsDoNotSplitSurrogatePairs() {
+        var base = "a\uD83D\uDE00b";
+        var target = "a\uD83D\uDE01b";
+        var edits = TextEdits.between(base, target);
+        assertEquals(1, edits.size());
+        assertEquals("\uD83D\uDE01", edits.get(0).getInsert());
+        assertEquals(target, TextEdits.apply(base, edits));
+        assertTrue(TextEdits.between(base, base).isEmpty());
+    }
+
+}
@@ -0,0 +1,58 @@
+package org.thehive.hiveserverclient.net.websocket.delta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Texts of a live coding session, mostly typing at a cursor with backspaces, cursor jumps and pastes
+class EditTrace {
+
+    static final String[] LINES = {
+            "public class Main {",
+            "    private final Map<String, List<Integer>> index = new HashMap<>();",
+            "    // Looks up the values of the key",
+            "    public List<Integer> lookup(String key) {",
+            "        return index.getOrDefault(key, List.of());",
+            "    }",
+            "    for (var i = 0; i < values.length; i++) sum += values[i];",
+            "    String greeting = \"Merhaba d\u00FCnya \uD83D\uDE00\";",
+            "}"
+    };
+
+    static String source(int lineCount, Random random) {
+        var builder = new StringBuilder();
+        for (var i = 0; i < lineCount; i++)
+            builder.append(LINES[random.nextInt(LINES.length)]).append('\n');
+        return builder.toString();
+    }
+
+    static List<String> of(int lineCount, int editCount, long seed) {
+        var random = new Random(seed);
+        var text = new StringBuilder(source(lineCount, random));
+        var cursor = text.length() / 2;
+        var texts = new ArrayList<String>(editCount + 1);
+        texts.add(text.toString());
+        for (var i = 0; i < editCount; i++) {
+            var action = random.nextInt(100);
+            if (action < 85) {
+                text.insert(cursor, (char) ('a' + random.nextInt(26)));
+                cursor++;
+            } else if (action < 93) {
+                if (cursor > 0 && !Character.isSurrogate(text.charAt(cursor - 1))) {
+                    text.deleteCharAt(cursor - 1);
+                    cursor--;
+                }
+            } else if (action < 98) {
+                // Jumps to a line start, so the cursor never lands inside a surrogate pair
+                cursor = text.indexOf("\n", random.nextInt(text.length())) + 1;
+            } else {
+                var paste = LINES[random.nextInt(LINES.length)] + "\n" + LINES[random.nextInt(LINES.length)] + "\n";
+                text.insert(cursor, paste);
+                cursor += paste.length();
+            }
+            texts.add(text.toString());
+        }
+        return texts;
+    }
+
+}
@@ -0,0 +1,131 @@
+package org.thehive.hiveserverclient.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.thehive.hiveserverclient.Authentication;
+import org.thehive.hiveserverclient.model.Image;
+import org.thehive.hiveserverclient.net.http.ImageClient;
+import org.thehive.hiveserverclient.net.http.RequestCallback;
+import org.thehive.hiveserverclient.net.websocket.header.AppStompHeaders;
+import org.thehive.hiveserverclient.net.websocket.subscription.SubscriptionListener;
+import org.thehive.hiveserverclient.payload.LiveSessionInformation;
+import org.thehive.hiveserverclient.payload.ParticipationNotification;
+import org.thehive.hiveserverclient.util.HeaderUtils;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AvatarPrefetcherTest {
+
+    static final long TIMEOUT_MS_EXECUTE = 5_000L;
+    static final int MAX_CONCURRENCY = 2;
+
+    ImageClient imageClient;
+    Map<String, RequestCallback<? super Image>> callbacks;
+    ExecutorService executorService;
+    CachedImageService imageService;
+    AvatarPrefetcher prefetcher;
+
+    static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + TIMEOUT_MS_EXECUTE;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10L);
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void init() {
+        this.imageClient = mock(ImageClient.class);
+        this.callbacks = new ConcurrentHashMap<>();
+        doAnswer(invocation -> callbacks.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(imageClient).get(ArgumentMatchers.anyString(), ArgumentMatchers.any(RequestCallback.class), ArgumentMatchers.any());
+        this.executorService = Executors.newFixedThreadPool(4);
+        this.imageService = new CachedImageService(imageClient, executorService);
+        this.prefetcher = new AvatarPrefetcher(imageService, MAX_CONCURRENCY);
+        Authentication.INSTANCE.authenticate("user", HeaderUtils.httpBasicAuthenticationToken("user", "password"));
+    }
+
+    @AfterEach
+    void destroy() {
+        prefetcher.close();
+        Authentication.INSTANCE.unauthenticate();
+        executorService.shutdownNow();
+    }
+
+    void respond(String username) {
+        callbacks.get(username).onResponse(new Image(username.hashCode(), new byte[8]));
+    }
+
+    @Test
+    @DisplayName("Session participants are prefetched a few at a time")
+    void sessionParticipantsArePrefetched() throws Exception {
+        var delegate = mock(SubscriptionListener.class);
+        var listener = prefetcher.listenerOf(delegate);
+        var information = new LiveSessionInformation("owner", Set.of("p1", "p2", "p3", "p4"), 0L, 0L);
+        var headers = mock(AppStompHeaders.class);
+        listener.onReceive(headers, information);
+        verify(delegate).onReceive(headers, information);
+        awaitCondition(() -> callbacks.size() == MAX_CONCURRENCY);
+        Thread.sleep(50L);
+        assertEquals(MAX_CONCURRENCY, callbacks.size());
+        assertEquals(5 - MAX_CONCURRENCY, prefetcher.getPendingCount());
+
+        // Interactive take joins a prefetch in flight instead of sending its own request
+        var inFlight = callbacks.keySet().iterator().next();
+        var taken = imageService.takeAsync(inFlight);
+        respond(inFlight);
+        assertEquals(inFlight.hashCode(), taken.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).response().orElseThrow().getId());
+
+        // Remaining loads are answered as they're dispatched, a pending username waits for a free slot
+        var responded = new HashSet<>(Set.of(inFlight));
+        awaitCondition(() -> {
+            for (var username : callbacks.keySet())
+                if (responded.add(username))
+                    respond(username);
+            return responded.size() == 5;
+        });
+        awaitCondition(() -> prefetcher.getPrefetchedCount() == 5);
+        verify(imageClient, times(5)).get(ArgumentMatchers.anyString(), ArgumentMatchers.any(), ArgumentMatchers.any());
+
+        listener.onReceive(headers, new ParticipationNotification("p5", true, 0L));
+        listener.onReceive(headers, new ParticipationNotification("p6", false, 0L));
+        listener.onReceive(headers, new LiveSessionInformation("owner", Set.of("p1"), 0L, 0L));
+        awaitCondition(() -> callbacks.containsKey("p5"));
+        respond("p5");
+        awaitCondition(() -> prefetcher.getPrefetchedCount() == 6);
+        assertFalse(callbacks.containsKey("p6"));
+        verify(imageClient, times(6)).get(ArgumentMatchers.anyString(), ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    @Test
+    @DisplayName("Load which never completes gives its slot back after the timeout")
+    void unansweredLoadGivesItsSlotBack() throws Exception {
+        try (var timedPrefetcher = new AvatarPrefetcher(imageService, executorService, 1, Duration.ofMillis(100L))) {
+            timedPrefetcher.prefetch(List.of("stuck", "next"));
+            awaitCondition(() -> callbacks.containsKey("stuck"));
+            assertEquals(1, timedPrefetcher.getPendingCount());
+            awaitCondition(() -> callbacks.containsKey("next"));
+            assertEquals(0, timedPrefetcher.getPendingCount());
+            respond("next");
+            awaitCondition(() -> timedPrefetcher.getPrefetchedCount() == 1);
+            // Interactive take still joins the load which the prefetch has given up on
+            var taken = imageService.takeAsync("stuck");
+            respond("stuck");
+            assertEquals("stuck".hashCode(), taken.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).response().orElseThrow().getId());
+            verify(imageClient, times(2)).get(ArgumentMatchers.anyString(), ArgumentMatchers.any(), ArgumentMatchers.any());
+        }
+    }
+
+}
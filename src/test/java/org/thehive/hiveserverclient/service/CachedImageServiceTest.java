@@ -0,0 +1,192 @@
+package org.thehive.hiveserverclient.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.thehive.hiveserverclient.Authentication;
+import org.thehive.hiveserverclient.model.Error;
+import org.thehive.hiveserverclient.model.Image;
+import org.thehive.hiveserverclient.net.http.ImageClient;
+import org.thehive.hiveserverclient.net.http.RequestCallback;
+import org.thehive.hiveserverclient.store.SegmentStore;
+import org.thehive.hiveserverclient.store.SegmentStoreOptions;
+import org.thehive.hiveserverclient.util.HeaderUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachedImageServiceTest {
+
+    static final long TIMEOUT_MS_EXECUTE = 5_000L;
+    static final String USERNAME = "user";
+
+    ImageClient imageClient;
+    List<RequestCallback<? super Image>> callbacks;
+    ExecutorService executorService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void init() {
+        this.imageClient = mock(ImageClient.class);
+        this.callbacks = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> callbacks.add(invocation.getArgument(1)))
+                .when(imageClient).get(ArgumentMatchers.anyString(), ArgumentMatchers.any(RequestCallback.class), ArgumentMatchers.any());
+        this.executorService = Executors.newFixedThreadPool(4);
+        Authentication.INSTANCE.authenticate(USERNAME, HeaderUtils.httpBasicAuthenticationToken(USERNAME, "password"));
+    }
+
+    @AfterEach
+    void destroy() {
+        Authentication.INSTANCE.unauthenticate();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Concurrent misses share one load")
+    void concurrentMissesShareOneLoad() throws Exception {
+        var imageService = new CachedImageService(imageClient, executorService);
+        final var takeCount = 50;
+        var futures = new CopyOnWriteArrayList<CompletableFuture<AppResponse<? extends Image>>>();
+        var start = new CountDownLatch(1);
+        var racers = Executors.newFixedThreadPool(8);
+        try {
+            for (var i = 0; i < takeCount; i++)
+                racers.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    futures.add(imageService.takeAsync("participant"));
+                });
+            start.countDown();
+            racers.shutdown();
+            assertTrue(racers.awaitTermination(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS));
+        } finally {
+            racers.shutdownNow();
+        }
+        assertEquals(1, callbacks.size());
+        var image = new Image(1, new byte[1024]);
+        callbacks.get(0).onResponse(image);
+        for (var future : futures)
+            assertSame(image, future.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).response().orElseThrow());
+        assertSame(image, imageService.takeAsync("participant").get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).response().orElseThrow());
+        assertEquals(1, callbacks.size());
+        assertTrue(imageService.getWeightedSize() >= 1024);
+    }
+
+    @Test
+    @DisplayName("Error response is shared but not cached")
+    void errorResponseIsSharedButNotCached() throws Exception {
+        var imageService = new CachedImageService(imageClient, executorService);
+        var first = imageService.takeAsync("participant");
+        var second = imageService.takeAsync("participant");
+        assertEquals(1, callbacks.size());
+        var error = new Error();
+        error.setStatus(404);
+        error.setMessage("Image not found");
+        callbacks.get(0).onError(error);
+        assertEquals(ResponseStatus.ERROR, first.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).status());
+        assertEquals("Image not found", second.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).message().orElseThrow());
+        imageService.takeAsync("participant");
+        assertEquals(2, callbacks.size());
+    }
+
+    @Test
+    @DisplayName("Images are evicted by byte size")
+    void imagesAreEvictedByByteSize() throws Exception {
+        var imageService = new CachedImageService(imageClient, executorService, 1L, Duration.ofMinutes(1L));
+        for (var i = 0; i < 4; i++) {
+            var future = imageService.takeAsync("participant" + i);
+            callbacks.get(i).onResponse(new Image(i, new byte[400 * 1024]));
+            future.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(imageService.getWeightedSize() <= 1024 * 1024);
+        assertTrue(imageService.stats().evictionCount() > 0);
+    }
+
+    @Test
+    @DisplayName("Unsuccessful background refresh keeps the previous image")
+    void unsuccessfulBackgroundRefreshKeepsPreviousImage() throws Exception {
+        var imageService = new CachedImageService(imageClient, executorService, 1L, Duration.ofMillis(1L));
+        var image = new Image(1, new byte[16]);
+        var future = imageService.takeAsync("participant");
+        callbacks.get(0).onResponse(image);
+        assertSame(image, future.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).response().orElseThrow());
+        Thread.sleep(10L);
+        assertSame(image, imageService.takeAsync("participant").get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).response().orElseThrow());
+        var deadline = System.currentTimeMillis() + TIMEOUT_MS_EXECUTE;
+        while (callbacks.size() < 2 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10L);
+        assertEquals(2, callbacks.size());
+        var error = new Error();
+        error.setStatus(500);
+        callbacks.get(1).onError(error);
+        assertSame(image, imageService.takeAsync("participant").get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).response().orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Images stored on disk are served after restart without a request")
+    void imagesStoredOnDiskAreServedAfterRestart(@TempDir Path directory) throws Exception {
+        var image = new Image(7, new byte[]{1, 2, 3});
+        try (var diskStore = SegmentStore.open(SegmentStoreOptions.defaults(directory))) {
+            var imageService = new CachedImageService(imageClient, executorService, 1L, Duration.ofMinutes(1L), diskStore);
+            var future = imageService.takeAsync("participant");
+            callbacks.get(0).onResponse(image);
+            future.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS);
+            // Written on the executor, not on the thread completing the request
+            var deadline = System.currentTimeMillis() + TIMEOUT_MS_EXECUTE;
+            while (diskStore.getEntryCount() == 0 && System.currentTimeMillis() < deadline)
+                Thread.sleep(10L);
+            assertEquals(1, diskStore.getEntryCount());
+        }
+        try (var diskStore = SegmentStore.open(SegmentStoreOptions.defaults(directory))) {
+            var imageService = new CachedImageService(imageClient, executorService, 1L, Duration.ofMinutes(1L), diskStore);
+            var stored = imageService.takeAsync("participant").get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).response().orElseThrow();
+            assertEquals(image, stored);
+            assertEquals(1, imageService.getDiskHitCount());
+            assertEquals(1, callbacks.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Deprecated constructors map entry counts to weight budgets and keep the given cache as backing store")
+    @SuppressWarnings("deprecation")
+    void deprecatedConstructorsMapEntryCountsToWeightBudgets() throws Exception {
+        var image = new Image(3, new byte[16]);
+        Cache<String, Image> cache = Caffeine.newBuilder().maximumSize(16).build();
+        cache.put("participant", image);
+        var imageService = new CachedImageService(imageClient, executorService, cache);
+        assertSame(image, imageService.takeAsync("participant").get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).response().orElseThrow());
+        var addedImage = new Image(4, new byte[16]);
+        cache.put("added", addedImage);
+        assertSame(addedImage, imageService.takeAsync("added").get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).response().orElseThrow());
+        assertTrue(callbacks.isEmpty());
+        var loadedImage = new Image(5, new byte[16]);
+        var loading = imageService.takeAsync("loaded");
+        callbacks.get(0).onResponse(loadedImage);
+        loading.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS);
+        assertSame(loadedImage, cache.getIfPresent("loaded"));
+        callbacks.clear();
+        var sizedImageService = new CachedImageService(imageClient, executorService, 16);
+        for (var i = 0; i < 4; i++) {
+            var future = sizedImageService.takeAsync("participant" + i);
+            callbacks.get(i).onResponse(new Image(i, new byte[400 * 1024]));
+            future.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS);
+        }
+        // 16 entries of 64 KB make a 1 MB budget
+        assertTrue(sizedImageService.getWeightedSize() <= 1024 * 1024);
+        assertThrows(IllegalArgumentException.class, () -> new CachedImageService(imageClient, executorService, 0));
+    }
+
+}
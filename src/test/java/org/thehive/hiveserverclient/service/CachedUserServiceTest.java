@@ -0,0 +1,148 @@
+package org.thehive.hiveserverclient.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.thehive.hiveserverclient.Authentication;
+import org.thehive.hiveserverclient.model.Error;
+import org.thehive.hiveserverclient.model.User;
+import org.thehive.hiveserverclient.net.http.RequestCallback;
+import org.thehive.hiveserverclient.net.http.UserClient;
+import org.thehive.hiveserverclient.util.HeaderUtils;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachedUserServiceTest {
+
+    static final long TIMEOUT_MS_EXECUTE = 5_000L;
+    static final String USERNAME = "user";
+
+    UserClient userClient;
+    List<RequestCallback<? super User>> idCallbacks;
+    List<RequestCallback<? super User>> ownCallbacks;
+    List<RequestCallback<? super User>> updateCallbacks;
+    ExecutorService executorService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void init() {
+        this.userClient = mock(UserClient.class);
+        this.idCallbacks = new CopyOnWriteArrayList<>();
+        this.ownCallbacks = new CopyOnWriteArrayList<>();
+        this.updateCallbacks = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> idCallbacks.add(invocation.getArgument(1)))
+                .when(userClient).get(ArgumentMatchers.anyInt(), ArgumentMatchers.any(RequestCallback.class), ArgumentMatchers.any());
+        doAnswer(invocation -> ownCallbacks.add(invocation.getArgument(0)))
+                .when(userClient).get(ArgumentMatchers.any(RequestCallback.class), ArgumentMatchers.any());
+        doAnswer(invocation -> updateCallbacks.add(invocation.getArgument(2)))
+                .when(userClient).update(ArgumentMatchers.anyInt(), ArgumentMatchers.any(User.class), ArgumentMatchers.any(RequestCallback.class), ArgumentMatchers.any());
+        this.executorService = Executors.newFixedThreadPool(4);
+        Authentication.INSTANCE.authenticate(USERNAME, HeaderUtils.httpBasicAuthenticationToken(USERNAME, "password"));
+    }
+
+    @AfterEach
+    void destroy() {
+        Authentication.INSTANCE.unauthenticate();
+        executorService.shutdownNow();
+    }
+
+    static User userOf(int id, String username) {
+        return new User(id, username, username + "@test.com", null, null);
+    }
+
+    @Test
+    @DisplayName("Concurrent misses share one load and hits aren't requested")
+    void concurrentMissesShareOneLoadAndHitsAreNotRequested() throws Exception {
+        var userService = new CachedUserService(userClient, executorService);
+        final var profileCount = 50;
+        var futures = new CopyOnWriteArrayList<CompletableFuture<AppResponse<? extends User>>>();
+        var start = new CountDownLatch(1);
+        var racers = Executors.newFixedThreadPool(8);
+        try {
+            for (var i = 0; i < profileCount; i++)
+                racers.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    futures.add(userService.profileAsync(1));
+                });
+            start.countDown();
+            racers.shutdown();
+            assertTrue(racers.awaitTermination(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS));
+        } finally {
+            racers.shutdownNow();
+        }
+        assertEquals(1, idCallbacks.size());
+        var user = userOf(1, "participant");
+        idCallbacks.get(0).onResponse(user);
+        for (var future : futures)
+            assertSame(user, future.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).response().orElseThrow());
+        assertSame(user, userService.profileAsync(1).get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).response().orElseThrow());
+        assertEquals(1, idCallbacks.size());
+        var stats = userService.stats();
+        assertEquals(1, stats.missCount());
+        assertEquals(profileCount, stats.hitCount());
+        assertEquals(1, stats.loadSuccessCount());
+        assertTrue(stats.totalLoadTime() > 0);
+    }
+
+    @Test
+    @DisplayName("Error response is shared but not cached")
+    void errorResponseIsSharedButNotCached() throws Exception {
+        var userService = new CachedUserService(userClient, executorService);
+        var first = userService.profileAsync(2);
+        var second = userService.profileAsync(2);
+        assertEquals(1, idCallbacks.size());
+        var error = new Error();
+        error.setStatus(404);
+        error.setMessage("User not found");
+        idCallbacks.get(0).onError(error);
+        assertEquals(ResponseStatus.ERROR_UNAVAILABLE, first.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).status());
+        assertEquals(ResponseStatus.ERROR_UNAVAILABLE, second.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).status());
+        userService.profileAsync(2);
+        assertEquals(2, idCallbacks.size());
+    }
+
+    @Test
+    @DisplayName("Successful update invalidates cached profiles of the id")
+    void successfulUpdateInvalidatesCachedProfilesOfId() throws Exception {
+        var userService = new CachedUserService(userClient, executorService);
+        var user = userOf(1, USERNAME);
+        var byId = userService.profileAsync(1);
+        idCallbacks.get(0).onResponse(user);
+        var own = userService.profileAsync();
+        ownCallbacks.get(0).onResponse(user);
+        assertSame(user, byId.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).response().orElseThrow());
+        assertSame(user, own.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).response().orElseThrow());
+        assertSame(user, userService.profileAsync().get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).response().orElseThrow());
+        assertEquals(1, ownCallbacks.size());
+        var failedUpdate = userService.updateAsync(1, user);
+        var error = new Error();
+        error.setStatus(400);
+        error.setMessage("Invalid user");
+        updateCallbacks.get(0).onError(error);
+        assertEquals(ResponseStatus.ERROR_INVALID, failedUpdate.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).status());
+        assertEquals(2, userService.getCachedCount());
+        var updatedUser = userOf(1, USERNAME);
+        updatedUser.setEmail("updated@test.com");
+        var update = userService.updateAsync(1, updatedUser);
+        updateCallbacks.get(1).onResponse(updatedUser);
+        assertTrue(update.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).status().isSuccess());
+        assertEquals(0, userService.getCachedCount());
+        var reloaded = userService.profileAsync(1);
+        assertEquals(2, idCallbacks.size());
+        idCallbacks.get(1).onResponse(updatedUser);
+        assertEquals("updated@test.com", reloaded.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).response().orElseThrow().getEmail());
+        userService.profileAsync();
+        assertEquals(2, ownCallbacks.size());
+    }
+
+}
@@ -0,0 +1,255 @@
+package org.thehive.hiveserverclient.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.stubbing.Answer;
+import org.thehive.hiveserverclient.Authentication;
+import org.thehive.hiveserverclient.model.Error;
+import org.thehive.hiveserverclient.model.Session;
+import org.thehive.hiveserverclient.net.http.RequestCallback;
+import org.thehive.hiveserverclient.net.http.SessionClient;
+import org.thehive.hiveserverclient.util.HeaderUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SessionIndexTest {
+
+    static final long TIMEOUT_MS_EXECUTE = 5_000L;
+
+    SessionClient sessionClient;
+    List<Session> serverSessions;
+    List<String> events;
+    List<long[]> sinceRequests;
+    Answer<Void> sessionsSince;
+    SessionIndex sessionIndex;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void init() {
+        this.sessionClient = mock(SessionClient.class);
+        this.serverSessions = new ArrayList<>();
+        this.events = new ArrayList<>();
+        this.sinceRequests = new ArrayList<>();
+        doAnswer(invocation -> {
+            invocation.<RequestCallback<Session[]>>getArgument(0).onResponse(serverSessions.toArray(new Session[0]));
+            return null;
+        }).when(sessionClient).getAllSessions(ArgumentMatchers.any(RequestCallback.class), ArgumentMatchers.any());
+        this.sessionsSince = invocation -> {
+            long creationTime = invocation.getArgument(0);
+            int id = invocation.getArgument(1);
+            sinceRequests.add(new long[]{creationTime, id});
+            var newer = serverSessions.stream()
+                    .filter(session -> session.getCreationTime() > creationTime || (session.getCreationTime() == creationTime && session.getId() > id))
+                    .toArray(Session[]::new);
+            invocation.<RequestCallback<Session[]>>getArgument(2).onResponse(newer);
+            return null;
+        };
+        doAnswer(sessionsSince).when(sessionClient).getSessionsSince(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt(), ArgumentMatchers.any(RequestCallback.class), ArgumentMatchers.any());
+        this.sessionIndex = new SessionIndex(new SessionServiceImpl(sessionClient), 3);
+        sessionIndex.addListener(recordingListener());
+        Authentication.INSTANCE.authenticate("user", HeaderUtils.httpBasicAuthenticationToken("user", "password"));
+    }
+
+    @AfterEach
+    void destroy() {
+        Authentication.INSTANCE.unauthenticate();
+    }
+
+    SessionIndexListener recordingListener() {
+        return new SessionIndexListener() {
+            @Override
+            public void onAdded(Session session) {
+                events.add("added " + session.getId());
+            }
+
+            @Override
+            public void onRemoved(Session session) {
+                events.add("removed " + session.getId());
+            }
+
+            @Override
+            public void onChanged(Session previous, Session session) {
+                events.add("changed " + session.getId());
+            }
+        };
+    }
+
+    static Session sessionOf(int id, long creationTime) {
+        return new Session(id, "Session " + id, null, 3_600_000L, null, creationTime);
+    }
+
+    void refresh() throws Exception {
+        assertTrue(sessionIndex.refreshAsync().get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).status().isSuccess());
+    }
+
+    @Test
+    @DisplayName("Only newer sessions are fetched between full syncs")
+    void onlyNewerSessionsAreFetchedBetweenFullSyncs() throws Exception {
+        serverSessions.addAll(List.of(sessionOf(1, 100L), sessionOf(2, 200L)));
+        refresh();
+        assertEquals(List.of("added 1", "added 2"), events);
+        events.clear();
+
+        serverSessions.add(sessionOf(3, 200L));
+        refresh();
+        assertEquals(List.of("added 3"), events);
+        assertArrayEquals(new long[]{200L, 2L}, sinceRequests.get(0));
+        events.clear();
+
+        // Removal isn't visible incrementally, the next full sync catches it
+        serverSessions.remove(0);
+        refresh();
+        assertTrue(events.isEmpty());
+        assertArrayEquals(new long[]{200L, 3L}, sinceRequests.get(1));
+        refresh();
+        assertEquals(List.of("removed 1"), events);
+        assertEquals(2, sessionIndex.getIncrementalRefreshCount());
+        assertEquals(2, sessionIndex.getFullRefreshCount());
+        assertEquals(List.of(2, 3), Arrays.stream(sessionIndex.getSessions()).map(Session::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("Full listing answer to the query is diffed and merged")
+    @SuppressWarnings("unchecked")
+    void fullListingAnswerToQueryIsDiffedAndMerged() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<RequestCallback<Session[]>>getArgument(2).onResponse(serverSessions.toArray(new Session[0]));
+            return null;
+        }).when(sessionClient).getSessionsSince(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt(), ArgumentMatchers.any(RequestCallback.class), ArgumentMatchers.any());
+        serverSessions.addAll(List.of(sessionOf(1, 100L), sessionOf(2, 200L)));
+        refresh();
+        events.clear();
+        var renamed = sessionOf(2, 200L);
+        renamed.setName("Renamed");
+        serverSessions.set(1, renamed);
+        serverSessions.remove(0);
+        serverSessions.add(sessionOf(4, 400L));
+        refresh();
+        assertEquals(List.of("removed 1", "changed 2", "added 4"), events);
+        assertFalse(sessionIndex.isIncrementalSupported());
+        refresh();
+        verify(sessionClient, times(1)).getSessionsSince(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt(), ArgumentMatchers.any(), ArgumentMatchers.any());
+        assertEquals(3, sessionIndex.getFullRefreshCount());
+    }
+
+    @Test
+    @DisplayName("Unmodified listing is diffed unless it is the one diffed last time")
+    @SuppressWarnings("unchecked")
+    void unmodifiedListingIsDiffedUnlessDiffedLastTime() throws Exception {
+        // Another caller has already received the listing, so even the first one is answered as not modified
+        doAnswer(invocation -> {
+            invocation.<RequestCallback<Session[]>>getArgument(0).onNotModified(serverSessions.toArray(new Session[0]));
+            return null;
+        }).when(sessionClient).getAllSessions(ArgumentMatchers.any(RequestCallback.class), ArgumentMatchers.any());
+        this.sessionIndex = new SessionIndex(new SessionServiceImpl(sessionClient), 1);
+        sessionIndex.addListener(recordingListener());
+        serverSessions.addAll(List.of(sessionOf(1, 100L), sessionOf(2, 200L)));
+        refresh();
+        assertEquals(List.of("added 1", "added 2"), events);
+        events.clear();
+        refresh();
+        assertTrue(events.isEmpty());
+        assertEquals(2, sessionIndex.getSize());
+        assertEquals(2, sessionIndex.getFullRefreshCount());
+    }
+
+    @Test
+    @DisplayName("Rejected query falls back to a full listing in the same refresh")
+    @SuppressWarnings("unchecked")
+    void rejectedQueryFallsBackToFullListing() throws Exception {
+        doAnswer(invocation -> {
+            var error = new Error();
+            error.setStatus(400);
+            error.setMessage("Unknown parameter");
+            invocation.<RequestCallback<Session[]>>getArgument(2).onError(error);
+            return null;
+        }).when(sessionClient).getSessionsSince(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt(), ArgumentMatchers.any(RequestCallback.class), ArgumentMatchers.any());
+        serverSessions.add(sessionOf(1, 100L));
+        refresh();
+        serverSessions.add(sessionOf(2, 200L));
+        events.clear();
+        var sessions = sessionIndex.refreshAsync().get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS).response().orElseThrow();
+        assertEquals(2, sessions.length);
+        assertEquals(List.of("added 2"), events);
+        assertFalse(sessionIndex.isIncrementalSupported());
+        assertEquals(0, sessionIndex.getIncrementalRefreshCount());
+    }
+
+    @Test
+    @DisplayName("Rejected query is probed again after the retry interval")
+    @SuppressWarnings("unchecked")
+    void rejectedQueryIsProbedAgain() throws Exception {
+        this.sessionIndex = new SessionIndex(new SessionServiceImpl(sessionClient), 3, Duration.ZERO);
+        sessionIndex.addListener(recordingListener());
+        var rejected = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (rejected.compareAndSet(false, true)) {
+                var error = new Error();
+                error.setStatus(404);
+                error.setMessage("Not found");
+                invocation.<RequestCallback<Session[]>>getArgument(2).onError(error);
+                return null;
+            }
+            return sessionsSince.answer(invocation);
+        }).when(sessionClient).getSessionsSince(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt(), ArgumentMatchers.any(RequestCallback.class), ArgumentMatchers.any());
+        serverSessions.add(sessionOf(1, 100L));
+        refresh();
+        serverSessions.add(sessionOf(2, 200L));
+        refresh();
+        assertFalse(sessionIndex.isIncrementalSupported());
+        assertEquals(0, sessionIndex.getIncrementalRefreshCount());
+        serverSessions.add(sessionOf(3, 300L));
+        events.clear();
+        refresh();
+        assertTrue(sessionIndex.isIncrementalSupported());
+        assertEquals(1, sessionIndex.getIncrementalRefreshCount());
+        assertEquals(List.of("added 3"), events);
+        assertEquals(3, sessionIndex.getSize());
+    }
+
+    @Test
+    @DisplayName("Service without the incremental query is diffed from full listings")
+    void serviceWithoutIncrementalQueryIsDiffed() throws Exception {
+        var sessionService = new SessionService() {
+            @Override
+            public void takeAll(Consumer<? super AppResponse<? extends Session[]>> consumer) {
+                consumer.accept(AppResponse.of(serverSessions.toArray(new Session[0])));
+            }
+
+            @Override
+            public void takeLive(String liveId, Consumer<? super AppResponse<? extends Session>> consumer) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void create(Session session, Consumer<? super AppResponse<? extends Session>> consumer) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        this.sessionIndex = new SessionIndex(sessionService, 3);
+        sessionIndex.addListener(recordingListener());
+        serverSessions.add(sessionOf(1, 100L));
+        refresh();
+        serverSessions.add(sessionOf(2, 200L));
+        events.clear();
+        refresh();
+        assertEquals(List.of("added 2"), events);
+        assertEquals(2, sessionIndex.getSize());
+        assertFalse(sessionIndex.isIncrementalSupported());
+        assertEquals(2, sessionIndex.getFullRefreshCount());
+    }
+
+}
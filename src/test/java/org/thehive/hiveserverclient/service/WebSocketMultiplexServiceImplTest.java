@@ -0,0 +1,241 @@
+package org.thehive.hiveserverclient.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.thehive.hiveserverclient.Authentication;
+import org.thehive.hiveserverclient.net.websocket.ConnectionStatus;
+import org.thehive.hiveserverclient.net.websocket.UrlEndpointResolverImpl;
+import org.thehive.hiveserverclient.net.websocket.WebSocketClient;
+import org.thehive.hiveserverclient.net.websocket.WebSocketClientImpl;
+import org.thehive.hiveserverclient.net.websocket.WebSocketConnection;
+import org.thehive.hiveserverclient.net.websocket.WebSocketListener;
+import org.thehive.hiveserverclient.net.websocket.header.AppStompHeaders;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadType;
+import org.thehive.hiveserverclient.net.websocket.subscription.SessionSubscription;
+import org.thehive.hiveserverclient.net.websocket.subscription.StompSubscription;
+import org.thehive.hiveserverclient.net.websocket.subscription.SubscriptionListener;
+import org.thehive.hiveserverclient.payload.ChatMessage;
+import org.thehive.hiveserverclient.payload.Payload;
+import org.thehive.hiveserverclient.stub.StubDataStore;
+import org.thehive.hiveserverclient.stub.StubHiveServer;
+import org.thehive.hiveserverclient.util.HeaderUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WebSocketMultiplexServiceImplTest {
+
+    static final long TIMEOUT_MS_EXECUTE = 10_000L;
+    static final int POOL_SIZE = 2;
+    static final int SUBSCRIPTION_COUNT = 6;
+
+    StubHiveServer server;
+    ExecutorService executorService;
+    List<WebSocketConnection> openedConnections;
+    WebSocketMultiplexServiceImpl webSocketService;
+
+    static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + TIMEOUT_MS_EXECUTE;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10L);
+        assertTrue(condition.getAsBoolean());
+    }
+
+    static class CountingListener implements SubscriptionListener {
+
+        final AtomicInteger subscribeCount = new AtomicInteger();
+        final AtomicInteger receiveCount = new AtomicInteger();
+        final AtomicInteger unsubscribeCount = new AtomicInteger();
+        final AtomicInteger exceptionCount = new AtomicInteger();
+
+        @Override
+        public void onSubscribe(StompSubscription subscription) {
+            subscribeCount.incrementAndGet();
+        }
+
+        @Override
+        public void onSend(Payload payload) {
+        }
+
+        @Override
+        public void onReceive(AppStompHeaders headers, Payload payload) {
+            receiveCount.incrementAndGet();
+        }
+
+        @Override
+        public void onUnsubscribe(StompSubscription subscription) {
+            unsubscribeCount.incrementAndGet();
+        }
+
+        @Override
+        public void onException(Throwable t) {
+            exceptionCount.incrementAndGet();
+        }
+
+    }
+
+    @BeforeEach
+    void init() {
+        this.server = StubHiveServer.start();
+        this.executorService = Executors.newFixedThreadPool(4);
+        this.openedConnections = new CopyOnWriteArrayList<>();
+        var wsStompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        wsStompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        var urlEndpointResolver = new UrlEndpointResolverImpl("/user/queue/session", "/websocket");
+        urlEndpointResolver.addDestinationUrlEndpoint(ChatMessage.class, "/chat/1");
+        var webSocketClientImpl = new WebSocketClientImpl(server.getWebSocketUrl(), urlEndpointResolver, wsStompClient, executorService);
+        WebSocketClient webSocketClient = (handshakeHeaders, connectHeaders, listener) -> {
+            var connection = webSocketClientImpl.connect(handshakeHeaders, connectHeaders, listener);
+            openedConnections.add(connection);
+            return connection;
+        };
+        this.webSocketService = new WebSocketMultiplexServiceImpl(webSocketClient, POOL_SIZE);
+        Authentication.INSTANCE.authenticate(StubDataStore.USERNAME,
+                HeaderUtils.httpBasicAuthenticationToken(StubDataStore.USERNAME, StubDataStore.PASSWORD));
+    }
+
+    @AfterEach
+    void destroy() {
+        webSocketService.close();
+        Authentication.INSTANCE.unauthenticate();
+        server.close();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Subscriptions are spread over the pool and rebalanced on disconnect")
+    void subscriptionsAreSpreadAndRebalanced() throws Exception {
+        var listeners = new ArrayList<CountingListener>();
+        for (var i = 0; i < SUBSCRIPTION_COUNT; i++) {
+            var listener = new CountingListener();
+            listeners.add(listener);
+            webSocketService.subscribeToSession(Integer.toString(i + 1), listener);
+        }
+        assertEquals(POOL_SIZE, openedConnections.size());
+        assertEquals(SUBSCRIPTION_COUNT, webSocketService.getSubscriptionCount());
+        assertEquals(List.of(3, 3), webSocketService.getConnectionStats().stream()
+                .map(MultiplexConnectionStats::getSubscriptionCount)
+                .collect(Collectors.toList()));
+        awaitCondition(() -> listeners.stream().allMatch(listener -> listener.subscribeCount.get() == 1));
+        for (var i = 0; i < SUBSCRIPTION_COUNT; i++) {
+            var sessionId = Integer.toString(i + 1);
+            awaitCondition(() -> server.getSubscriptionCount(sessionId) == 1);
+        }
+
+        for (var i = 0; i < SUBSCRIPTION_COUNT; i++)
+            server.publish(Integer.toString(i + 1), PayloadType.CHAT_MESSAGE, new ChatMessage("user", "hello", System.currentTimeMillis()));
+        awaitCondition(() -> listeners.stream().allMatch(listener -> listener.receiveCount.get() == 1));
+        awaitCondition(() -> webSocketService.getConnectionStats().stream().mapToLong(MultiplexConnectionStats::getReceivedFrameCount).sum() == SUBSCRIPTION_COUNT);
+
+        openedConnections.get(0).disconnect();
+        awaitCondition(() -> openedConnections.size() == POOL_SIZE + 1);
+        awaitCondition(() -> webSocketService.getConnectionStats().stream()
+                .allMatch(connectionStats -> connectionStats.getStatus() == ConnectionStatus.CONNECTED));
+        var stats = webSocketService.getConnectionStats();
+        assertEquals(POOL_SIZE, stats.size());
+        assertTrue(stats.stream().allMatch(connectionStats -> connectionStats.getStatus() == ConnectionStatus.CONNECTED));
+        assertEquals(SUBSCRIPTION_COUNT, stats.stream().mapToInt(MultiplexConnectionStats::getSubscriptionCount).sum());
+        for (var i = 0; i < SUBSCRIPTION_COUNT; i++) {
+            var sessionId = Integer.toString(i + 1);
+            awaitCondition(() -> server.getSubscriptionCount(sessionId) == 1);
+        }
+
+        for (var i = 0; i < SUBSCRIPTION_COUNT; i++)
+            server.publish(Integer.toString(i + 1), PayloadType.CHAT_MESSAGE, new ChatMessage("user", "hello", System.currentTimeMillis()));
+        awaitCondition(() -> listeners.stream().allMatch(listener -> listener.receiveCount.get() == 2));
+        // Moving to another connection isn't reported as a new subscription
+        assertTrue(listeners.stream().allMatch(listener -> listener.subscribeCount.get() == 1));
+    }
+
+    @Test
+    @DisplayName("Subscriptions are attached without holding the service lock")
+    void subscriptionsAreAttachedWithoutServiceLock() {
+        var connection = mock(WebSocketConnection.class);
+        var listeners = new ArrayList<WebSocketListener>();
+        WebSocketClient webSocketClient = (handshakeHeaders, connectHeaders, listener) -> {
+            listeners.add(listener);
+            return connection;
+        };
+        var service = new WebSocketMultiplexServiceImpl(webSocketClient, 1);
+        var attachedCount = new AtomicInteger();
+        when(connection.subscribeToSession(anyString(), any())).thenAnswer(invocation -> {
+            assertFalse(Thread.holdsLock(service));
+            attachedCount.incrementAndGet();
+            return mock(SessionSubscription.class);
+        });
+        try {
+            service.subscribeToSession("1", new CountingListener());
+            assertEquals(1, listeners.size());
+            listeners.get(0).onConnect(connection);
+            assertEquals(1, attachedCount.get());
+            service.subscribeToSession("2", new CountingListener());
+            assertEquals(2, attachedCount.get());
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Subscriptions are ended when the only connection never comes up")
+    void subscriptionsAreEndedWhenConnectFails() {
+        var listeners = new ArrayList<WebSocketListener>();
+        WebSocketClient webSocketClient = (handshakeHeaders, connectHeaders, listener) -> {
+            listeners.add(listener);
+            return mock(WebSocketConnection.class);
+        };
+        var service = new WebSocketMultiplexServiceImpl(webSocketClient, 1);
+        try {
+            var listener = new CountingListener();
+            var subscription = service.subscribeToSession("1", listener);
+            listeners.get(0).onException(new IllegalStateException("Connection refused"));
+            assertFalse(subscription.isInSubscription());
+            assertEquals(1, listener.exceptionCount.get());
+            assertEquals(1, listener.unsubscribeCount.get());
+            assertEquals(0, service.getSubscriptionCount());
+            assertThrows(IllegalStateException.class, () -> subscription.send(new ChatMessage("user", "hello", 1L)));
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Closing the service reports every subscription as unsubscribed")
+    void closeReportsSubscriptionsAsUnsubscribed() {
+        var connection = mock(WebSocketConnection.class);
+        var listeners = new ArrayList<WebSocketListener>();
+        WebSocketClient webSocketClient = (handshakeHeaders, connectHeaders, listener) -> {
+            listeners.add(listener);
+            return connection;
+        };
+        when(connection.subscribeToSession(anyString(), any())).thenAnswer(invocation -> mock(SessionSubscription.class));
+        var service = new WebSocketMultiplexServiceImpl(webSocketClient, 1);
+        var attachedListener = new CountingListener();
+        var attached = service.subscribeToSession("1", attachedListener);
+        listeners.get(0).onConnect(connection);
+        var subscriptions = List.of(attached, service.subscribeToSession("2", new CountingListener()));
+        service.close();
+        service.close();
+        assertTrue(subscriptions.stream().noneMatch(SessionSubscription::isInSubscription));
+        assertEquals(1, attachedListener.unsubscribeCount.get());
+        assertEquals(0, attachedListener.exceptionCount.get());
+        assertEquals(0, service.getSubscriptionCount());
+    }
+
+}
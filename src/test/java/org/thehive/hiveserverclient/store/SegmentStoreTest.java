@@ -0,0 +1,122 @@
+package org.thehive.hiveserverclient.store;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentStoreTest {
+
+    static final int SEGMENT_SIZE = 4 * 1024;
+
+    @TempDir
+    Path directory;
+
+    SegmentStoreOptions.SegmentStoreOptionsBuilder options() {
+        return SegmentStoreOptions.builder()
+                .directory(directory)
+                .segmentSize(SEGMENT_SIZE);
+    }
+
+    static String text(ByteBuffer buffer) {
+        var bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("Values survive reopening and the latest version wins")
+    void valuesSurviveReopening() throws IOException {
+        try (var store = SegmentStore.open(options().build())) {
+            for (var i = 0; i < 100; i++)
+                assertTrue(store.put("user" + (i % 10), ("avatar-" + i).getBytes(StandardCharsets.UTF_8)));
+            assertEquals("avatar-99", text(store.get("user9")));
+            assertTrue(store.getSegmentCount() > 1);
+            assertTrue(store.get("user9").isReadOnly());
+        }
+        try (var store = SegmentStore.open(options().build())) {
+            assertEquals(10, store.getEntryCount());
+            for (var i = 0; i < 10; i++)
+                assertEquals("avatar-" + (90 + i), text(store.get("user" + i)));
+            assertTrue(store.put("user0", "avatar-100".getBytes(StandardCharsets.UTF_8)));
+            assertEquals("avatar-100", text(store.get("user0")));
+        }
+        try (var store = SegmentStore.open(options().build())) {
+            assertFalse(store.put("user", new byte[SEGMENT_SIZE]));
+        }
+    }
+
+    @Test
+    @DisplayName("Corrupted record and everything after it in its segment are dropped")
+    void corruptedRecordIsDropped() throws IOException {
+        try (var store = SegmentStore.open(options().build())) {
+            store.put("first", "1".getBytes(StandardCharsets.UTF_8));
+            store.put("second", "2".getBytes(StandardCharsets.UTF_8));
+        }
+        var segmentPath = Files.list(directory).collect(Collectors.toList()).get(0);
+        var secondOffset = SegmentStore.HEADER_LENGTH + "first".length() + 1;
+        try (var file = new RandomAccessFile(segmentPath.toFile(), "rw")) {
+            // Last byte of the value of the second record
+            file.seek(secondOffset + SegmentStore.HEADER_LENGTH + "second".length());
+            file.write('9');
+        }
+        try (var store = SegmentStore.open(options().build())) {
+            assertEquals("1", text(store.get("first")));
+            assertNull(store.get("second"));
+            store.put("third", "3".getBytes(StandardCharsets.UTF_8));
+        }
+        try (var store = SegmentStore.open(options().build())) {
+            assertEquals("3", text(store.get("third")));
+            assertNull(store.get("second"));
+        }
+    }
+
+    @Test
+    @DisplayName("Expired entries aren't returned or reloaded")
+    void expiredEntriesAreNotReturned() throws Exception {
+        try (var store = SegmentStore.open(options().ttl(Duration.ofMillis(50L)).build())) {
+            store.put("user", "avatar".getBytes(StandardCharsets.UTF_8));
+            assertNotNull(store.get("user"));
+            Thread.sleep(100L);
+            assertNull(store.get("user"));
+        }
+        try (var store = SegmentStore.open(options().ttl(Duration.ofMillis(50L)).build())) {
+            assertEquals(0, store.getEntryCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Compaction rewrites sparse segments and keeps live values")
+    void compactionRewritesSparseSegments() throws IOException {
+        try (var store = SegmentStore.open(options().build())) {
+            for (var i = 0; i < 400; i++)
+                store.put("user" + (i % 5), ("avatar-" + i).getBytes(StandardCharsets.UTF_8));
+            var segmentCount = store.getSegmentCount();
+            var held = store.get("user0");
+            store.compact();
+            assertTrue(store.getCompactionCount() > 0);
+            assertTrue(store.getSegmentCount() < segmentCount);
+            assertEquals(store.getSegmentCount(), Files.list(directory).count());
+            // Slice taken before compaction stays readable
+            assertEquals("avatar-395", text(held));
+            for (var i = 0; i < 5; i++)
+                assertEquals("avatar-" + (395 + i), text(store.get("user" + i)));
+        }
+        try (var store = SegmentStore.open(options().build())) {
+            assertEquals(5, store.getEntryCount());
+            for (var i = 0; i < 5; i++)
+                assertEquals("avatar-" + (395 + i), text(store.get("user" + i)));
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+package org.thehive.hiveserverclient.stub;
+
+import org.thehive.hiveserverclient.model.Image;
+import org.thehive.hiveserverclient.model.Session;
+import org.thehive.hiveserverclient.model.Submission;
+import org.thehive.hiveserverclient.model.User;
+import org.thehive.hiveserverclient.model.UserInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// In-memory state of the stub server, seeded deterministically from the options
+public class StubDataStore {
+
+    public static final String USERNAME = "user";
+    public static final String PASSWORD = "password";
+
+    private static final String CODE_LINE = "for (int i = 0; i < args.length; i++) System.out.println(args[i]);\n";
+
+    private final StubServerOptions options;
+    private final Map<String, User> usersByUsername;
+    private final List<Session> sessions;
+    private final List<Submission> submissions;
+    private final AtomicInteger idSequence;
+    private final AtomicLong version;
+
+    public StubDataStore(StubServerOptions options) {
+        this.options = options;
+        this.usersByUsername = new ConcurrentHashMap<>();
+        this.sessions = new CopyOnWriteArrayList<>();
+        this.submissions = new CopyOnWriteArrayList<>();
+        this.idSequence = new AtomicInteger();
+        this.version = new AtomicLong();
+        seed();
+    }
+
+    private void seed() {
+        var random = new Random(options.getSeed());
+        var user = saveUser(new User(null, USERNAME, USERNAME + "@thehive.org", PASSWORD, null));
+        for (var i = 0; i < options.getSessionCount(); i++)
+            saveSession(new Session(null, "Session " + i, null, 3_600_000L, user, null));
+        for (var i = 0; i < options.getSubmissionCount() && !sessions.isEmpty(); i++) {
+            var session = sessions.get(random.nextInt(sessions.size()));
+            saveSubmission(new Submission(0, content(options.getSubmissionContentLength()), session, user, 0L), user);
+        }
+    }
+
+    public Optional<User> authenticate(String username, String password) {
+        var user = usersByUsername.get(username);
+        if (user == null || !user.getPassword().equals(password))
+            return Optional.empty();
+        return Optional.of(user);
+    }
+
+    public Optional<User> findUser(int id) {
+        return usersByUsername.values().stream().filter(user -> user.getId() == id).findFirst();
+    }
+
+    public boolean existsUser(String username) {
+        return usersByUsername.containsKey(username);
+    }
+
+    public User saveUser(User user) {
+        user.setId(idSequence.incrementAndGet());
+        var now = System.currentTimeMillis();
+        if (user.getUserInfo() == null)
+            user.setUserInfo(new UserInfo(user.getId(), user.getUsername(), user.getUsername(), now));
+        usersByUsername.put(user.getUsername(), user);
+        version.incrementAndGet();
+        return user;
+    }
+
+    public User updateUser(User current, User user) {
+        if (user.getEmail() != null)
+            current.setEmail(user.getEmail());
+        if (user.getPassword() != null)
+            current.setPassword(user.getPassword());
+        if (user.getUserInfo() != null)
+            current.setUserInfo(user.getUserInfo());
+        version.incrementAndGet();
+        return current;
+    }
+
+    public List<Session> sessions() {
+        return new ArrayList<>(sessions);
+    }
+
+    public Optional<Session> findSession(String liveId) {
+        return sessions.stream().filter(session -> session.getLiveId().equals(liveId)).findFirst();
+    }
+
+    public Session saveSession(Session session) {
+        var id = idSequence.incrementAndGet();
+        session.setId(id);
+        session.setLiveId(String.valueOf(10_000_000_000L + id));
+        session.setCreationTime(System.currentTimeMillis());
+        sessions.add(session);
+        version.incrementAndGet();
+        return session;
+    }
+
+    public List<Submission> submissions() {
+        return new ArrayList<>(submissions);
+    }
+
+    public List<Submission> submissionsBySession(int sessionId) {
+        return submissions.stream()
+                .filter(submission -> submission.getSession() != null && submission.getSession().getId() == sessionId)
+                .collect(Collectors.toList());
+    }
+
+    public Optional<Submission> lastSubmission(String username) {
+        Submission last = null;
+        for (var submission : submissions)
+            if (submission.getUser() != null && username.equals(submission.getUser().getUsername()))
+                last = submission;
+        return Optional.ofNullable(last);
+    }
+
+    public Submission saveSubmission(Submission submission, User user) {
+        submission.setId(idSequence.incrementAndGet());
+        submission.setUser(user);
+        submission.setCreationTime(System.currentTimeMillis());
+        submissions.add(submission);
+        version.incrementAndGet();
+        return submission;
+    }
+
+    public Image image(String username) {
+        var content = new byte[options.getImageContentLength()];
+        new Random(username.hashCode()).nextBytes(content);
+        return new Image(username.hashCode(), content);
+    }
+
+    // Changes with every modification, used as the validator of the listings
+    public long version() {
+        return version.get();
+    }
+
+    private static String content(int length) {
+        var sb = new StringBuilder(length + CODE_LINE.length());
+        while (sb.length() < length)
+            sb.append(CODE_LINE);
+        sb.setLength(length);
+        return sb.toString();
+    }
+
+}
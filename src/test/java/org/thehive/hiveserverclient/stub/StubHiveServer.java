@@ -0,0 +1,193 @@
+package org.thehive.hiveserverclient.stub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.websocket.server.Constants;
+import org.apache.tomcat.websocket.server.WsSci;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadEncoding;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadType;
+
+import javax.servlet.ServletException;
+import javax.websocket.DeploymentException;
+import javax.websocket.HandshakeResponse;
+import javax.websocket.server.HandshakeRequest;
+import javax.websocket.server.ServerContainer;
+import javax.websocket.server.ServerEndpointConfig;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.Optional;
+
+// Embedded stand-in for the Hive server, serves the REST endpoints and the STOMP endpoint on a random local port
+@Slf4j
+public class StubHiveServer implements AutoCloseable {
+
+    public static final String STOMP_PATH = "/stomp";
+
+    private final StubServerOptions options;
+    private final StubDataStore store;
+    private final StubRestServlet restServlet;
+    private final StubStompBroker broker;
+    private final Tomcat tomcat;
+
+    private StubHiveServer(StubServerOptions options) {
+        this.options = options;
+        var objectMapper = new ObjectMapper();
+        this.store = new StubDataStore(options);
+        this.restServlet = new StubRestServlet(options, store, objectMapper);
+        this.broker = new StubStompBroker(options, objectMapper);
+        this.tomcat = new Tomcat();
+    }
+
+    public static StubHiveServer start(@NonNull StubServerOptions options) {
+        var server = new StubHiveServer(options);
+        try {
+            server.startTomcat();
+        } catch (LifecycleException | IOException e) {
+            server.close();
+            throw new IllegalStateException("Stub server cannot be started", e);
+        }
+        return server;
+    }
+
+    public static StubHiveServer start() {
+        return start(StubServerOptions.defaults());
+    }
+
+    private void startTomcat() throws LifecycleException, IOException {
+        tomcat.setBaseDir(Files.createTempDirectory("stub-hive-server").toString());
+        tomcat.setPort(0);
+        tomcat.getConnector();
+        var context = tomcat.addContext("", null);
+        Tomcat.addServlet(context, "rest", restServlet);
+        context.addServletMappingDecoded("/*", "rest");
+        context.addServletContainerInitializer(new WsSci(), null);
+        // Runs after WsSci, which has created the server container by then
+        context.addServletContainerInitializer((classes, servletContext) -> {
+            var container = (ServerContainer) servletContext.getAttribute(Constants.SERVER_CONTAINER_SERVLET_CONTEXT_ATTRIBUTE);
+            try {
+                container.addEndpoint(stompEndpointConfig());
+            } catch (DeploymentException e) {
+                throw new ServletException(e);
+            }
+        }, null);
+        tomcat.start();
+        log.info("Stub server has been started, port: {}", getPort());
+    }
+
+    private ServerEndpointConfig stompEndpointConfig() {
+        return ServerEndpointConfig.Builder.create(StubStompEndpoint.class, STOMP_PATH)
+                .configurator(new ServerEndpointConfig.Configurator() {
+                    @Override
+                    public void modifyHandshake(ServerEndpointConfig config, HandshakeRequest request, HandshakeResponse response) {
+                        var authorization = request.getHeaders().get("Authorization");
+                        if (authorization == null || authorization.isEmpty())
+                            return;
+                        credentialsOf(authorization.get(0))
+                                .filter(credentials -> store.authenticate(credentials[0], credentials[1]).isPresent())
+                                .ifPresent(credentials -> config.getUserProperties().put(StubStompBroker.USERNAME_PROPERTY, credentials[0]));
+                    }
+
+                    @SuppressWarnings("unchecked")
+                    @Override
+                    public <T> T getEndpointInstance(Class<T> endpointClass) {
+                        return (T) new StubStompEndpoint(broker);
+                    }
+                })
+                .build();
+    }
+
+    public int getPort() {
+        return tomcat.getConnector().getLocalPort();
+    }
+
+    public String getHttpUrl(@NonNull String path) {
+        return "http://localhost:" + getPort() + path;
+    }
+
+    public String getWebSocketUrl() {
+        return "ws://localhost:" + getPort() + STOMP_PATH;
+    }
+
+    public StubServerOptions getOptions() {
+        return options;
+    }
+
+    public StubDataStore getStore() {
+        return store;
+    }
+
+    public long getRequestCount() {
+        return restServlet.getRequestCount();
+    }
+
+    public long getNotModifiedCount() {
+        return restServlet.getNotModifiedCount();
+    }
+
+    public int getConnectionCount() {
+        return broker.getConnectionCount();
+    }
+
+    public int getConnectionCount(@NonNull PayloadEncoding payloadEncoding) {
+        return broker.getConnectionCount(payloadEncoding);
+    }
+
+    public int getSubscriptionCount(@NonNull String sessionId) {
+        return broker.getSubscriptionCount(sessionId);
+    }
+
+    public long getDeliveredCount() {
+        return broker.getDeliveredCount();
+    }
+
+    // Pushes a frame to every subscriber of the session, as the server does for notifications
+    public void publish(@NonNull String sessionId, @NonNull PayloadType payloadType, @NonNull Object payload) {
+        broker.publish(sessionId, payloadType, payload);
+    }
+
+    public void dropConnections() {
+        broker.dropConnections();
+    }
+
+    @Override
+    public void close() {
+        broker.shutdown();
+        try {
+            tomcat.stop();
+            tomcat.destroy();
+        } catch (LifecycleException e) {
+            log.warn("Error while stopping stub server", e);
+        }
+    }
+
+    static Optional<String[]> credentialsOf(String authorization) {
+        if (authorization == null || !authorization.startsWith("Basic "))
+            return Optional.empty();
+        String decoded;
+        try {
+            decoded = new String(Base64.getDecoder().decode(authorization.substring("Basic ".length())), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        var separatorIndex = decoded.indexOf(':');
+        if (separatorIndex < 0)
+            return Optional.empty();
+        return Optional.of(new String[]{decoded.substring(0, separatorIndex), decoded.substring(separatorIndex + 1)});
+    }
+
+    static void sleep(long millis) {
+        if (millis <= 0)
+            return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
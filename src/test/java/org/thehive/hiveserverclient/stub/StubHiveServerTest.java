@@ -0,0 +1,222 @@
+package org.thehive.hiveserverclient.stub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.thehive.hiveserverclient.ExecutionMode;
+import org.thehive.hiveserverclient.model.Error;
+import org.thehive.hiveserverclient.model.Session;
+import org.thehive.hiveserverclient.model.User;
+import org.thehive.hiveserverclient.net.http.AsyncHttpTransport;
+import org.thehive.hiveserverclient.net.http.RequestCallback;
+import org.thehive.hiveserverclient.net.http.SessionClientImpl;
+import org.thehive.hiveserverclient.net.http.UserClientImpl;
+import org.thehive.hiveserverclient.net.websocket.*;
+import org.thehive.hiveserverclient.net.websocket.header.AppStompHeaders;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadType;
+import org.thehive.hiveserverclient.net.websocket.subscription.StompSubscription;
+import org.thehive.hiveserverclient.net.websocket.subscription.SubscriptionListener;
+import org.thehive.hiveserverclient.payload.ChatMessage;
+import org.thehive.hiveserverclient.payload.LiveSessionInformation;
+import org.thehive.hiveserverclient.payload.Payload;
+import org.thehive.hiveserverclient.util.HeaderUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class StubHiveServerTest {
+
+    static final long TIMEOUT_MS_EXECUTE = 5_000L;
+    static final String SUBSCRIPTION_ENDPOINT = "/user/queue/session";
+    static final String DESTINATION_PREFIX = "/websocket";
+    static final String CHAT_MESSAGE_PAYLOAD_ENDPOINT = "/session/chat/{id}";
+
+    StubHiveServer server;
+
+    @AfterEach
+    void destroy() {
+        if (server != null)
+            server.close();
+    }
+
+    // Completes with the response body or the error
+    static <T> Object call(Consumer<RequestCallback<T>> operation) throws Exception {
+        var future = new CompletableFuture<>();
+        operation.accept(new RequestCallback<>() {
+            @Override
+            public void onResponse(T responseBody) {
+                future.complete(responseBody);
+            }
+
+            @Override
+            public void onError(Error error) {
+                future.complete(error);
+            }
+
+            @Override
+            public void onFail(Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    @DisplayName("User endpoint authenticates with basic credentials")
+    void userEndpointAuthenticatesWithBasicCredentials() throws Exception {
+        this.server = StubHiveServer.start();
+        var userClient = new UserClientImpl(server.getHttpUrl("/user"), new ObjectMapper(), AsyncHttpTransport.create(4));
+        var user = call((RequestCallback<User> callback) -> userClient.get(callback,
+                HeaderUtils.httpBasicAuthenticationHeader(StubDataStore.USERNAME, StubDataStore.PASSWORD)));
+        assertEquals(StubDataStore.USERNAME, ((User) user).getUsername());
+        var error = call((RequestCallback<User> callback) -> userClient.get(callback,
+                HeaderUtils.httpBasicAuthenticationHeader(StubDataStore.USERNAME, "wrong")));
+        assertEquals(401, ((Error) error).getStatus());
+    }
+
+    @Test
+    @DisplayName("Unchanged session listing is answered with not modified")
+    void unchangedSessionListingIsAnsweredWithNotModified() throws Exception {
+        this.server = StubHiveServer.start(StubServerOptions.builder().sessionCount(25).build());
+        var sessionClient = new SessionClientImpl(server.getHttpUrl("/session"), new ObjectMapper(), AsyncHttpTransport.create(4));
+        var authHeader = HeaderUtils.httpBasicAuthenticationHeader(StubDataStore.USERNAME, StubDataStore.PASSWORD);
+        var first = call((RequestCallback<Session[]> callback) -> sessionClient.getAllSessions(callback, authHeader));
+        var second = call((RequestCallback<Session[]> callback) -> sessionClient.getAllSessions(callback, authHeader));
+        assertEquals(25, ((Session[]) first).length);
+        assertArrayEquals((Session[]) first, (Session[]) second);
+        assertNotSame(first, second);
+        assertEquals(1, server.getNotModifiedCount());
+    }
+
+    @Test
+    @DisplayName("Error rate injects server errors")
+    void errorRateInjectsServerErrors() throws Exception {
+        this.server = StubHiveServer.start(StubServerOptions.builder().errorRate(1d).build());
+        var userClient = new UserClientImpl(server.getHttpUrl("/user"), new ObjectMapper(), AsyncHttpTransport.create(4));
+        var error = call((RequestCallback<User> callback) -> userClient.get(callback,
+                HeaderUtils.httpBasicAuthenticationHeader(StubDataStore.USERNAME, StubDataStore.PASSWORD)));
+        assertEquals(500, ((Error) error).getStatus());
+    }
+
+    @Test
+    @DisplayName("Chat message is delivered to every subscriber of the session")
+    void chatMessageIsDeliveredToEverySubscriberOfTheSession() throws Exception {
+        this.server = StubHiveServer.start(StubServerOptions.builder().latencyMs(5L).build());
+        final var sessionId = "84697174304";
+        var receivedPayloads = new CopyOnWriteArrayList<Payload>();
+        var latch = new CountDownLatch(4);
+        var first = connect(subscriptionListener(receivedPayloads, latch), sessionId);
+        var second = connect(subscriptionListener(receivedPayloads, latch), sessionId);
+        first.send(new ChatMessage("user", "Hello", System.currentTimeMillis()));
+        server.publish(sessionId, PayloadType.LIVE_SESSION_INFORMATION, new LiveSessionInformation("user", Set.of("user"), 0L, 0L));
+        if (!latch.await(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS))
+            fail(new IllegalStateException("Payloads haven't been received"));
+        assertEquals(2, receivedPayloads.stream().filter(payload -> payload instanceof ChatMessage).count());
+        assertEquals(2, receivedPayloads.stream().filter(payload -> payload instanceof LiveSessionInformation).count());
+        assertEquals(2, server.getSubscriptionCount(sessionId));
+        second.unsubscribe();
+        first.unsubscribe();
+        server.dropConnections();
+    }
+
+    StompSubscription connect(SubscriptionListener subscriptionListener, String sessionId) throws Exception {
+        var urlEndpointResolver = new UrlEndpointResolverImpl(SUBSCRIPTION_ENDPOINT, DESTINATION_PREFIX);
+        urlEndpointResolver.addDestinationUrlEndpoint(ChatMessage.class, CHAT_MESSAGE_PAYLOAD_ENDPOINT);
+        var wsStompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        wsStompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        var webSocketClient = new WebSocketClientImpl(server.getWebSocketUrl(), urlEndpointResolver, wsStompClient, ExecutionMode.PLATFORM);
+        var headers = new WebSocketHttpHeaders();
+        headers.add(HeaderUtils.HTTP_BASIC_AUTHENTICATION_HEADER_NAME,
+                HeaderUtils.httpBasicAuthenticationToken(StubDataStore.USERNAME, StubDataStore.PASSWORD));
+        var connectionFuture = new CompletableFuture<WebSocketConnection>();
+        webSocketClient.connect(headers, null, new WebSocketListenerAdapter(connectionFuture));
+        var connection = connectionFuture.get(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS);
+        var expectedCount = server.getSubscriptionCount(sessionId) + 1;
+        var subscription = connection.subscribeToSession(sessionId, subscriptionListener);
+        // Subscription frame is processed asynchronously by the broker
+        var deadline = System.currentTimeMillis() + TIMEOUT_MS_EXECUTE;
+        while (server.getSubscriptionCount(sessionId) < expectedCount && System.currentTimeMillis() < deadline)
+            Thread.sleep(10L);
+        return subscription;
+    }
+
+    static SubscriptionListener subscriptionListener(List<Payload> receivedPayloads, CountDownLatch latch) {
+        return new SubscriptionListener() {
+            @Override
+            public void onSubscribe(StompSubscription subscription) {
+                log.info("onSubscribe");
+            }
+
+            @Override
+            public void onSend(Payload payload) {
+                log.info("onSend");
+            }
+
+            @Override
+            public void onReceive(AppStompHeaders headers, Payload payload) {
+                receivedPayloads.add(payload);
+                latch.countDown();
+            }
+
+            @Override
+            public void onUnsubscribe(StompSubscription subscription) {
+                log.info("onUnsubscribe");
+            }
+        };
+    }
+
+    static class WebSocketListenerAdapter implements WebSocketListener {
+
+        private final CompletableFuture<WebSocketConnection> connectionFuture;
+
+        WebSocketListenerAdapter(CompletableFuture<WebSocketConnection> connectionFuture) {
+            this.connectionFuture = connectionFuture;
+        }
+
+        @Override
+        public void onConnect(WebSocketConnection connection) {
+            connectionFuture.complete(connection);
+        }
+
+        @Override
+        public void onSubscribe(StompSubscription subscription) {
+        }
+
+        @Override
+        public void onUnsubscribe(StompSubscription subscription) {
+        }
+
+        @Override
+        public void onReceive(AppStompHeaders headers, Payload payload) {
+        }
+
+        @Override
+        public void onSend(Payload payload) {
+        }
+
+        @Override
+        public void onException(Throwable t) {
+            connectionFuture.completeExceptionally(t);
+        }
+
+        @Override
+        public void onDisconnect(WebSocketConnection connection) {
+        }
+
+    }
+
+}
@@ -0,0 +1,229 @@
+package org.thehive.hiveserverclient.stub;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.thehive.hiveserverclient.model.Error;
+import org.thehive.hiveserverclient.model.Session;
+import org.thehive.hiveserverclient.model.Submission;
+import org.thehive.hiveserverclient.model.User;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Serves the user, session, submission and image endpoints from the data store
+@Slf4j
+class StubRestServlet extends HttpServlet {
+
+    private static final int MIN_COMPRESSION_LENGTH = 256;
+
+    private final StubServerOptions options;
+    private final StubDataStore store;
+    private final ObjectMapper objectMapper;
+    private final LongAdder requestCount;
+    private final LongAdder notModifiedCount;
+
+    StubRestServlet(StubServerOptions options, StubDataStore store, ObjectMapper objectMapper) {
+        this.options = options;
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.requestCount = new LongAdder();
+        this.notModifiedCount = new LongAdder();
+    }
+
+    long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    long getNotModifiedCount() {
+        return notModifiedCount.sum();
+    }
+
+    @Override
+    protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        requestCount.increment();
+        StubHiveServer.sleep(options.getLatencyMs());
+        if (options.getErrorRate() > 0 && ThreadLocalRandom.current().nextDouble() < options.getErrorRate()) {
+            writeError(req, resp, HttpStatus.SC_INTERNAL_SERVER_ERROR, "Injected error");
+            return;
+        }
+        var segments = req.getRequestURI().replaceAll("^/+|/+$", "").split("/");
+        var resource = segments[0];
+        var param = segments.length > 1 ? segments[1] : null;
+        try {
+            switch (resource) {
+                case "user":
+                    user(req, resp, param);
+                    break;
+                case "session":
+                    session(req, resp, param);
+                    break;
+                case "submission":
+                    submission(req, resp, param);
+                    break;
+                case "image":
+                    image(req, resp, param);
+                    break;
+                default:
+                    writeError(req, resp, HttpStatus.SC_NOT_FOUND, "Resource not found");
+            }
+        } catch (JsonProcessingException | NumberFormatException e) {
+            writeError(req, resp, HttpStatus.SC_BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private void user(HttpServletRequest req, HttpServletResponse resp, String param) throws IOException {
+        var method = req.getMethod();
+        if (method.equals("POST") && param == null) {
+            var user = readBody(req, User.class);
+            if (user.getUsername() == null || user.getPassword() == null || store.existsUser(user.getUsername())) {
+                writeError(req, resp, HttpStatus.SC_BAD_REQUEST, "Invalid user");
+                return;
+            }
+            writeJson(req, resp, store.saveUser(user), false);
+            return;
+        }
+        var authenticated = authenticate(req);
+        if (authenticated.isEmpty()) {
+            writeError(req, resp, HttpStatus.SC_UNAUTHORIZED, "Bad credentials");
+            return;
+        }
+        if (method.equals("GET") && param == null)
+            writeJson(req, resp, authenticated.get(), false);
+        else if (method.equals("GET")) {
+            var user = store.findUser(Integer.parseInt(param));
+            if (user.isPresent())
+                writeJson(req, resp, user.get(), false);
+            else
+                writeError(req, resp, HttpStatus.SC_NOT_FOUND, "User not found");
+        } else if (method.equals("PUT") && param != null) {
+            if (authenticated.get().getId() != Integer.parseInt(param)) {
+                writeError(req, resp, HttpStatus.SC_FORBIDDEN, "Access denied");
+                return;
+            }
+            writeJson(req, resp, store.updateUser(authenticated.get(), readBody(req, User.class)), false);
+        } else
+            writeError(req, resp, HttpStatus.SC_METHOD_NOT_ALLOWED, "Method not allowed");
+    }
+
+    private void session(HttpServletRequest req, HttpServletResponse resp, String param) throws IOException {
+        var authenticated = authenticate(req);
+        if (authenticated.isEmpty()) {
+            writeError(req, resp, HttpStatus.SC_UNAUTHORIZED, "Bad credentials");
+            return;
+        }
+        var method = req.getMethod();
+        if (method.equals("GET") && param == null)
+            writeJson(req, resp, store.sessions(), true);
+        else if (method.equals("GET")) {
+            var session = store.findSession(param);
+            if (session.isPresent())
+                writeJson(req, resp, session.get(), false);
+            else
+                writeError(req, resp, HttpStatus.SC_NOT_FOUND, "Session not found");
+        } else if (method.equals("POST") && param == null) {
+            var session = readBody(req, Session.class);
+            session.setUser(authenticated.get());
+            writeJson(req, resp, store.saveSession(session), false);
+        } else
+            writeError(req, resp, HttpStatus.SC_METHOD_NOT_ALLOWED, "Method not allowed");
+    }
+
+    private void submission(HttpServletRequest req, HttpServletResponse resp, String param) throws IOException {
+        var authenticated = authenticate(req);
+        if (authenticated.isEmpty()) {
+            writeError(req, resp, HttpStatus.SC_UNAUTHORIZED, "Bad credentials");
+            return;
+        }
+        var method = req.getMethod();
+        if (method.equals("GET") && param == null)
+            writeJson(req, resp, store.submissions(), true);
+        else if (method.equals("GET") && param.equals("this")) {
+            var submission = store.lastSubmission(authenticated.get().getUsername());
+            if (submission.isPresent())
+                writeJson(req, resp, submission.get(), false);
+            else
+                resp.setStatus(HttpStatus.SC_OK);
+        } else if (method.equals("GET"))
+            writeJson(req, resp, store.submissionsBySession(Integer.parseInt(param)), true);
+        else if (method.equals("POST") && param == null)
+            writeJson(req, resp, store.saveSubmission(readBody(req, Submission.class), authenticated.get()), false);
+        else
+            writeError(req, resp, HttpStatus.SC_METHOD_NOT_ALLOWED, "Method not allowed");
+    }
+
+    private void image(HttpServletRequest req, HttpServletResponse resp, String param) throws IOException {
+        if (authenticate(req).isEmpty()) {
+            writeError(req, resp, HttpStatus.SC_UNAUTHORIZED, "Bad credentials");
+            return;
+        }
+        if (!req.getMethod().equals("GET") || param == null) {
+            writeError(req, resp, HttpStatus.SC_METHOD_NOT_ALLOWED, "Method not allowed");
+            return;
+        }
+        writeJson(req, resp, store.image(param), false);
+    }
+
+    private Optional<User> authenticate(HttpServletRequest req) {
+        return StubHiveServer.credentialsOf(req.getHeader(HttpHeaders.AUTHORIZATION))
+                .flatMap(credentials -> store.authenticate(credentials[0], credentials[1]));
+    }
+
+    private <T> T readBody(HttpServletRequest req, Class<T> type) throws IOException {
+        var gzip = "gzip".equalsIgnoreCase(req.getHeader(HttpHeaders.CONTENT_ENCODING));
+        try (InputStream in = gzip ? new GZIPInputStream(req.getInputStream()) : req.getInputStream()) {
+            return objectMapper.readValue(in, type);
+        }
+    }
+
+    private void writeJson(HttpServletRequest req, HttpServletResponse resp, Object value, boolean conditional) throws IOException {
+        if (conditional) {
+            var etag = "\"" + store.version() + "\"";
+            resp.setHeader(HttpHeaders.ETAG, etag);
+            if (etag.equals(req.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+                notModifiedCount.increment();
+                resp.setStatus(HttpStatus.SC_NOT_MODIFIED);
+                return;
+            }
+        }
+        write(req, resp, HttpStatus.SC_OK, objectMapper.writeValueAsBytes(value));
+    }
+
+    private void writeError(HttpServletRequest req, HttpServletResponse resp, int status, String message) throws IOException {
+        var reason = EnglishReasonPhraseCatalog.INSTANCE.getReason(status, Locale.ENGLISH);
+        var error = new Error(System.currentTimeMillis(), status, reason, null, message, req.getRequestURI(), req.getMethod());
+        write(req, resp, status, objectMapper.writeValueAsBytes(error));
+    }
+
+    private void write(HttpServletRequest req, HttpServletResponse resp, int status, byte[] body) throws IOException {
+        resp.setStatus(status);
+        resp.setContentType("application/json");
+        var acceptEncoding = req.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (body.length >= MIN_COMPRESSION_LENGTH && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            var bos = new ByteArrayOutputStream(body.length / 4);
+            try (var gzip = new GZIPOutputStream(bos)) {
+                gzip.write(body);
+            }
+            body = bos.toByteArray();
+            resp.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        resp.setContentLength(body.length);
+        try (var os = resp.getOutputStream()) {
+            os.write(body);
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package org.thehive.hiveserverclient.stub;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Singular;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadType;
+
+import java.util.Map;
+
+@Getter
+@Builder
+public class StubServerOptions {
+
+    public static final Map<String, PayloadType> DEFAULT_DESTINATION_PAYLOAD_TYPES = Map.of(
+            "chat", PayloadType.CHAT_MESSAGE,
+            "code-receiving", PayloadType.CODE_RECEIVING_REQUEST,
+            "code-broadcasting", PayloadType.CODE_BROADCASTING_INFORMATION);
+
+    // Delay applied before each REST response and each broker delivery
+    @Builder.Default
+    private final long latencyMs = 0L;
+    // Probability of answering a REST request with 500
+    @Builder.Default
+    private final double errorRate = 0d;
+    @Builder.Default
+    private final int sessionCount = 10;
+    @Builder.Default
+    private final int submissionCount = 50;
+    @Builder.Default
+    private final int submissionContentLength = 2 * 1024;
+    @Builder.Default
+    private final int imageContentLength = 16 * 1024;
+    @Builder.Default
+    private final String subscriptionPrefix = "/user/queue/session/";
+    @Builder.Default
+    private final String destinationPrefix = "/websocket";
+    // Last path segment of the destination before the session id, mapped to the payload type of the delivered frame
+    @Singular
+    private final Map<String, PayloadType> destinationPayloadTypes;
+    // Smile offered by a client at connect is accepted, otherwise every connection stays on text JSON
+    @Builder.Default
+    private final boolean smilePayloadEncoding = true;
+    // Delta encoded code broadcasts offered by a client are accepted, the stub relays frames as they are
+    @Builder.Default
+    private final boolean codeBroadcastDelta = true;
+    @Builder.Default
+    private final long seed = 42L;
+
+    public static StubServerOptions defaults() {
+        return StubServerOptions.builder().build();
+    }
+
+    public PayloadType payloadTypeOf(String destinationKind) {
+        var payloadTypes = destinationPayloadTypes.isEmpty() ? DEFAULT_DESTINATION_PAYLOAD_TYPES : destinationPayloadTypes;
+        return payloadTypes.get(destinationKind);
+    }
+
+}
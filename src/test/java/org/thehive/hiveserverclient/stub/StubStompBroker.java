@@ -0,0 +1,333 @@
+package org.thehive.hiveserverclient.stub;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.thehive.hiveserverclient.net.websocket.header.AppStompHeaders;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadEncoding;
+import org.thehive.hiveserverclient.net.websocket.header.PayloadType;
+
+import javax.websocket.CloseReason;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Minimal STOMP 1.2 broker, frames sent to a session destination are delivered to every subscriber of that session
+@Slf4j
+class StubStompBroker {
+
+    static final String USERNAME_PROPERTY = "stub.username";
+
+    private final StubServerOptions options;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper smileObjectMapper;
+    private final StompDecoder decoder;
+    private final StompEncoder encoder;
+    private final Map<Session, Connection> connections;
+    private final Map<String, Set<Subscription>> subscriptionsBySession;
+    private final ExecutorService deliveryExecutor;
+    private final AtomicLong messageIdSequence;
+    private final LongAdder deliveredCount;
+
+    StubStompBroker(StubServerOptions options, ObjectMapper objectMapper) {
+        this.options = options;
+        this.objectMapper = objectMapper;
+        this.smileObjectMapper = new ObjectMapper(new SmileFactory());
+        this.decoder = new StompDecoder();
+        this.encoder = new StompEncoder();
+        this.connections = new ConcurrentHashMap<>();
+        this.subscriptionsBySession = new ConcurrentHashMap<>();
+        // Single thread keeps the delivery order of the frames while latency is applied
+        this.deliveryExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "stub-stomp-delivery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.messageIdSequence = new AtomicLong();
+        this.deliveredCount = new LongAdder();
+    }
+
+    void open(Session session) {
+        connections.put(session, new Connection(session));
+    }
+
+    void close(Session session) {
+        var connection = connections.remove(session);
+        if (connection == null)
+            return;
+        for (var subscriptions : subscriptionsBySession.values())
+            subscriptions.removeIf(subscription -> subscription.connection == connection);
+    }
+
+    void handle(Session session, ByteBuffer frame) {
+        var connection = connections.get(session);
+        if (connection == null)
+            return;
+        for (var message : decoder.decode(frame)) {
+            var accessor = StompHeaderAccessor.wrap(message);
+            var command = accessor.getCommand();
+            if (command == null)
+                continue;
+            switch (command) {
+                case CONNECT:
+                case STOMP:
+                    connect(connection, accessor);
+                    break;
+                case SUBSCRIBE:
+                    subscribe(connection, accessor);
+                    break;
+                case UNSUBSCRIBE:
+                    for (var subscriptions : subscriptionsBySession.values())
+                        subscriptions.removeIf(subscription -> subscription.connection == connection
+                                && subscription.id.equals(accessor.getSubscriptionId()));
+                    break;
+                case SEND:
+                    send(connection, accessor, message);
+                    break;
+                case DISCONNECT:
+                    receipt(connection, accessor);
+                    close(session);
+                    break;
+                default:
+                    log.debug("Unsupported command, command: {}", command);
+            }
+        }
+    }
+
+    void publish(String sessionId, PayloadType payloadType, Object payload) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+        deliver(sessionId, payloadType, body, PayloadEncoding.JSON);
+    }
+
+    int getConnectionCount() {
+        return connections.size();
+    }
+
+    int getConnectionCount(PayloadEncoding payloadEncoding) {
+        return (int) connections.values().stream().filter(connection -> connection.payloadEncoding == payloadEncoding).count();
+    }
+
+    int getSubscriptionCount(String sessionId) {
+        var subscriptions = subscriptionsBySession.get(sessionId);
+        return subscriptions != null ? subscriptions.size() : 0;
+    }
+
+    long getDeliveredCount() {
+        return deliveredCount.sum();
+    }
+
+    // Drops every connection without a DISCONNECT, as a network failure or server restart would
+    void dropConnections() {
+        for (var connection : List.copyOf(connections.values())) {
+            try {
+                connection.session.close(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "Stub server dropped connection"));
+            } catch (IOException e) {
+                log.debug("Error while dropping connection", e);
+            }
+            close(connection.session);
+        }
+    }
+
+    void shutdown() {
+        deliveryExecutor.shutdownNow();
+        try {
+            deliveryExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void connect(Connection connection, StompHeaderAccessor accessor) {
+        var username = (String) connection.session.getUserProperties().get(USERNAME_PROPERTY);
+        if (username == null) {
+            var credentials = StubHiveServer.credentialsOf(accessor.getFirstNativeHeader("Authorization"));
+            if (credentials.isPresent())
+                username = credentials.get()[0];
+        }
+        if (username == null) {
+            var error = StompHeaderAccessor.create(StompCommand.ERROR);
+            error.setNativeHeader("message", "Bad credentials");
+            connection.send(encode(error, new byte[0]));
+            return;
+        }
+        connection.username = username;
+        var connected = StompHeaderAccessor.create(StompCommand.CONNECTED);
+        connected.setNativeHeader("version", "1.2");
+        connected.setNativeHeader("heart-beat", "0,0");
+        connected.setNativeHeader("user-name", username);
+        var acceptedEncodings = accessor.getFirstNativeHeader(AppStompHeaders.PAYLOAD_ENCODING);
+        if (acceptedEncodings != null) {
+            connection.payloadEncoding = PayloadEncoding.JSON;
+            for (var value : acceptedEncodings.split(",")) {
+                var encoding = PayloadEncoding.negotiated(value);
+                if (encoding == PayloadEncoding.SMILE && options.isSmilePayloadEncoding()) {
+                    connection.payloadEncoding = encoding;
+                    break;
+                }
+            }
+            connected.setNativeHeader(AppStompHeaders.PAYLOAD_ENCODING, connection.payloadEncoding.value);
+        }
+        if (Boolean.parseBoolean(accessor.getFirstNativeHeader(AppStompHeaders.CODE_BROADCAST_DELTA)) && options.isCodeBroadcastDelta())
+            connected.setNativeHeader(AppStompHeaders.CODE_BROADCAST_DELTA, Boolean.TRUE.toString());
+        connection.send(encode(connected, new byte[0]));
+    }
+
+    private void subscribe(Connection connection, StompHeaderAccessor accessor) {
+        var destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(options.getSubscriptionPrefix())) {
+            log.debug("Unsupported subscription destination, destination: {}", destination);
+            return;
+        }
+        var sessionId = destination.substring(options.getSubscriptionPrefix().length());
+        subscriptionsBySession.computeIfAbsent(sessionId, key -> ConcurrentHashMap.newKeySet())
+                .add(new Subscription(connection, accessor.getSubscriptionId(), destination));
+        receipt(connection, accessor);
+    }
+
+    private void send(Connection connection, StompHeaderAccessor accessor, Message<byte[]> message) {
+        var destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(options.getDestinationPrefix())) {
+            log.debug("Unsupported send destination, destination: {}", destination);
+            return;
+        }
+        var segments = destination.split("/");
+        var sessionId = segments[segments.length - 1];
+        var kind = segments.length > 1 ? segments[segments.length - 2] : "";
+        var payloadType = accessor.getFirstNativeHeader(AppStompHeaders.PAYLOAD_TYPE) != null
+                ? PayloadType.byValue(accessor.getFirstNativeHeader(AppStompHeaders.PAYLOAD_TYPE))
+                : options.payloadTypeOf(kind);
+        if (payloadType == null) {
+            log.debug("Unsupported send destination, destination: {}", destination);
+            return;
+        }
+        var encoding = PayloadEncoding.byContentType(accessor.getContentType());
+        // Destinations without a known session id are routed to the sessions the sender has subscribed to
+        if (subscriptionsBySession.containsKey(sessionId))
+            deliver(sessionId, payloadType, message.getPayload(), encoding);
+        else
+            for (var entry : subscriptionsBySession.entrySet())
+                if (entry.getValue().stream().anyMatch(subscription -> subscription.connection == connection))
+                    deliver(entry.getKey(), payloadType, message.getPayload(), encoding);
+        receipt(connection, accessor);
+    }
+
+    private void receipt(Connection connection, StompHeaderAccessor accessor) {
+        var receipt = accessor.getReceipt();
+        if (receipt == null)
+            return;
+        var receiptAccessor = StompHeaderAccessor.create(StompCommand.RECEIPT);
+        receiptAccessor.setNativeHeader("receipt-id", receipt);
+        connection.send(encode(receiptAccessor, new byte[0]));
+    }
+
+    private void deliver(String sessionId, PayloadType payloadType, byte[] body, PayloadEncoding encoding) {
+        var subscriptions = subscriptionsBySession.get(sessionId);
+        if (subscriptions == null || subscriptions.isEmpty())
+            return;
+        var targets = new ArrayList<>(subscriptions);
+        Runnable delivery = () -> {
+            StubHiveServer.sleep(options.getLatencyMs());
+            // Body is transcoded once for the subscribers of the other encoding
+            var bodies = new EnumMap<PayloadEncoding, byte[]>(PayloadEncoding.class);
+            bodies.put(encoding, body);
+            for (var subscription : targets) {
+                var targetEncoding = subscription.connection.payloadEncoding;
+                var targetBody = bodies.computeIfAbsent(targetEncoding, key -> transcode(body, encoding, key));
+                var accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+                accessor.setNativeHeader("destination", subscription.destination);
+                accessor.setNativeHeader("subscription", subscription.id);
+                accessor.setNativeHeader("message-id", String.valueOf(messageIdSequence.incrementAndGet()));
+                accessor.setNativeHeader("content-type", targetEncoding.mimeType.toString());
+                accessor.setNativeHeader(AppStompHeaders.PAYLOAD_TYPE, payloadType.value);
+                subscription.connection.send(encode(accessor, targetBody), targetEncoding != PayloadEncoding.JSON);
+                deliveredCount.increment();
+            }
+        };
+        if (options.getLatencyMs() > 0)
+            deliveryExecutor.execute(delivery);
+        else
+            delivery.run();
+    }
+
+    private byte[] transcode(byte[] body, PayloadEncoding from, PayloadEncoding to) {
+        var reader = from == PayloadEncoding.SMILE ? smileObjectMapper : objectMapper;
+        var writer = to == PayloadEncoding.SMILE ? smileObjectMapper : objectMapper;
+        try {
+            return writer.writeValueAsBytes(reader.readTree(body));
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private byte[] encode(StompHeaderAccessor accessor, byte[] body) {
+        return encoder.encode(MessageBuilder.createMessage(body, accessor.getMessageHeaders()));
+    }
+
+    private static class Connection {
+
+        private final Session session;
+        private volatile String username;
+        private volatile PayloadEncoding payloadEncoding = PayloadEncoding.JSON;
+
+        private Connection(Session session) {
+            this.session = session;
+        }
+
+        private void send(byte[] frame) {
+            send(frame, false);
+        }
+
+        private synchronized void send(byte[] frame, boolean binary) {
+            if (!session.isOpen())
+                return;
+            try {
+                if (binary)
+                    session.getBasicRemote().sendBinary(ByteBuffer.wrap(frame));
+                else
+                    session.getBasicRemote().sendText(new String(frame, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                log.debug("Error while sending frame, username: {}", username, e);
+            }
+        }
+
+    }
+
+    private static class Subscription {
+
+        private final Connection connection;
+        private final String id;
+        private final String destination;
+
+        private Subscription(Connection connection, String id, String destination) {
+            this.connection = connection;
+            this.id = id;
+            this.destination = destination;
+        }
+
+    }
+
+}
@@ -0,0 +1,40 @@
+package org.thehive.hiveserverclient.stub;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.websocket.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+@Slf4j
+class StubStompEndpoint extends Endpoint {
+
+    static final int MAX_MESSAGE_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private final StubStompBroker broker;
+
+    StubStompEndpoint(StubStompBroker broker) {
+        this.broker = broker;
+    }
+
+    @Override
+    public void onOpen(Session session, EndpointConfig config) {
+        session.setMaxTextMessageBufferSize(MAX_MESSAGE_BUFFER_SIZE);
+        session.setMaxBinaryMessageBufferSize(MAX_MESSAGE_BUFFER_SIZE);
+        broker.open(session);
+        session.addMessageHandler(String.class, text -> broker.handle(session, ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8))));
+        session.addMessageHandler(ByteBuffer.class, bytes -> broker.handle(session, bytes));
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        broker.close(session);
+    }
+
+    @Override
+    public void onError(Session session, Throwable t) {
+        log.debug("Error on stomp endpoint", t);
+        broker.close(session);
+    }
+
+}
@@ -0,0 +1,68 @@
+package org.thehive.hiveserverclient.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class FutureUtilsTest {
+
+    static final Duration DEADLINE = Duration.ofMillis(200);
+
+    @DisplayName("Future from consumer is completed on the calling thread")
+    @Test
+    void futureFromConsumerIsCompletedOnTheCallingThread() {
+        var callingThread = Thread.currentThread();
+        var future = FutureUtils.<Thread>fromConsumer(consumer -> consumer.accept(Thread.currentThread()));
+        assertTrue(future.isDone());
+        assertSame(callingThread, future.join());
+    }
+
+    @DisplayName("Exception thrown by operation completes future exceptionally")
+    @Test
+    void exceptionThrownByOperationCompletesFutureExceptionally() {
+        var future = FutureUtils.fromConsumer((Consumer<String> consumer) -> {
+            throw new IllegalStateException("Authentication instance has not been authenticated");
+        });
+        var e = assertThrows(ExecutionException.class, future::get);
+        assertEquals(IllegalStateException.class, e.getCause().getClass());
+    }
+
+    @DisplayName("All of futures are collected in order")
+    @Test
+    void allOfFuturesAreCollectedInOrder() {
+        var first = new CompletableFuture<String>();
+        var second = new CompletableFuture<String>();
+        var all = FutureUtils.<String>allOf(List.of(first, second), DEADLINE);
+        second.complete("second");
+        first.complete("first");
+        assertEquals(List.of("first", "second"), all.join());
+    }
+
+    @DisplayName("All of futures fails when deadline passes")
+    @Test
+    void allOfFuturesFailsWhenDeadlinePasses() {
+        var completed = CompletableFuture.completedFuture("completed");
+        var pending = new CompletableFuture<String>();
+        var all = FutureUtils.<String>allOf(List.of(completed, pending), DEADLINE);
+        var e = assertThrows(ExecutionException.class, all::get);
+        assertEquals(TimeoutException.class, e.getCause().getClass());
+    }
+
+    @DisplayName("Both futures are paired")
+    @Test
+    void bothFuturesArePaired() {
+        var pair = FutureUtils.both(CompletableFuture.completedFuture(1), CompletableFuture.completedFuture("one"), DEADLINE).join();
+        assertEquals(Pair.of(1, "one"), pair);
+    }
+
+}
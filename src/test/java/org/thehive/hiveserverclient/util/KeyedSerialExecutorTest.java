@@ -0,0 +1,104 @@
+package org.thehive.hiveserverclient.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyedSerialExecutorTest {
+
+    static final long TIMEOUT_MS_EXECUTE = 10_000L;
+
+    ExecutorService executorService;
+
+    @BeforeEach
+    void init() {
+        this.executorService = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void destroy() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Tasks of each key run in submission order under load")
+    void tasksOfEachKeyRunInSubmissionOrderUnderLoad() throws InterruptedException {
+        final var keyCount = 16;
+        final var taskCountPerKey = 5_000;
+        final var submitterCount = 4;
+        var executor = new KeyedSerialExecutor(executorService);
+        Map<Integer, List<Integer>> executedByKey = new ConcurrentHashMap<>();
+        for (var key = 0; key < keyCount; key++)
+            executedByKey.put(key, new ArrayList<>());
+        var latch = new CountDownLatch(keyCount * taskCountPerKey);
+        var submitters = Executors.newFixedThreadPool(submitterCount);
+        // Each submitter owns a disjoint set of keys, so submission order per key is well defined
+        for (var s = 0; s < submitterCount; s++) {
+            final var submitter = s;
+            submitters.execute(() -> {
+                for (var i = 0; i < taskCountPerKey; i++)
+                    for (var key = submitter; key < keyCount; key += submitterCount) {
+                        final var k = key;
+                        final var sequence = i;
+                        executor.execute(k, () -> {
+                            executedByKey.get(k).add(sequence);
+                            latch.countDown();
+                        });
+                    }
+            });
+        }
+        assertTrue(latch.await(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS));
+        submitters.shutdown();
+        for (var executed : executedByKey.values()) {
+            assertEquals(taskCountPerKey, executed.size());
+            for (var i = 0; i < taskCountPerKey; i++)
+                assertEquals(i, executed.get(i));
+        }
+        assertEquals(0, executor.getActiveKeyCount());
+    }
+
+    @Test
+    @DisplayName("Slow key doesn't stall other keys")
+    void slowKeyDoesNotStallOtherKeys() throws InterruptedException {
+        var executor = new KeyedSerialExecutor(executorService);
+        var release = new CountDownLatch(1);
+        var slowCompleted = new CountDownLatch(2);
+        executor.execute("slow", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            slowCompleted.countDown();
+        });
+        executor.execute("slow", slowCompleted::countDown);
+        var fastCompleted = new CountDownLatch(100);
+        for (var i = 0; i < 100; i++)
+            executor.execute("fast", fastCompleted::countDown);
+        assertTrue(fastCompleted.await(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS));
+        assertEquals(2, slowCompleted.getCount());
+        release.countDown();
+        assertTrue(slowCompleted.await(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("Exception thrown by task doesn't break the key")
+    void exceptionThrownByTaskDoesNotBreakTheKey() throws InterruptedException {
+        var executor = new KeyedSerialExecutor(executorService);
+        var latch = new CountDownLatch(1);
+        executor.execute("key", () -> {
+            throw new IllegalStateException();
+        });
+        executor.execute("key", latch::countDown);
+        assertTrue(latch.await(TIMEOUT_MS_EXECUTE, TimeUnit.MILLISECONDS));
+    }
+
+}